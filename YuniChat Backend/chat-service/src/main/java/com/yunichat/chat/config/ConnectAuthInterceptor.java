@@ -0,0 +1,107 @@
+package com.yunichat.chat.config;
+
+import com.yunichat.chat.service.WebSocketAuthenticator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Establishes who a STOMP session belongs to. CONNECT must carry "Authorization: Bearer <access token>";
+ * userId, username and isGuest are taken from the verified token and stored in the session attributes and
+ * Principal that the rest of the WebSocket layer reads. A CONNECT without a valid token is answered with an
+ * ERROR frame and the connection is closed.
+ * With chat.websocket.auth.required off, a CONNECT without any token falls back to the legacy client-supplied
+ * userId/username headers; that mode only exists to roll clients over.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ConnectAuthInterceptor implements ChannelInterceptor {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final WebSocketAuthenticator authenticator;
+
+    @Value("${chat.websocket.auth.required:true}")
+    private boolean required;
+
+    public boolean isRequired() {
+        return required;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return message;
+        }
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes == null) {
+            throw new MessageDeliveryException(message, "No session to authenticate");
+        }
+
+        String token = bearerToken(accessor);
+        if (token == null && !required) {
+            applyLegacyHeaders(accessor, attributes);
+            return message;
+        }
+
+        WebSocketAuthenticator.Identity identity;
+        try {
+            identity = authenticator.authenticate(token);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected STOMP CONNECT for session {}: {}", accessor.getSessionId(), e.getMessage());
+            throw new MessageDeliveryException(message, "Unauthorized: " + e.getMessage());
+        }
+
+        String principal = identity.userId().toString();
+        attributes.put("userId", identity.userId());
+        attributes.put("username", identity.username());
+        attributes.put("isGuest", identity.guest());
+        // Principal lets convertAndSendToUser route to this session
+        accessor.setUser(() -> principal);
+        log.debug("Authenticated STOMP session {} as user {}", accessor.getSessionId(), identity.userId());
+        return message;
+    }
+
+    private static String bearerToken(StompHeaderAccessor accessor) {
+        String header = accessor.getFirstNativeHeader("Authorization");
+        if (header == null) {
+            header = accessor.getFirstNativeHeader("authorization");
+        }
+        if (header == null || !header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return null;
+        }
+        String token = header.substring(BEARER_PREFIX.length()).strip();
+        return token.isEmpty() ? null : token;
+    }
+
+    private static void applyLegacyHeaders(StompHeaderAccessor accessor, Map<String, Object> attributes) {
+        String userIdHeader = accessor.getFirstNativeHeader("userId");
+        String username = accessor.getFirstNativeHeader("username");
+        log.warn("Unauthenticated STOMP CONNECT for session {} (userId header {}), trusting client headers",
+                accessor.getSessionId(), userIdHeader);
+        if (userIdHeader != null) {
+            try {
+                Long userId = Long.parseLong(userIdHeader);
+                attributes.put("userId", userId);
+                accessor.setUser(() -> userIdHeader);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid userId in STOMP headers: {}", userIdHeader);
+            }
+        }
+        if (username != null) {
+            attributes.put("username", username);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.yunichat.chat.config;
+
+import com.yunichat.chat.service.ContentFilter;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moderation terms for outgoing message content. Entries are "term" (default action) or "action:term"
+ * with action one of mask, reject or flag; the terms file uses the same format, one entry per line, # for comments.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.content-filter")
+@Data
+public class ContentFilterProperties {
+
+    private boolean enabled = true;
+    private ContentFilter.Action defaultAction = ContentFilter.Action.MASK;
+    // Only match whole words, so a term never fires inside a longer, innocent word
+    private boolean wholeWords = true;
+    private List<String> terms = new ArrayList<>();
+    // Optional file checked for changes every reload interval
+    private String termsFile;
+    private long reloadIntervalMs = 30000;
+}
@@ -0,0 +1,114 @@
+package com.yunichat.chat.config;
+
+import com.yunichat.chat.util.OrderedExecutor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor for work that runs after a transaction commits (STOMP fan-out, search indexing),
+ * so none of it holds a pooled database connection
+ */
+@Configuration
+public class EventDispatchConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public OrderedExecutor chatEventExecutor(
+            @Value("${chat.events.dispatch.lanes:8}") int lanes,
+            @Value("${chat.events.dispatch.queue-capacity:10000}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        OrderedExecutor executor = new OrderedExecutor("chat-events", lanes, queueCapacity);
+        Gauge.builder("chat.events.queued", executor, OrderedExecutor::queuedTasks)
+                .description("Post-commit tasks waiting to be dispatched")
+                .register(meterRegistry);
+        return executor;
+    }
+
+    /**
+     * Lanes for large-room fan-out, chosen by recipient; kept apart from chatEventExecutor so a room lane
+     * waiting on a full fan-out lane can never wait on itself
+     */
+    @Bean(destroyMethod = "shutdown")
+    public OrderedExecutor roomFanoutExecutor(
+            @Value("${chat.fanout.lanes:8}") int lanes,
+            @Value("${chat.fanout.queue-capacity:10000}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        OrderedExecutor executor = new OrderedExecutor("room-fanout", lanes, queueCapacity);
+        Gauge.builder("chat.fanout.queued", executor, OrderedExecutor::queuedTasks)
+                .description("Large-room delivery envelopes waiting for a fan-out lane")
+                .register(meterRegistry);
+        return executor;
+    }
+
+    /**
+     * Lanes for Kafka sends, chosen by room; a producer waiting on an unreachable broker (max.block.ms)
+     * stalls only these, never the chatEventExecutor lanes that deliver messages
+     */
+    @Bean(destroyMethod = "shutdown")
+    public OrderedExecutor chatEventPublishExecutor(
+            @Value("${chat.events.kafka.publish-lanes:4}") int lanes,
+            @Value("${chat.events.kafka.publish-queue-capacity:10000}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        OrderedExecutor executor = new OrderedExecutor("chat-events-publish", lanes, queueCapacity);
+        Gauge.builder("chat.events.publish.queued", executor, OrderedExecutor::queuedTasks)
+                .description("Chat events waiting to be handed to the Kafka producer")
+                .register(meterRegistry);
+        return executor;
+    }
+
+    /**
+     * Database reads that fill RecentMessageCache, kept off the room lanes so a slow query never holds up
+     * a room's broadcasts. A full queue rejects and the history request fails instead of queueing without bound.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService historyLoadExecutor(
+            @Value("${chat.history.load-threads:4}") int threads,
+            @Value("${chat.history.load-queue-capacity:500}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "history-load-" + counter.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("chat.history.loads.queued", executor, pool -> pool.getQueue().size())
+                .description("Room history loads waiting for a thread")
+                .register(meterRegistry);
+        return executor;
+    }
+
+    /**
+     * Outbound fetches for link previews. The queue is bounded and a full queue rejects instead of blocking,
+     * so a burst of links only costs previews, never send latency.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService linkPreviewExecutor(
+            @Value("${chat.link-preview.threads:4}") int threads,
+            @Value("${chat.link-preview.queue-capacity:200}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "link-preview-" + counter.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("chat.link_preview.queued", executor, pool -> pool.getQueue().size())
+                .description("Link preview fetches waiting for a thread")
+                .register(meterRegistry);
+        return executor;
+    }
+}
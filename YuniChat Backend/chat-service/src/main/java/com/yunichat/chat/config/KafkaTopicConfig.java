@@ -0,0 +1,28 @@
+package com.yunichat.chat.config;
+
+import com.yunichat.common.dto.ChatEventDTO;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+@ConditionalOnProperty(name = "chat.events.kafka.enabled", havingValue = "true")
+public class KafkaTopicConfig {
+
+    /**
+     * Chat event log; partitioned by roomId key so per-room order is preserved
+     */
+    @Bean
+    public NewTopic chatEventsTopic(
+            @Value("${chat.events.kafka.topic:" + ChatEventDTO.TOPIC + "}") String topic,
+            @Value("${chat.events.kafka.partitions:12}") int partitions,
+            @Value("${chat.events.kafka.replicas:1}") int replicas) {
+        return TopicBuilder.name(topic)
+                .partitions(partitions)
+                .replicas(replicas)
+                .build();
+    }
+}
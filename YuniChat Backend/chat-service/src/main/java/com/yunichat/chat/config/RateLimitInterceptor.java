@@ -0,0 +1,189 @@
+package com.yunichat.chat.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flood control on clientInboundChannel: drops SEND frames that exceed their destination class's per-session
+ * or per-user token bucket before they reach the inbound executor's controllers.
+ * Buckets use GCRA, one AtomicLong "theoretical arrival time" per bucket, so checks are lock-free.
+ * A frame costs one permit here; frames carrying several messages are charged the rest by their handler
+ * through tryAcquireAdditional once the payload has been read.
+ */
+@Component
+@Slf4j
+public class RateLimitInterceptor implements ChannelInterceptor {
+
+    private final RateLimitProperties properties;
+    private final List<LimitClass> limitClasses = new ArrayList<>();
+    private final Map<String, AtomicLong[]> sessionBuckets = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong[]> userBuckets = new ConcurrentHashMap<>();
+
+    public RateLimitInterceptor(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        int index = 0;
+        for (Map.Entry<String, RateLimitProperties.DestinationClass> entry : properties.getClasses().entrySet()) {
+            RateLimitProperties.DestinationClass config = entry.getValue();
+            limitClasses.add(new LimitClass(index++, entry.getKey(), config.getDestinations(),
+                    Gcra.of(config.getSession()), Gcra.of(config.getUser()),
+                    rejections(meterRegistry, entry.getKey(), "session"),
+                    rejections(meterRegistry, entry.getKey(), "user")));
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!properties.isEnabled() || limitClasses.isEmpty()) {
+            return message;
+        }
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.SEND.equals(accessor.getCommand())) {
+            return message;
+        }
+        LimitClass limitClass = classify(accessor.getDestination());
+        if (limitClass == null) {
+            return message;
+        }
+
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        Object userId = attributes != null ? attributes.get("userId") : null;
+        boolean allowed = tryAcquire(limitClass, accessor.getDestination(), accessor.getSessionId(),
+                userId instanceof Long id ? id : null, 1);
+        return allowed ? message : null;
+    }
+
+    /**
+     * Charge the permits of a frame beyond the one preSend took, for frames carrying several messages (batch sends).
+     * Returns false when the session or user bucket cannot cover them; the handler must then refuse the frame.
+     */
+    public boolean tryAcquireAdditional(String destination, String sessionId, Long userId, int permits) {
+        if (!properties.isEnabled() || permits <= 0) {
+            return true;
+        }
+        LimitClass limitClass = classify(destination);
+        return limitClass == null || tryAcquire(limitClass, destination, sessionId, userId, permits);
+    }
+
+    private boolean tryAcquire(LimitClass limitClass, String destination, String sessionId, Long userId, int permits) {
+        long now = System.nanoTime();
+        if (sessionId != null) {
+            AtomicLong[] buckets = sessionBuckets.computeIfAbsent(sessionId, key -> newBuckets(now));
+            if (!limitClass.session().tryAcquire(buckets[limitClass.index()], now, permits)) {
+                limitClass.sessionRejections().increment();
+                log.debug("Rate limited {} frame to {} from session {}", limitClass.name(), destination, sessionId);
+                return false;
+            }
+        }
+        if (userId != null) {
+            AtomicLong[] buckets = userBuckets.computeIfAbsent(userId, key -> newBuckets(now));
+            if (!limitClass.user().tryAcquire(buckets[limitClass.index()], now, permits)) {
+                limitClass.userRejections().increment();
+                log.debug("Rate limited {} frame to {} from user {}", limitClass.name(), destination, userId);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        sessionBuckets.remove(event.getSessionId());
+    }
+
+    /**
+     * Forget buckets that have fully refilled; an absent bucket behaves exactly like a full one
+     */
+    @Scheduled(fixedDelayString = "${chat.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long cutoff = System.nanoTime() - properties.getIdleEvictionSeconds() * 1_000_000_000L;
+        sessionBuckets.values().removeIf(buckets -> isIdle(buckets, cutoff));
+        userBuckets.values().removeIf(buckets -> isIdle(buckets, cutoff));
+    }
+
+    private LimitClass classify(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        for (LimitClass limitClass : limitClasses) {
+            for (String prefix : limitClass.destinations()) {
+                if (destination.startsWith(prefix)) {
+                    return limitClass;
+                }
+            }
+        }
+        return null;
+    }
+
+    private AtomicLong[] newBuckets(long now) {
+        AtomicLong[] buckets = new AtomicLong[limitClasses.size()];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new AtomicLong(now);
+        }
+        return buckets;
+    }
+
+    private static boolean isIdle(AtomicLong[] buckets, long cutoff) {
+        for (AtomicLong bucket : buckets) {
+            if (bucket.get() - cutoff > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String destinationClass, String scope) {
+        return Counter.builder("chat.ratelimit.rejected")
+                .description("Inbound STOMP frames dropped by flood control")
+                .tag("class", destinationClass)
+                .tag("scope", scope)
+                .register(meterRegistry);
+    }
+
+    private record LimitClass(int index, String name, List<String> destinations, Gcra session, Gcra user,
+                              Counter sessionRejections, Counter userRejections) {
+    }
+
+    /**
+     * Generic cell rate algorithm: a bucket is the time at which it would be full again.
+     * Each permit pushes that time forward by one emission interval; a request is refused, taking nothing,
+     * when its last permit would land more than the burst tolerance ahead of now.
+     */
+    private record Gcra(long emissionIntervalNanos, long burstToleranceNanos) {
+
+        static Gcra of(RateLimitProperties.Bucket bucket) {
+            long interval = (long) (1_000_000_000L / bucket.getRefillPerSecond());
+            return new Gcra(interval, interval * Math.max(0, bucket.getCapacity() - 1));
+        }
+
+        boolean tryAcquire(AtomicLong theoreticalArrival, long now, int permits) {
+            long cost = emissionIntervalNanos * permits;
+            while (true) {
+                long current = theoreticalArrival.get();
+                long start = current - now > 0 ? current : now;
+                if (start + cost - emissionIntervalNanos - now > burstToleranceNanos) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(current, start + cost)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.yunichat.chat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inbound STOMP SEND limits per destination class. A frame is matched to the first class (in declaration order)
+ * with a destination prefix it starts with, then must pass both that class's session and user buckets.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat.rate-limit")
+@Data
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    private long idleEvictionSeconds = 300;
+    private Map<String, DestinationClass> classes = new LinkedHashMap<>();
+
+    @Data
+    public static class DestinationClass {
+        private List<String> destinations = new ArrayList<>();
+        private Bucket session = new Bucket();
+        private Bucket user = new Bucket();
+    }
+
+    @Data
+    public static class Bucket {
+        private int capacity = 20;  // Burst size
+        private double refillPerSecond = 10;  // Sustained rate
+    }
+}
@@ -0,0 +1,54 @@
+package com.yunichat.chat.config;
+
+import com.yunichat.chat.service.RoomMembershipCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Drops SUBSCRIBE frames for /topic/room/{id}/** unless the room is public or the subscriber is a member.
+ * GROUP and PRIVATE rooms are delivered through member queues, so this only closes the topic as a side door.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomSubscriptionInterceptor implements ChannelInterceptor {
+
+    private static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+
+    private final RoomMembershipCache membershipCache;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            return message;
+        }
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(ROOM_TOPIC_PREFIX)) {
+            return message;
+        }
+
+        int end = destination.indexOf('/', ROOM_TOPIC_PREFIX.length());
+        String roomId = destination.substring(ROOM_TOPIC_PREFIX.length(), end < 0 ? destination.length() : end);
+        if (membershipCache.isPublicRoom(roomId)) {
+            return message;
+        }
+
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        Long userId = attributes != null ? (Long) attributes.get("userId") : null;
+        if (userId != null && membershipCache.isMember(roomId, userId)) {
+            return message;
+        }
+        log.warn("Refused subscription to {} for session {} (user {})", destination, accessor.getSessionId(), userId);
+        return null;
+    }
+}
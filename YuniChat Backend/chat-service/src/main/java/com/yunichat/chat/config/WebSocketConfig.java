@@ -1,8 +1,13 @@
 package com.yunichat.chat.config;
 
+import com.yunichat.chat.service.WebSocketActivityTracker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.messaging.Message;
@@ -13,10 +18,12 @@ import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.web.socket.server.HandshakeInterceptor;
 
 import java.util.Map;
@@ -27,16 +34,35 @@ import java.util.Map;
 @Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final WebSocketActivityTracker activityTracker;
+    private final ConnectAuthInterceptor connectAuthInterceptor;
+    private final RateLimitInterceptor rateLimitInterceptor;
+    private final RoomSubscriptionInterceptor roomSubscriptionInterceptor;
+
+    // Server and client heartbeat interval; a dead connection is noticed within a few of these
+    @Value("${chat.websocket.heartbeat-ms:10000}")
+    private long heartbeatMillis;
+
+    private TaskScheduler heartbeatScheduler;
+
+    @Autowired
+    public void setHeartbeatScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler heartbeatScheduler) {
+        this.heartbeatScheduler = heartbeatScheduler;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        config.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[]{heartbeatMillis, heartbeatMillis})
+                .setTaskScheduler(heartbeatScheduler);
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(new ChannelInterceptor() {
+        // Identity before anything that reads it, then flood control so rejected frames cost as little as possible
+        registration.interceptors(connectAuthInterceptor, rateLimitInterceptor, roomSubscriptionInterceptor, new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
                 StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
@@ -52,31 +78,14 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 }
                 
                 if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
-                    // Extract userId and username from STOMP headers
-                    String userIdStr = accessor.getFirstNativeHeader("userId");
-                    String username = accessor.getFirstNativeHeader("username");
-                    
-                    log.info("🔑 STOMP CONNECT headers - userId: {}, username: {}", userIdStr, username);
-                    
-                    if (userIdStr != null) {
-                        try {
-                            Long userId = Long.parseLong(userIdStr);
-                            accessor.getSessionAttributes().put("userId", userId);
-                            
-                            // CRITICAL FIX: Set Principal so convertAndSendToUser can route messages
-                            accessor.setUser(() -> userIdStr);
-                            log.info("✅ Set Principal to userId: {} for STOMP user destination routing", userIdStr);
-                            
-                            log.info("✅ Stored userId {} in session attributes", userId);
-                        } catch (NumberFormatException e) {
-                            log.warn("⚠️ Invalid userId in STOMP headers: {}", userIdStr);
-                        }
-                    }
+                    // The broker expects a client heartbeat at the slower of the two offered intervals
+                    long clientHeartbeat = accessor.getHeartbeat()[0];
+                    activityTracker.onConnect(accessor.getSessionId(),
+                            clientHeartbeat > 0 ? Math.max(clientHeartbeat, heartbeatMillis) : 0);
                     
-                    if (username != null) {
-                        accessor.getSessionAttributes().put("username", username);
-                        log.info("✅ Stored username {} in session attributes", username);
-                    }
+                    // Identity was set from the verified token by ConnectAuthInterceptor
+                    log.info("🔑 STOMP CONNECT authenticated - userId: {}, username: {}",
+                            accessor.getSessionAttributes().get("userId"), accessor.getSessionAttributes().get("username"));
                 }
                 
                 return message;
@@ -84,30 +93,42 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         });
     }
 
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(activityTracker);
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // CRITICAL: SockJS /info endpoint needs CORS configured here
         // Gateway CORS doesn't apply to SockJS internal endpoints
         registry.addEndpoint("/ws/chat")
                 .setAllowedOriginPatterns("http://localhost:3000", "http://localhost:3001") // Specific origins only
-                .addInterceptors(new UserHandshakeInterceptor())
+                .addInterceptors(new UserHandshakeInterceptor(!connectAuthInterceptor.isRequired()))
                 .withSockJS(); // Enable SockJS support for /info endpoint
         
         log.info("✅ WebSocket endpoint registered: /ws/chat with SockJS support and CORS");
     }
     
     /**
-     * Handshake interceptor to extract user info from query params and store in session
+     * Handshake interceptor to extract user info from query params and store in session.
+     * Only used while unauthenticated connects are allowed; otherwise identity comes from the CONNECT token alone.
      */
     @Slf4j
     private static class UserHandshakeInterceptor implements HandshakeInterceptor {
         
+        private final boolean trustQueryIdentity;
+        
+        private UserHandshakeInterceptor(boolean trustQueryIdentity) {
+            this.trustQueryIdentity = trustQueryIdentity;
+        }
+        
         @Override
         public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
                                       WebSocketHandler wsHandler, Map<String, Object> attributes) {
             String query = request.getURI().getQuery();
             
-            if (query != null && !query.isEmpty()) {
+            if (trustQueryIdentity && query != null && !query.isEmpty()) {
                 String[] params = query.split("&");
                 for (String param : params) {
                     String[] keyValue = param.split("=");
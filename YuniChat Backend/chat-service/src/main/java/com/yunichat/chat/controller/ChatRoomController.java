@@ -2,6 +2,7 @@ package com.yunichat.chat.controller;
 
 import com.yunichat.chat.dto.CreateRoomRequest;
 import com.yunichat.chat.dto.RoomResponse;
+import com.yunichat.chat.dto.TrendingRoomResponse;
 import com.yunichat.chat.service.ChatRoomService;
 import com.yunichat.common.dto.ApiResponse;
 import io.swagger.v3.oas.annotations.Operation;
@@ -21,6 +22,8 @@ import java.util.List;
 @Tag(name = "Chat Rooms", description = "APIs for chat room management")
 public class ChatRoomController {
 
+    private static final int MAX_TRENDING_ROOMS = 100;
+
     private final ChatRoomService chatRoomService;
 
     @PostMapping
@@ -49,6 +52,15 @@ public class ChatRoomController {
         return ResponseEntity.ok(ApiResponse.success("Public rooms retrieved", rooms));
     }
 
+    @GetMapping("/trending")
+    @Operation(summary = "Get trending rooms", description = "Public rooms ranked by recent message activity")
+    public ResponseEntity<ApiResponse<List<TrendingRoomResponse>>> getTrendingRooms(
+            @RequestParam(defaultValue = "20") int limit) {
+        log.info("Get trending rooms request: limit={}", limit);
+        List<TrendingRoomResponse> rooms = chatRoomService.getTrendingRooms(Math.max(1, Math.min(limit, MAX_TRENDING_ROOMS)));
+        return ResponseEntity.ok(ApiResponse.success("Trending rooms retrieved", rooms));
+    }
+
     @GetMapping("/my-rooms")
     @Operation(summary = "Get user's rooms", description = "Get all rooms the user is a member of")
     public ResponseEntity<ApiResponse<List<RoomResponse>>> getUserRooms(
@@ -0,0 +1,46 @@
+package com.yunichat.chat.controller;
+
+import com.yunichat.chat.dto.ConversationInboxResponse;
+import com.yunichat.chat.service.ConversationSummaryService;
+import com.yunichat.chat.service.DeliveryService;
+import com.yunichat.common.dto.ApiResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/chat/conversations")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Conversations", description = "APIs for the user's conversation inbox")
+public class ConversationController {
+
+    private final ConversationSummaryService conversationSummaryService;
+    private final DeliveryService deliveryService;
+
+    @GetMapping
+    @Operation(summary = "Get inbox", description = "Get the user's conversations sorted by last activity with cursor pagination")
+    public ResponseEntity<ApiResponse<ConversationInboxResponse>> getInbox(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "30") int size) {
+        log.info("Get inbox request: user={}, size={}", userId, size);
+        ConversationInboxResponse inbox = conversationSummaryService.getInbox(userId, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Inbox retrieved successfully", inbox));
+    }
+
+    @GetMapping("/{conversationId}/delivery")
+    @Operation(summary = "Get delivery watermark", description = "Highest sequence of the user's messages the other participant has received")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> getDeliveryWatermark(
+            @RequestHeader("X-User-Id") Long userId,
+            @PathVariable Long conversationId) {
+        long deliveredSeq = deliveryService.getPeerDeliveredSeq(conversationId, userId);
+        return ResponseEntity.ok(ApiResponse.success("Delivery watermark retrieved successfully",
+                Map.of("conversationId", conversationId, "deliveredSeq", deliveredSeq)));
+    }
+}
@@ -0,0 +1,57 @@
+package com.yunichat.chat.controller;
+
+import com.yunichat.chat.dto.MentionInboxResponse;
+import com.yunichat.chat.service.MentionService;
+import com.yunichat.common.dto.ApiResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/chat/mentions")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Mentions", description = "APIs for the user's mentions inbox")
+public class MentionController {
+
+    private final MentionService mentionService;
+
+    @GetMapping
+    @Operation(summary = "Get mentions", description = "Get messages mentioning the user, newest first, with cursor pagination")
+    public ResponseEntity<ApiResponse<MentionInboxResponse>> getMentions(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "30") int size) {
+        log.info("Get mentions request: user={}, size={}", userId, size);
+        MentionInboxResponse mentions = mentionService.getMentions(userId, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Mentions retrieved successfully", mentions));
+    }
+
+    @GetMapping("/unread-count")
+    @Operation(summary = "Get unread mention count", description = "Get the number of unread mentions for the user")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> getUnreadCount(@RequestHeader("X-User-Id") Long userId) {
+        int unreadCount = mentionService.getUnreadCount(userId);
+        return ResponseEntity.ok(ApiResponse.success("Unread mention count retrieved", Map.of("unreadCount", unreadCount)));
+    }
+
+    @PutMapping("/{mentionId}/read")
+    @Operation(summary = "Mark mention as read", description = "Mark a single mention as read")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> markRead(
+            @PathVariable Long mentionId,
+            @RequestHeader("X-User-Id") Long userId) {
+        int unreadCount = mentionService.markRead(userId, mentionId);
+        return ResponseEntity.ok(ApiResponse.success("Mention marked as read", Map.of("unreadCount", unreadCount)));
+    }
+
+    @PutMapping("/read-all")
+    @Operation(summary = "Mark all mentions as read", description = "Mark every mention of the user as read")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> markAllRead(@RequestHeader("X-User-Id") Long userId) {
+        int updated = mentionService.markAllRead(userId);
+        return ResponseEntity.ok(ApiResponse.success("All mentions marked as read", Map.of("markedCount", updated)));
+    }
+}
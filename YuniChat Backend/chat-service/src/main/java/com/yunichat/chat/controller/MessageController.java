@@ -4,9 +4,12 @@ import com.yunichat.chat.dto.MessageReactionRequest;
 import com.yunichat.chat.dto.MessageReactionResponse;
 import com.yunichat.chat.dto.MessageRequest;
 import com.yunichat.chat.dto.MessageResponse;
+import com.yunichat.chat.dto.MessageSearchResponse;
 import com.yunichat.chat.service.MessageReactionService;
+import com.yunichat.chat.service.MessageSearchService;
 import com.yunichat.chat.service.MessageService;
 import com.yunichat.common.dto.ApiResponse;
+import com.yunichat.common.exception.BadRequestException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -18,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/chat/messages")
@@ -26,8 +30,11 @@ import java.util.List;
 @Tag(name = "Messages", description = "APIs for message management")
 public class MessageController {
 
+    private static final int MAX_REACTION_SUMMARY_BATCH = 200;
+
     private final MessageService messageService;
     private final MessageReactionService reactionService;
+    private final MessageSearchService messageSearchService;
 
     @PostMapping
     @Operation(summary = "Send message", description = "Send a message to a chat room")
@@ -44,10 +51,11 @@ public class MessageController {
     @Operation(summary = "Get room messages", description = "Get messages from a chat room with pagination")
     public ResponseEntity<ApiResponse<List<MessageResponse>>> getRoomMessages(
             @PathVariable String roomId,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "50") int size) {
         log.info("Get room messages request: room={}, page={}, size={}", roomId, page, size);
-        List<MessageResponse> messages = messageService.getRoomMessages(roomId, page, size);
+        List<MessageResponse> messages = messageService.getRoomMessages(roomId, page, size, userId);
         return ResponseEntity.ok(ApiResponse.success("Messages retrieved successfully", messages));
     }
 
@@ -55,12 +63,26 @@ public class MessageController {
     @Operation(summary = "Get new messages", description = "Get messages since a specific timestamp")
     public ResponseEntity<ApiResponse<List<MessageResponse>>> getMessagesSince(
             @PathVariable String roomId,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
         log.info("Get messages since request: room={}, since={}", roomId, since);
-        List<MessageResponse> messages = messageService.getMessagesSince(roomId, since);
+        List<MessageResponse> messages = messageService.getMessagesSince(roomId, since, userId);
         return ResponseEntity.ok(ApiResponse.success("New messages retrieved", messages));
     }
 
+    @GetMapping("/search")
+    @Operation(summary = "Search messages", description = "Full-text search over the rooms and private chats the user can access")
+    public ResponseEntity<ApiResponse<MessageSearchResponse>> searchMessages(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam("q") String query,
+            @RequestParam(required = false) String roomId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        log.info("Search messages request: user={}, room={}, size={}", userId, roomId, size);
+        MessageSearchResponse results = messageSearchService.search(userId, query, roomId, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success("Search results retrieved", results));
+    }
+
     @PutMapping("/{messageId}/edit")
     @Operation(summary = "Edit message", description = "Edit a sent message")
     public ResponseEntity<ApiResponse<MessageResponse>> editMessage(
@@ -164,6 +186,19 @@ public class MessageController {
         return ResponseEntity.ok(ApiResponse.success("Reactions retrieved successfully", reactions));
     }
 
+    @GetMapping("/reactions/summary")
+    @Operation(summary = "Get reaction summaries for many messages", description = "Get reaction counts and the caller's own reactions for a page of messages in one request")
+    public ResponseEntity<ApiResponse<Map<Long, List<MessageReactionResponse.ReactionSummary>>>> getReactionSummaries(
+            @RequestParam List<Long> messageIds,
+            @RequestHeader("X-User-Id") Long userId) {
+        log.info("Get reaction summaries request: {} messages, userId={}", messageIds.size(), userId);
+        if (messageIds.size() > MAX_REACTION_SUMMARY_BATCH) {
+            throw new BadRequestException("At most " + MAX_REACTION_SUMMARY_BATCH + " message IDs can be requested at once");
+        }
+        Map<Long, List<MessageReactionResponse.ReactionSummary>> summaries = reactionService.getReactionSummaries(messageIds, userId);
+        return ResponseEntity.ok(ApiResponse.success("Reaction summaries retrieved successfully", summaries));
+    }
+
     @GetMapping("/{messageId}/reactions/summary")
     @Operation(summary = "Get reaction summary", description = "Get reaction summary with counts for a message")
     public ResponseEntity<ApiResponse<List<MessageReactionResponse.ReactionSummary>>> getReactionSummary(
@@ -0,0 +1,44 @@
+package com.yunichat.chat.controller;
+
+import com.yunichat.chat.dto.OnlineUserPageResponse;
+import com.yunichat.chat.service.OnlineUserDirectory;
+import com.yunichat.common.dto.ApiResponse;
+import com.yunichat.common.exception.BadRequestException;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/chat/presence")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Presence", description = "APIs for browsing online users")
+public class PresenceController {
+
+    private final OnlineUserDirectory onlineUserDirectory;
+
+    @GetMapping("/online")
+    @Operation(summary = "Get online users", description = "Get online users sorted by username or join time, with cursor pagination and optional guest/gender filters")
+    public ResponseEntity<ApiResponse<OnlineUserPageResponse>> getOnlineUsers(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam(defaultValue = "USERNAME") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) Boolean guest,
+            @RequestParam(required = false) String gender) {
+        log.debug("Get online users request: user={}, sort={}, size={}, guest={}, gender={}", userId, sort, size, guest, gender);
+        OnlineUserPageResponse page = onlineUserDirectory.list(parseSort(sort), cursor, size, guest, gender);
+        return ResponseEntity.ok(ApiResponse.success("Online users retrieved successfully", page));
+    }
+
+    static OnlineUserDirectory.Sort parseSort(String sort) {
+        try {
+            return OnlineUserDirectory.Sort.valueOf(sort.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Sort must be USERNAME or JOINED");
+        }
+    }
+}
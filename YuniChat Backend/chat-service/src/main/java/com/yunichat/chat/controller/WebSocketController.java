@@ -1,14 +1,24 @@
 package com.yunichat.chat.controller;
 
+import com.yunichat.chat.config.RateLimitInterceptor;
 import com.yunichat.chat.dto.CallSignalRequest;
 import com.yunichat.chat.dto.CallSignalResponse;
+import com.yunichat.chat.dto.DeliveryAckRequest;
+import com.yunichat.chat.dto.MessageAck;
+import com.yunichat.chat.dto.MessageBatchRequest;
 import com.yunichat.chat.dto.MessageEditRequest;
 import com.yunichat.chat.dto.MessageReactionRequest;
 import com.yunichat.chat.dto.MessageRequest;
 import com.yunichat.chat.dto.MessageResponse;
+import com.yunichat.chat.dto.PresenceInterestRequest;
 import com.yunichat.chat.dto.TypingIndicator;
+import com.yunichat.chat.service.CallSessionRegistry;
+import com.yunichat.chat.service.DeliveryService;
+import com.yunichat.chat.service.IceCandidateBatcher;
 import com.yunichat.chat.service.MessageReactionService;
 import com.yunichat.chat.service.MessageService;
+import com.yunichat.chat.service.RoomBroadcaster;
+import com.yunichat.chat.service.RoomMembershipCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -17,15 +27,29 @@ import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 @Controller
 @RequiredArgsConstructor
 @Slf4j
 public class WebSocketController {
 
+    private static final int DEFAULT_PRESENCE_PAGE_SIZE = 50;
+    private static final int MAX_PRESENCE_PAGE_SIZE = 200;
+
     private final MessageService messageService;
     private final MessageReactionService reactionService;
     private final SimpMessagingTemplate messagingTemplate;
     private final com.yunichat.chat.service.WebSocketPresenceService presenceService;
+    private final CallSessionRegistry callRegistry;
+    private final IceCandidateBatcher iceCandidateBatcher;
+    private final DeliveryService deliveryService;
+    private final RoomBroadcaster roomBroadcaster;
+    private final RoomMembershipCache membershipCache;
+    private final RateLimitInterceptor rateLimitInterceptor;
 
     @MessageMapping("/chat.sendMessage")
     public void sendMessage(@Payload MessageRequest message, SimpMessageHeaderAccessor headerAccessor) {
@@ -39,21 +63,90 @@ public class WebSocketController {
         
         log.info("WebSocket message received: room={}, user={}, content={}", message.getRoomId(), userId, message.getContent());
         
+        // MessageService already broadcasts the message, no need to do it here; a retry of an in-flight send
+        // is acked when the original finishes rather than holding this inbound thread
+        messageService.sendMessageAsync(message, userId, username != null ? username : "User" + userId)
+                .whenComplete((response, failure) -> {
+                    if (failure == null) {
+                        sendAck(userId, message.getClientMessageId(), response, null);
+                        log.info("Message sent successfully to room {}", message.getRoomId());
+                    } else {
+                        log.error("Error sending message via WebSocket", failure);
+                        sendAck(userId, message.getClientMessageId(), null, failureMessage(failure));
+                    }
+                });
+    }
+
+    /**
+     * Ordered batch send (bulk forward, multi-image share, offline outbox flush).
+     * Stored in one transaction and delivered as one frame per room; acked with one frame listing every item.
+     */
+    @MessageMapping("/chat.sendBatch")
+    public void sendBatch(@Payload MessageBatchRequest batch, SimpMessageHeaderAccessor headerAccessor) {
+        Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
+        String username = (String) headerAccessor.getSessionAttributes().get("username");
+        
+        if (userId == null) {
+            log.warn("User ID not found in session");
+            return;
+        }
+        
+        List<MessageRequest> requests = batch.getMessages() != null ? batch.getMessages() : List.of();
+        log.info("WebSocket batch received: user={}, size={}", userId, requests.size());
+        
+        // The frame itself paid one permit on the way in; every further message in it pays one more
+        if (requests.size() > 1 && !rateLimitInterceptor.tryAcquireAdditional(headerAccessor.getDestination(),
+                headerAccessor.getSessionId(), userId, requests.size() - 1)) {
+            List<MessageAck> refused = requests.stream()
+                    .map(request -> buildAck(request.getClientMessageId(), null, "Rate limit exceeded"))
+                    .toList();
+            messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/ack-batch", refused);
+            return;
+        }
+        
+        CompletableFuture<List<MessageResponse>> sent;
         try {
-            // MessageService already broadcasts the message, no need to do it here
-            messageService.sendMessage(message, userId, username != null ? username : "User" + userId);
-            log.info("Message sent successfully to room {}", message.getRoomId());
+            sent = messageService.sendMessageBatch(requests, userId, username != null ? username : "User" + userId);
         } catch (Exception e) {
-            log.error("Error sending message via WebSocket", e);
+            sent = CompletableFuture.failedFuture(e);
         }
+        sent.whenComplete((responses, failure) -> {
+            List<MessageAck> acks;
+            if (failure == null) {
+                acks = new ArrayList<>(responses.size());
+                for (int i = 0; i < responses.size(); i++) {
+                    acks.add(buildAck(requests.get(i).getClientMessageId(), responses.get(i), null));
+                }
+            } else {
+                log.error("Error sending message batch via WebSocket", failure);
+                String error = failureMessage(failure);
+                acks = requests.stream()
+                        .map(request -> buildAck(request.getClientMessageId(), null, error))
+                        .toList();
+            }
+            messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/ack-batch", acks);
+        });
     }
 
     @MessageMapping("/chat.typing")
-    public void handleTyping(@Payload TypingIndicator indicator) {
+    public void handleTyping(@Payload TypingIndicator indicator, SimpMessageHeaderAccessor headerAccessor) {
+        Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
+        String username = (String) headerAccessor.getSessionAttributes().get("username");
+        
+        if (userId == null || indicator.getRoomId() == null) {
+            return;
+        }
+        if (!mayPostToRoom(indicator.getRoomId(), userId)) {
+            log.warn("Dropped typing indicator from user {} for room {}: not a member", userId, indicator.getRoomId());
+            return;
+        }
         log.debug("Typing indicator: room={}, user={}, typing={}", 
-                indicator.getRoomId(), indicator.getUserId(), indicator.getIsTyping());
+                indicator.getRoomId(), userId, indicator.getIsTyping());
         
-        messagingTemplate.convertAndSend("/topic/room/" + indicator.getRoomId() + "/typing", indicator);
+        // Sender identity comes from the session, never from the payload
+        indicator.setUserId(userId);
+        indicator.setUsername(username);
+        roomBroadcaster.broadcast(indicator.getRoomId(), "/typing", indicator);
     }
 
     @MessageMapping("/chat.privateTyping")
@@ -102,11 +195,15 @@ public class WebSocketController {
             log.warn("User ID not found in session for join");
             return;
         }
+        if (!mayPostToRoom(roomId, userId)) {
+            log.warn("Dropped join event from user {} for room {}: not a member", userId, roomId);
+            return;
+        }
         
         log.info("User {} joined room {} via WebSocket", userId, roomId);
         
         String joinMessage = username + " joined the room";
-        messagingTemplate.convertAndSend("/topic/room/" + roomId + "/events", joinMessage);
+        roomBroadcaster.broadcast(roomId, "/events", joinMessage);
     }
 
     @MessageMapping("/chat.sendPrivateMessage")
@@ -121,32 +218,50 @@ public class WebSocketController {
         
         log.info("WebSocket private message: from={} to={} content={}", userId, message.getRecipientId(), message.getContent());
         
-        try {
-            MessageResponse response = messageService.sendMessage(message, userId, username != null ? username : "User" + userId);
-            
-            // Add recipientId to response for frontend routing
-            response.setRecipientId(message.getRecipientId());
-            
-            log.info("Sending private message to user {} queue", message.getRecipientId());
-            // Send to recipient's private queue
-            messagingTemplate.convertAndSendToUser(
-                message.getRecipientId().toString(),
-                "/queue/messages",
-                response
-            );
-            
-            log.info("Sending private message confirmation to sender {} queue", userId);
-            // Send back to sender for confirmation
-            messagingTemplate.convertAndSendToUser(
-                userId.toString(),
-                "/queue/messages",
-                response
-            );
-            
-            log.info("Private message sent successfully from {} to {}", userId, message.getRecipientId());
-        } catch (Exception e) {
-            log.error("Error sending private message via WebSocket", e);
-        }
+        // MessageService delivers to the recipient's and sender's /queue/messages once the message commits
+        messageService.sendMessageAsync(message, userId, username != null ? username : "User" + userId)
+                .whenComplete((response, failure) -> {
+                    if (failure == null) {
+                        sendAck(userId, message.getClientMessageId(), response, null);
+                        log.info("Private message sent successfully from {} to {}", userId, response.getRecipientId());
+                    } else {
+                        log.error("Error sending private message via WebSocket", failure);
+                        sendAck(userId, message.getClientMessageId(), null, failureMessage(failure));
+                    }
+                });
+    }
+
+    /**
+     * Same rule as subscribing: open rooms take anyone, other rooms only their members
+     */
+    private boolean mayPostToRoom(String roomId, Long userId) {
+        return roomId != null && (membershipCache.isPublicRoom(roomId) || membershipCache.isMember(roomId, userId));
+    }
+
+    /**
+     * Acknowledge a send to the sender with the server ID and sequence, or the failure reason
+     */
+    private void sendAck(Long userId, String clientMessageId, MessageResponse response, String error) {
+        messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/ack", buildAck(clientMessageId, response, error));
+    }
+
+    // Failures from a dependent stage arrive wrapped; the ack carries the original reason
+    private static String failureMessage(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause().getMessage()
+                : failure.getMessage();
+    }
+
+    private MessageAck buildAck(String clientMessageId, MessageResponse response, String error) {
+        return MessageAck.builder()
+                .clientMessageId(clientMessageId)
+                .messageId(response != null ? response.getId() : null)
+                .roomId(response != null ? response.getRoomId() : null)
+                .seq(response != null ? response.getSeq() : null)
+                .createdAt(response != null ? response.getCreatedAt() : null)
+                .success(response != null)
+                .error(error)
+                .build();
     }
 
     @MessageMapping("/chat.leave")
@@ -158,11 +273,15 @@ public class WebSocketController {
             log.warn("User ID not found in session for leave");
             return;
         }
+        if (!mayPostToRoom(roomId, userId)) {
+            log.warn("Dropped leave event from user {} for room {}: not a member", userId, roomId);
+            return;
+        }
         
         log.info("User {} left room {} via WebSocket", userId, roomId);
         
         String leaveMessage = username + " left the room";
-        messagingTemplate.convertAndSend("/topic/room/" + roomId + "/events", leaveMessage);
+        roomBroadcaster.broadcast(roomId, "/events", leaveMessage);
     }
 
     @MessageMapping("/chat.markAsRead")
@@ -190,6 +309,28 @@ public class WebSocketController {
         }
     }
 
+    /**
+     * Batched delivery acknowledgement: one frame carrying, per private conversation, the highest sequence a device
+     * has received since its last ack.
+     * Senders learn about it through coalesced receipts on /user/queue/delivery.
+     */
+    @MessageMapping("/chat.ack")
+    public void handleDeliveryAck(@Payload DeliveryAckRequest request, SimpMessageHeaderAccessor headerAccessor) {
+        Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
+        if (userId == null || request == null) {
+            log.warn("Delivery ack without user or payload");
+            return;
+        }
+
+        try {
+            int advanced = deliveryService.acknowledge(userId, request.getAcks());
+            log.debug("Delivery ack from user {}: {} conversations, {} advanced",
+                    userId, request.getAcks() == null ? 0 : request.getAcks().size(), advanced);
+        } catch (Exception e) {
+            log.error("Error processing delivery ack for user {}: {}", userId, e.getMessage());
+        }
+    }
+
     /**
      * Handle request for current active users list
      * Client can call this after subscribing to /topic/active-users to get immediate list
@@ -199,8 +340,77 @@ public class WebSocketController {
         Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
         log.info("📢 User {} requesting active users list", userId);
         
-        // Broadcast current active users to all clients
-        presenceService.broadcastActiveUsers();
+        if (presenceService.isGlobalBroadcastEnabled()) {
+            // Broadcast current active users to all clients
+            presenceService.broadcastActiveUsers();
+        } else if (userId != null) {
+            // Only the requester gets a list, and only its first page
+            presenceService.sendActiveUsersPage(userId, headerAccessor.getSessionId(), 0, DEFAULT_PRESENCE_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Page through the online list on demand; the reply goes to this session's /user/queue/active-users
+     */
+    @MessageMapping("/presence.list")
+    public void listActiveUsers(@Payload(required = false) java.util.Map<String, Object> payload, SimpMessageHeaderAccessor headerAccessor) {
+        Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
+        
+        if (userId == null) {
+            log.warn("User ID not found in session for presence list");
+            return;
+        }
+        
+        int page = payload != null && payload.get("page") instanceof Number number ? Math.max(0, number.intValue()) : 0;
+        int size = payload != null && payload.get("size") instanceof Number number
+                ? Math.min(Math.max(1, number.intValue()), MAX_PRESENCE_PAGE_SIZE) : DEFAULT_PRESENCE_PAGE_SIZE;
+        presenceService.sendActiveUsersPage(userId, headerAccessor.getSessionId(), page, size);
+    }
+
+    /**
+     * Sorted, filterable online directory page (same as GET /api/chat/presence/online);
+     * the reply goes to this session's /user/queue/online-users
+     */
+    @MessageMapping("/presence.directory")
+    public void getOnlineDirectory(@Payload(required = false) java.util.Map<String, Object> payload, SimpMessageHeaderAccessor headerAccessor) {
+        Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
+        
+        if (userId == null) {
+            log.warn("User ID not found in session for online directory");
+            return;
+        }
+        
+        java.util.Map<String, Object> params = payload != null ? payload : java.util.Map.of();
+        try {
+            presenceService.sendDirectoryPage(userId, headerAccessor.getSessionId(),
+                    PresenceController.parseSort(params.get("sort") instanceof String sort ? sort : "USERNAME"),
+                    (String) params.get("cursor"),
+                    params.get("size") instanceof Number size ? size.intValue() : DEFAULT_PRESENCE_PAGE_SIZE,
+                    (Boolean) params.get("guest"),
+                    (String) params.get("gender"));
+        } catch (Exception e) {
+            log.error("Error serving online directory to user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Declare whose presence this session follows (friends, open rooms, explicit users).
+     * Replaces the session's previous interest; changes then arrive on /user/queue/presence.
+     */
+    @MessageMapping("/presence.interest")
+    public void declarePresenceInterest(@Payload PresenceInterestRequest request, SimpMessageHeaderAccessor headerAccessor) {
+        Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
+        
+        if (userId == null) {
+            log.warn("User ID not found in session for presence interest");
+            return;
+        }
+        
+        try {
+            presenceService.declareInterest(userId, headerAccessor.getSessionId(), request);
+        } catch (Exception e) {
+            log.error("Error declaring presence interest for user {}", userId, e);
+        }
     }
 
     /**
@@ -209,15 +419,8 @@ public class WebSocketController {
     @MessageMapping("/user.status")
     public void handleStatusChange(@Payload java.util.Map<String, Object> statusUpdate, SimpMessageHeaderAccessor headerAccessor) {
         try {
-            // Handle both Integer and Long from frontend
-            Object userIdObj = statusUpdate.get("userId");
-            Long userId = null;
-            if (userIdObj instanceof Integer) {
-                userId = ((Integer) userIdObj).longValue();
-            } else if (userIdObj instanceof Long) {
-                userId = (Long) userIdObj;
-            }
-            
+            // A session can only change its own user's status; any userId in the payload is ignored
+            Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
             String status = (String) statusUpdate.get("status");
             
             if (userId == null || status == null) {
@@ -227,18 +430,9 @@ public class WebSocketController {
             
             log.info("🔄 User {} changed status to {}", userId, status);
             
-            // Broadcast status change to all connected clients
-            java.util.Map<String, Object> statusMessage = new java.util.HashMap<>();
-            statusMessage.put("userId", userId);
-            statusMessage.put("status", status);
-            statusMessage.put("timestamp", System.currentTimeMillis());
-            
-            messagingTemplate.convertAndSend("/topic/user-status", statusMessage);
-            log.info("✅ Status update broadcasted to /topic/user-status");
-            
-            // Also broadcast updated active users list with new status
-            presenceService.broadcastActiveUsers();
-            log.info("✅ Active users list broadcasted with updated status");
+            // Deliver to sessions watching this user (and to everyone while the global broadcast is on)
+            presenceService.publishStatusChange(userId, status);
+            log.info("✅ Status update published for user {}", userId);
         } catch (Exception e) {
             log.error("❌ Error handling status change", e);
         }
@@ -359,8 +553,14 @@ public class WebSocketController {
         }
         
         try {
-            log.info("📞 Call signal received: type={}, from={}, to={}, callType={}, isGuest={}", 
-                    request.getType(), userId, request.getCalleeId(), request.getCallType(), isGuest);
+            String signalType = request.getType();
+            // Trickle ICE produces many frames per call; keep them out of the INFO log
+            if ("ICE_CANDIDATE".equals(signalType)) {
+                log.debug("Call signal received: type={}, from={}, to={}", signalType, userId, request.getCalleeId());
+            } else {
+                log.info("📞 Call signal received: type={}, from={}, to={}, callType={}, isGuest={}", 
+                        signalType, userId, request.getCalleeId(), request.getCallType(), isGuest);
+            }
             
             // Security: Block guest users from calls
             if (Boolean.TRUE.equals(isGuest)) {
@@ -380,37 +580,86 @@ public class WebSocketController {
                 return;
             }
             
-            // Security: Only allow signals between two specific users (private chat)
-            // For CALL_OFFER and CALL_ANSWER, validate that this is a private chat scenario
-            String signalType = request.getType();
-            if ("CALL_OFFER".equals(signalType) || "CALL_ANSWER".equals(signalType)) {
-                log.info("🔒 Validating private chat call between user {} and user {}", userId, request.getCalleeId());
-                // In a production system, you would validate against a database that these users
-                // have an active private chat or are friends. For now, we just ensure they're not guests.
+            Long peerId = request.getCalleeId();
+            if (signalType == null) {
+                log.warn("❌ Call signal type not provided");
+                return;
+            }
+            switch (signalType) {
+                case "CALL_OFFER" -> {
+                    // Refuse immediately rather than ringing a user who cannot answer
+                    CallSessionRegistry.OfferResult result = callRegistry.offer(userId, peerId, request.getCallType());
+                    if (result == CallSessionRegistry.OfferResult.CALLEE_OFFLINE) {
+                        sendCallRefusal(userId, peerId, "CALL_REJECT", "OFFLINE");
+                        return;
+                    }
+                    if (result == CallSessionRegistry.OfferResult.CALLEE_BUSY) {
+                        sendCallRefusal(userId, peerId, "CALL_BUSY", "BUSY");
+                        return;
+                    }
+                }
+                case "CALL_ANSWER" -> {
+                    if (!callRegistry.answer(userId, peerId)) {
+                        sendCallRefusal(userId, peerId, "CALL_END", "NO_SUCH_CALL");
+                        return;
+                    }
+                }
+                case "ICE_CANDIDATE" -> {
+                    if (callRegistry.isInCall(userId, peerId)) {
+                        iceCandidateBatcher.add(userId, peerId, request.getCandidate());
+                    } else {
+                        log.debug("Dropping ICE candidate from {} to {}: no active call", userId, peerId);
+                    }
+                    return;
+                }
+                case "CALL_END", "CALL_REJECT", "CALL_BUSY" -> {
+                    callRegistry.end(userId, peerId);
+                    iceCandidateBatcher.discard(userId, peerId);
+                }
+                default -> {
+                    if (!callRegistry.isInCall(userId, peerId)) {
+                        log.warn("Dropping {} signal from {} to {}: no active call", signalType, userId, peerId);
+                        return;
+                    }
+                }
             }
             
             // Build response with caller information
             CallSignalResponse response = CallSignalResponse.builder()
-                    .type(request.getType())
+                    .type(signalType)
                     .callerId(userId)
                     .callerUsername(username)
-                    .calleeId(request.getCalleeId())
+                    .calleeId(peerId)
                     .sdp(request.getSdp())
-                    .candidate(request.getCandidate())
                     .callType(request.getCallType())
                     .timestamp(System.currentTimeMillis())
                     .build();
             
             // Route signal to the callee
             messagingTemplate.convertAndSendToUser(
-                    request.getCalleeId().toString(),
+                    peerId.toString(),
                     "/queue/call-signal",
                     response
             );
             
-            log.info("✅ Call signal routed to user {}", request.getCalleeId());
+            log.info("✅ Call signal {} routed to user {}", signalType, peerId);
         } catch (Exception e) {
             log.error("❌ Error handling call signal", e);
         }
     }
+
+    /**
+     * Answer a signal on the peer's behalf, as if the peer had replied with the given type
+     */
+    private void sendCallRefusal(Long userId, Long peerId, String type, String reason) {
+        log.info("📵 Call signal from {} to {} refused: {}", userId, peerId, reason);
+        CallSignalResponse response = CallSignalResponse.builder()
+                .type(type)
+                .callerId(peerId)
+                .calleeId(userId)
+                .reason(reason)
+                .timestamp(System.currentTimeMillis())
+                .build();
+        messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/call-signal", response);
+    }
 }
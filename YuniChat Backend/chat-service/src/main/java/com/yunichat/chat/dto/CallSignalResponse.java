@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -17,6 +19,8 @@ public class CallSignalResponse {
     private String calleeUsername;
     private String sdp;
     private String candidate;
+    private List<String> candidates; // ICE_CANDIDATES: candidates coalesced into one frame
     private String callType;
+    private String reason; // Why the server ended or refused a call (OFFLINE, BUSY, TIMEOUT, PEER_OFFLINE)
     private Long timestamp;
 }
@@ -0,0 +1,23 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSummaryResponse {
+
+    private String roomId;
+    private Long peerUserId; // For private chats
+    private Long lastMessageId;
+    private String lastMessagePreview;
+    private Long lastSenderId;
+    private LocalDateTime lastActivityAt;
+    private Integer unreadCount;
+}
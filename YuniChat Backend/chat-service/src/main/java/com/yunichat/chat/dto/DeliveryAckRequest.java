@@ -0,0 +1,29 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Sent by a device to /app/chat.ack: for each private conversation, the highest sequence number it has received.
+ * One frame covers any number of messages.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryAckRequest {
+    private List<ConversationAck> acks;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ConversationAck {
+        private Long conversationId;
+        private Long seq;
+    }
+}
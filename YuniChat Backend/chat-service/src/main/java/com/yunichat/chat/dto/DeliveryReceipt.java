@@ -0,0 +1,21 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sent to the sender's /user/queue/delivery: every message up to deliveredSeq reached a device of recipientId
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryReceipt {
+    private String roomId;
+    private Long conversationId;
+    private Long recipientId;
+    private Long deliveredSeq;
+    private Long timestamp;
+}
@@ -0,0 +1,19 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LinkPreview {
+
+    private String url;
+    private String title;
+    private String description;
+    private String imageUrl;
+    private String siteName;
+}
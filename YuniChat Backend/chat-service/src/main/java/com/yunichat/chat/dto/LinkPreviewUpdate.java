@@ -0,0 +1,19 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LinkPreviewUpdate {
+
+    private Long messageId;
+    private String roomId;
+    private List<LinkPreview> previews;
+}
@@ -0,0 +1,23 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MentionResponse {
+
+    private Long id;
+    private Long messageId;
+    private String roomId;
+    private Long senderId;
+    private String content; // Current message content, reflects edits
+    private LocalDateTime createdAt;
+    private Boolean isRead;
+}
@@ -0,0 +1,26 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sent to /user/queue/ack for every STOMP send, so clients can pipeline sends and match results by clientMessageId
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageAck {
+
+    private String clientMessageId;
+    private Long messageId; // Server ID, null when the send failed
+    private String roomId;
+    private Long seq; // Per-conversation sequence for private messages
+    private LocalDateTime createdAt;
+    private Boolean success;
+    private String error;
+}
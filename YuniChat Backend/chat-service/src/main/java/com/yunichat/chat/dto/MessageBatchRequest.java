@@ -0,0 +1,23 @@
+package com.yunichat.chat.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageBatchRequest {
+
+    // Stored and delivered in this order
+    @NotEmpty(message = "Batch must contain at least one message")
+    @Size(max = 100, message = "Batch cannot contain more than 100 messages")
+    private List<@Valid MessageRequest> messages;
+}
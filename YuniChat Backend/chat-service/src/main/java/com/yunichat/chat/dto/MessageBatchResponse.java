@@ -0,0 +1,21 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Combined broadcast for a batch send: all messages of one room or private chat in a single frame
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageBatchResponse {
+
+    private String roomId;
+    private List<MessageResponse> messages;
+}
@@ -38,4 +38,8 @@ public class MessageRequest {
     
     // For mentions
     private java.util.List<Long> mentionedUserIds;
+    
+    // Optional client-generated ID; retries with the same ID are acknowledged without creating a duplicate
+    @Size(max = 64, message = "Client message ID cannot exceed 64 characters")
+    private String clientMessageId;
 }
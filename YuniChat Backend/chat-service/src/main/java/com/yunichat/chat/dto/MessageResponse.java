@@ -9,7 +9,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class MessageResponse {
@@ -18,6 +18,8 @@ public class MessageResponse {
     private String roomId;
     private Long senderId;
     private Long recipientId;
+    private Long seq;
+    private String clientMessageId;
     private String senderUsername;
     private String content;
     private Message.MessageType type;
@@ -32,4 +34,5 @@ public class MessageResponse {
     private LocalDateTime createdAt;
     private LocalDateTime editedAt;
     private java.util.List<Long> mentionedUserIds;
+    private java.util.List<MessageReactionResponse.ReactionSummary> reactions;
 }
@@ -0,0 +1,18 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSearchResponse {
+
+    private List<MessageSearchResult> results;
+    private String nextCursor; // null when there are no more results
+}
@@ -0,0 +1,22 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSearchResult {
+
+    private Long messageId;
+    private String roomId;
+    private Long senderId;
+    private String snippet; // HTML-escaped content with matches wrapped in <mark>
+    private Float score;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,19 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OnlineUserPageResponse {
+
+    private List<OnlineUserResponse> users;
+    private Integer totalOnline; // All online users, before filters
+    private String nextCursor; // null when there are no more users
+}
@@ -0,0 +1,23 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OnlineUserResponse {
+
+    private Long userId;
+    private String username;
+    private Boolean isGuest;
+    private String gender;
+    private String avatarUrl;
+    private String status;
+    private LocalDateTime joinedAt; // When the user's first current session connected
+}
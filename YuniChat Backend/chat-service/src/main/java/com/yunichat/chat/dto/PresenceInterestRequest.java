@@ -0,0 +1,21 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Presence a session wants to follow; every field is optional and the union is watched
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceInterestRequest {
+    private List<Long> userIds;
+    private List<String> roomIds; // Rooms the client has open; only rooms the user belongs to count
+    private Boolean friends;
+}
@@ -0,0 +1,21 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Recent messages pushed on a room subscription that asked for history, newest first.
+ * Reactions carry the subscriber's own userReacted flags; isRead/readAt are current as of the push.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomHistoryResponse {
+    private String roomId;
+    private List<MessageResponse> messages;
+}
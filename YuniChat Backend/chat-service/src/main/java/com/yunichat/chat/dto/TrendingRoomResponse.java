@@ -0,0 +1,24 @@
+package com.yunichat.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendingRoomResponse {
+    private String roomId;
+    private String name;
+    private String description;
+    private Integer memberCount;
+    // Distinct senders in the trending window
+    private Integer activeMembers;
+    private Long messageCount;
+    private Integer messagesLastMinute;
+    private Double messagesPerMinute5;
+    private Double messagesPerMinute15;
+    private Double messagesPerMinute60;
+}
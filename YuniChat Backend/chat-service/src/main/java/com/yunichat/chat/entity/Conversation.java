@@ -0,0 +1,60 @@
+package com.yunichat.chat.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * A private (1:1) conversation between two users.
+ * Participants are stored ordered (userLowId <= userHighId) so each pair maps to exactly one row.
+ */
+@Entity
+@Table(name = "conversations",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"user_low_id", "user_high_id"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EntityListeners(AuditingEntityListener.class)
+public class Conversation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_low_id", nullable = false)
+    private Long userLowId;
+
+    @Column(name = "user_high_id", nullable = false)
+    private Long userHighId;
+
+    // Last sequence number handed out to a message in this conversation
+    @Builder.Default
+    @Column(name = "last_seq", nullable = false)
+    private Long lastSeq = 0L;
+
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Room ID exposed to clients for this conversation
+     */
+    public String getRoomKey() {
+        return "private_" + userLowId + "_" + userHighId;
+    }
+
+    public Long peerOf(Long userId) {
+        return userLowId.equals(userId) ? userHighId : userLowId;
+    }
+
+    public boolean hasParticipant(Long userId) {
+        return userLowId.equals(userId) || userHighId.equals(userId);
+    }
+}
@@ -0,0 +1,54 @@
+package com.yunichat.chat.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Denormalized per-user view of a private conversation backing the inbox; rooms are summarized once
+ * per room in RoomSummary. Rows are maintained incrementally by ConversationSummaryService on send, read and delete.
+ */
+@Entity
+@Table(name = "conversation_summaries",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "room_id"}),
+    indexes = @Index(name = "idx_conversation_summaries_inbox", columnList = "user_id, last_activity_at DESC, room_id DESC"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "room_id", nullable = false)
+    private String roomId;
+
+    // Other participant
+    @Column(name = "peer_user_id")
+    private Long peerUserId;
+
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(name = "last_message_preview", length = 200)
+    private String lastMessagePreview;
+
+    @Column(name = "last_sender_id")
+    private Long lastSenderId;
+
+    @Column(name = "last_activity_at", nullable = false)
+    private LocalDateTime lastActivityAt;
+
+    @Builder.Default
+    @Column(name = "unread_count", nullable = false)
+    private Integer unreadCount = 0;
+}
@@ -0,0 +1,39 @@
+package com.yunichat.chat.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Highest per-conversation sequence a user's devices have acknowledged receiving.
+ * Written in batches by DeliveryService and only ever moves forward.
+ */
+@Entity
+@Table(name = "delivery_watermarks",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"conversation_id", "user_id"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryWatermark {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "conversation_id", nullable = false)
+    private Long conversationId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "delivered_seq", nullable = false)
+    private Long deliveredSeq;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,50 @@
+package com.yunichat.chat.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row per (mentioned user, message) backing the mentions inbox.
+ * Written in the same transaction as the message so mentions survive the user being offline.
+ */
+@Entity
+@Table(name = "mentions",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "message_id"}),
+    indexes = {
+        @Index(name = "idx_mentions_inbox", columnList = "user_id, created_at DESC, id DESC"),
+        @Index(name = "idx_mentions_message_id", columnList = "message_id")
+    })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Mention {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "message_id", nullable = false)
+    private Long messageId;
+
+    @Column(name = "room_id", nullable = false)
+    private String roomId;
+
+    @Column(name = "sender_id", nullable = false)
+    private Long senderId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Builder.Default
+    @Column(name = "is_read", nullable = false)
+    private Boolean isRead = false;
+}
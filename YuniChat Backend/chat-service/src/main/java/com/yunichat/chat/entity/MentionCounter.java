@@ -0,0 +1,27 @@
+package com.yunichat.chat.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Unread mention count per user, maintained incrementally alongside the mentions table
+ */
+@Entity
+@Table(name = "mention_counters")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MentionCounter {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Builder.Default
+    @Column(name = "unread_count", nullable = false)
+    private Integer unreadCount = 0;
+}
@@ -5,13 +5,18 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+    @Index(name = "idx_messages_conversation_seq", columnList = "conversation_id, seq")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -29,6 +34,19 @@ public class Message {
     @Column(nullable = false)
     private Long senderId;
 
+    // Private chats only: owning conversation, the other participant and the per-conversation sequence
+    @Column(name = "conversation_id")
+    private Long conversationId;
+
+    @Column(name = "recipient_id")
+    private Long recipientId;
+
+    private Long seq;
+
+    // Client-generated ID used to deduplicate retried sends
+    @Column(name = "client_message_id", length = 64)
+    private String clientMessageId;
+
     @Column(nullable = false, length = 2000)
     private String content;
 
@@ -53,16 +71,21 @@ public class Message {
     @Column(nullable = false)
     private Boolean isDeleted = false;
 
+    // Matched a "flag" moderation term; delivered as usual but kept for review
+    @Builder.Default
+    @Column(nullable = false)
+    private Boolean isFlagged = false;
+
     @Builder.Default
     @Column(nullable = false)
     private Boolean isRead = false;
 
     private LocalDateTime readAt;
 
-    @ElementCollection
-    @CollectionTable(name = "message_mentions", joinColumns = @JoinColumn(name = "message_id"))
-    @Column(name = "mentioned_user_id")
-    private java.util.List<Long> mentionedUserIds;
+    // Packed into the message row (Postgres bigint[], GIN indexed) so mentions load with the message itself
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "mentioned_user_ids", columnDefinition = "bigint[]")
+    private List<Long> mentionedUserIds;
 
     @CreatedDate
     @Column(nullable = false, updatable = false)
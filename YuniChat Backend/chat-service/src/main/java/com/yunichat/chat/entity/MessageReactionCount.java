@@ -0,0 +1,35 @@
+package com.yunichat.chat.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Materialized reaction count per message and emoji.
+ * Maintained by MessageReactionService on add/remove so summaries never scan message_reactions.
+ */
+@Entity
+@Table(name = "message_reaction_counts",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"message_id", "emoji"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageReactionCount {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "message_id", nullable = false)
+    private Long messageId;
+
+    @Column(nullable = false, length = 10)
+    private String emoji;
+
+    @Builder.Default
+    @Column(name = "reaction_count", nullable = false)
+    private Long reactionCount = 0L;
+}
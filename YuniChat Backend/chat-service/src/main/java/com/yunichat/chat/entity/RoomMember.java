@@ -13,6 +13,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "room_members", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"room_id", "user_id"})
+}, indexes = {
+    @Index(name = "idx_room_members_user_id", columnList = "user_id")
 })
 @Data
 @Builder
@@ -41,6 +43,11 @@ public class RoomMember {
 
     private LocalDateTime lastReadAt;
 
+    // Position in room_summaries.message_count up to which this member has read
+    @Builder.Default
+    @Column(nullable = false)
+    private Long readMessageCount = 0L;
+
     public enum MemberRole {
         OWNER,
         ADMIN,
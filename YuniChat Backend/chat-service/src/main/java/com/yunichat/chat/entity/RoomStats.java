@@ -0,0 +1,39 @@
+package com.yunichat.chat.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Checkpointed room counters. RoomActivityTracker counts in memory and adds its deltas here periodically.
+ */
+@Entity
+@Table(name = "room_stats")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomStats {
+
+    @Id
+    @Column(name = "room_id")
+    private String roomId;
+
+    @Builder.Default
+    @Column(name = "message_count", nullable = false)
+    private Long messageCount = 0L;
+
+    @Builder.Default
+    @Column(name = "member_count", nullable = false)
+    private Integer memberCount = 0;
+
+    @Column(name = "last_message_at")
+    private LocalDateTime lastMessageAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
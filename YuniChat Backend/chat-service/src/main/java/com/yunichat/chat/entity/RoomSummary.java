@@ -0,0 +1,43 @@
+package com.yunichat.chat.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Last message and message count of a room, one row per room. The inbox joins it with room_members,
+ * where each member's read_message_count turns the count into an unread count.
+ */
+@Entity
+@Table(name = "room_summaries")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomSummary {
+
+    @Id
+    @Column(name = "room_id")
+    private String roomId;
+
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(name = "last_message_preview", length = 200)
+    private String lastMessagePreview;
+
+    @Column(name = "last_sender_id")
+    private Long lastSenderId;
+
+    @Column(name = "last_activity_at", nullable = false)
+    private LocalDateTime lastActivityAt;
+
+    // Messages ever sent to the room; deletions do not lower it
+    @Builder.Default
+    @Column(name = "message_count", nullable = false)
+    private Long messageCount = 0L;
+}
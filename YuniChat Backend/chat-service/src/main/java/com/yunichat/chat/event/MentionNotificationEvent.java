@@ -0,0 +1,9 @@
+package com.yunichat.chat.event;
+
+import java.util.Map;
+
+/**
+ * Mention state changed for some users: an optional new-mention frame plus their current unread counts
+ */
+public record MentionNotificationEvent(Map<String, Object> notification, Map<Long, Integer> unreadCounts) {
+}
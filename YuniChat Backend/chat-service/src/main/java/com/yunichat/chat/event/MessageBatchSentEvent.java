@@ -0,0 +1,12 @@
+package com.yunichat.chat.event;
+
+import com.yunichat.chat.dto.MessageResponse;
+import com.yunichat.chat.entity.Message;
+
+import java.util.List;
+
+/**
+ * A batch of messages was stored in one transaction; messages and responses are index-aligned, in send order
+ */
+public record MessageBatchSentEvent(List<Message> messages, List<MessageResponse> responses) {
+}
@@ -0,0 +1,10 @@
+package com.yunichat.chat.event;
+
+import com.yunichat.chat.dto.MessageResponse;
+import com.yunichat.chat.entity.Message;
+
+/**
+ * A message was soft-deleted
+ */
+public record MessageDeletedEvent(Message message, MessageResponse response) {
+}
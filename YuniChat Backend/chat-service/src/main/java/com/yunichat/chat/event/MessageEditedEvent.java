@@ -0,0 +1,10 @@
+package com.yunichat.chat.event;
+
+import com.yunichat.chat.dto.MessageResponse;
+import com.yunichat.chat.entity.Message;
+
+/**
+ * A message's content was edited
+ */
+public record MessageEditedEvent(Message message, MessageResponse response) {
+}
@@ -0,0 +1,11 @@
+package com.yunichat.chat.event;
+
+import com.yunichat.chat.dto.MessageResponse;
+
+import java.util.List;
+
+/**
+ * Messages were marked read by their recipient; each receipt goes back to its sender
+ */
+public record MessagesReadEvent(Long readerId, String roomId, List<MessageResponse> receipts) {
+}
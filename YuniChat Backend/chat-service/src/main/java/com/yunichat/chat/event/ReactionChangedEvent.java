@@ -0,0 +1,9 @@
+package com.yunichat.chat.event;
+
+import com.yunichat.chat.entity.Message;
+
+/**
+ * A reaction was added or removed; payload is the frame already sent to clients for that change
+ */
+public record ReactionChangedEvent(Message message, Long userId, String emoji, boolean added, Object payload) {
+}
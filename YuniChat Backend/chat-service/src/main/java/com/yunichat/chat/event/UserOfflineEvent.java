@@ -0,0 +1,7 @@
+package com.yunichat.chat.event;
+
+/**
+ * A user's last WebSocket session on this instance closed
+ */
+public record UserOfflineEvent(Long userId) {
+}
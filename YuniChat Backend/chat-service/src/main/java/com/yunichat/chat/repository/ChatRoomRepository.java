@@ -3,8 +3,10 @@ package com.yunichat.chat.repository;
 import com.yunichat.chat.entity.ChatRoom;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +15,8 @@ public interface ChatRoomRepository extends JpaRepository<ChatRoom, Long> {
     
     Optional<ChatRoom> findByRoomId(String roomId);
     
+    List<ChatRoom> findByRoomIdIn(Collection<String> roomIds);
+    
     List<ChatRoom> findByType(ChatRoom.RoomType type);
     
     @Query("SELECT r FROM ChatRoom r WHERE r.isActive = true AND r.type = 'PUBLIC'")
@@ -20,5 +24,13 @@ public interface ChatRoomRepository extends JpaRepository<ChatRoom, Long> {
     
     List<ChatRoom> findByCreatedBy(Long userId);
     
+    // All rooms of a member in one join instead of one lookup per membership
+    @Query("SELECT r FROM ChatRoom r JOIN RoomMember m ON m.roomId = r.roomId WHERE m.userId = :userId")
+    List<ChatRoom> findRoomsByMemberId(@Param("userId") Long userId);
+    
     boolean existsByRoomId(String roomId);
+    
+    // Which of the given room IDs exist, without loading the rooms
+    @Query("SELECT r.roomId FROM ChatRoom r WHERE r.roomId IN :roomIds")
+    List<String> findExistingRoomIds(@Param("roomIds") Collection<String> roomIds);
 }
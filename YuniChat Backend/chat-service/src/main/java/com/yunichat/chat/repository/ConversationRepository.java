@@ -0,0 +1,32 @@
+package com.yunichat.chat.repository;
+
+import com.yunichat.chat.entity.Conversation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+
+    Optional<Conversation> findByUserLowIdAndUserHighId(Long userLowId, Long userHighId);
+
+    // Race-free creation: concurrent first messages between the same pair resolve to one row
+    @Modifying
+    @Query(value = "INSERT INTO conversations (user_low_id, user_high_id, last_seq, created_at) " +
+            "VALUES (:userLowId, :userHighId, 0, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (user_low_id, user_high_id) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("userLowId") Long userLowId, @Param("userHighId") Long userHighId);
+
+    // Takes the row lock, so sequence numbers are gap-free per conversation
+    @Modifying
+    @Query("UPDATE Conversation c SET c.lastSeq = c.lastSeq + :count WHERE c.id = :id")
+    int incrementSeq(@Param("id") Long id, @Param("count") long count);
+
+    @Query("SELECT c.lastSeq FROM Conversation c WHERE c.id = :id")
+    Long findLastSeq(@Param("id") Long id);
+}
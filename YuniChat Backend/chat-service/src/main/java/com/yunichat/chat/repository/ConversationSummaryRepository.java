@@ -0,0 +1,91 @@
+package com.yunichat.chat.repository;
+
+import com.yunichat.chat.entity.ConversationSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, Long> {
+
+    String PRIVATE_INBOX = "SELECT c.room_id AS room_id, c.peer_user_id AS peer_user_id, c.last_message_id AS last_message_id, " +
+            "c.last_message_preview AS last_message_preview, c.last_sender_id AS last_sender_id, " +
+            "c.last_activity_at AS last_activity_at, c.unread_count AS unread_count " +
+            "FROM conversation_summaries c WHERE c.user_id = :userId";
+
+    // Room rows are shared by all members; the member's read position turns the room's count into unread
+    String ROOM_INBOX = "SELECT r.room_id, NULL, r.last_message_id, r.last_message_preview, r.last_sender_id, r.last_activity_at, " +
+            "CAST(GREATEST(r.message_count - m.read_message_count, 0) AS INTEGER) " +
+            "FROM room_members m JOIN room_summaries r ON r.room_id = m.room_id WHERE m.user_id = :userId";
+
+    String INBOX_COLUMNS = "SELECT i.room_id AS \"roomId\", i.peer_user_id AS \"peerUserId\", i.last_message_id AS \"lastMessageId\", " +
+            "i.last_message_preview AS \"lastMessagePreview\", i.last_sender_id AS \"lastSenderId\", " +
+            "i.last_activity_at AS \"lastActivityAt\", i.unread_count AS \"unreadCount\" ";
+
+    // Inbox first page, newest activity first: private chats and the rooms the user belongs to
+    @Query(value = INBOX_COLUMNS + "FROM (" + PRIVATE_INBOX + " UNION ALL " + ROOM_INBOX + ") i " +
+            "ORDER BY i.last_activity_at DESC, i.room_id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<InboxEntryView> findInbox(@Param("userId") Long userId, @Param("limit") int limit);
+
+    // Inbox keyset page strictly after (lastActivityAt, roomId)
+    @Query(value = INBOX_COLUMNS + "FROM (" + PRIVATE_INBOX + " UNION ALL " + ROOM_INBOX + ") i " +
+            "WHERE i.last_activity_at < :lastActivityAt OR (i.last_activity_at = :lastActivityAt AND i.room_id < :roomId) " +
+            "ORDER BY i.last_activity_at DESC, i.room_id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<InboxEntryView> findInboxAfter(@Param("userId") Long userId,
+                                        @Param("lastActivityAt") LocalDateTime lastActivityAt,
+                                        @Param("roomId") String roomId,
+                                        @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "INSERT INTO conversation_summaries (user_id, room_id, peer_user_id, last_message_id, last_message_preview, last_sender_id, last_activity_at, unread_count) " +
+            "VALUES (:userId, :roomId, :peerUserId, :messageId, :preview, :senderId, :activityAt, :unreadIncrement) " +
+            "ON CONFLICT (user_id, room_id) DO UPDATE SET last_message_id = EXCLUDED.last_message_id, " +
+            "last_message_preview = EXCLUDED.last_message_preview, last_sender_id = EXCLUDED.last_sender_id, " +
+            "last_activity_at = EXCLUDED.last_activity_at, unread_count = conversation_summaries.unread_count + EXCLUDED.unread_count",
+            nativeQuery = true)
+    int upsertForUser(@Param("userId") Long userId,
+                      @Param("roomId") String roomId,
+                      @Param("peerUserId") Long peerUserId,
+                      @Param("messageId") Long messageId,
+                      @Param("preview") String preview,
+                      @Param("senderId") Long senderId,
+                      @Param("activityAt") LocalDateTime activityAt,
+                      @Param("unreadIncrement") int unreadIncrement);
+
+    @Modifying
+    @Query("UPDATE ConversationSummary c SET c.unreadCount = 0 WHERE c.userId = :userId AND c.roomId = :roomId")
+    int resetUnread(@Param("userId") Long userId, @Param("roomId") String roomId);
+
+    @Modifying
+    @Query("UPDATE ConversationSummary c SET c.unreadCount = c.unreadCount - 1 WHERE c.userId = :userId AND c.roomId = :roomId AND c.unreadCount > 0")
+    int decrementUnread(@Param("userId") Long userId, @Param("roomId") String roomId);
+
+    // Point summaries at the newest remaining message after their last message was deleted
+    @Modifying
+    @Query(value = "UPDATE conversation_summaries cs SET last_message_id = m.id, last_message_preview = LEFT(m.content, 200), last_sender_id = m.sender_id " +
+            "FROM (SELECT id, content, sender_id FROM messages WHERE room_id = :roomId AND is_deleted = false ORDER BY id DESC LIMIT 1) m " +
+            "WHERE cs.room_id = :roomId AND cs.last_message_id = :deletedMessageId",
+            nativeQuery = true)
+    int replaceDeletedLastMessage(@Param("roomId") String roomId, @Param("deletedMessageId") Long deletedMessageId);
+
+    @Modifying
+    @Query("UPDATE ConversationSummary c SET c.lastMessagePreview = :preview WHERE c.roomId = :roomId AND c.lastMessageId = :messageId")
+    int updatePreview(@Param("roomId") String roomId, @Param("messageId") Long messageId, @Param("preview") String preview);
+
+    interface InboxEntryView {
+        String getRoomId();
+        Long getPeerUserId();
+        Long getLastMessageId();
+        String getLastMessagePreview();
+        Long getLastSenderId();
+        LocalDateTime getLastActivityAt();
+        Integer getUnreadCount();
+    }
+}
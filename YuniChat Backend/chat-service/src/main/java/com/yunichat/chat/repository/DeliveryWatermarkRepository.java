@@ -0,0 +1,26 @@
+package com.yunichat.chat.repository;
+
+import com.yunichat.chat.entity.DeliveryWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DeliveryWatermarkRepository extends JpaRepository<DeliveryWatermark, Long> {
+
+    Optional<DeliveryWatermark> findByConversationIdAndUserId(Long conversationId, Long userId);
+
+    // GREATEST keeps the watermark monotonic when flushes from several instances interleave
+    @Modifying
+    @Query(value = "INSERT INTO delivery_watermarks (conversation_id, user_id, delivered_seq, updated_at) " +
+            "VALUES (:conversationId, :userId, :seq, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (conversation_id, user_id) DO UPDATE SET " +
+            "delivered_seq = GREATEST(delivery_watermarks.delivered_seq, EXCLUDED.delivered_seq), " +
+            "updated_at = EXCLUDED.updated_at",
+            nativeQuery = true)
+    int advance(@Param("conversationId") Long conversationId, @Param("userId") Long userId, @Param("seq") long seq);
+}
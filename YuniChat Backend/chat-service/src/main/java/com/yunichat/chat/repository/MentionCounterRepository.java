@@ -0,0 +1,32 @@
+package com.yunichat.chat.repository;
+
+import com.yunichat.chat.entity.MentionCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MentionCounterRepository extends JpaRepository<MentionCounter, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO mention_counters (user_id, unread_count) VALUES (:userId, :delta) " +
+            "ON CONFLICT (user_id) DO UPDATE SET unread_count = mention_counters.unread_count + EXCLUDED.unread_count",
+            nativeQuery = true)
+    int increment(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE MentionCounter c SET c.unreadCount = CASE WHEN c.unreadCount > :delta THEN c.unreadCount - :delta ELSE 0 END " +
+            "WHERE c.userId = :userId")
+    int decrement(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE MentionCounter c SET c.unreadCount = 0 WHERE c.userId = :userId")
+    int reset(@Param("userId") Long userId);
+
+    List<MentionCounter> findByUserIdIn(Collection<Long> userIds);
+}
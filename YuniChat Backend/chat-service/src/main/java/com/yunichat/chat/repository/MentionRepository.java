@@ -0,0 +1,49 @@
+package com.yunichat.chat.repository;
+
+import com.yunichat.chat.entity.Mention;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MentionRepository extends JpaRepository<Mention, Long> {
+
+    // Mentions first page, newest first
+    @Query("SELECT m FROM Mention m WHERE m.userId = :userId ORDER BY m.createdAt DESC, m.id DESC")
+    List<Mention> findInbox(@Param("userId") Long userId, Pageable pageable);
+
+    // Mentions keyset page strictly after (createdAt, id)
+    @Query("SELECT m FROM Mention m WHERE m.userId = :userId " +
+            "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+            "ORDER BY m.createdAt DESC, m.id DESC")
+    List<Mention> findInboxAfter(@Param("userId") Long userId,
+                                 @Param("createdAt") LocalDateTime createdAt,
+                                 @Param("id") Long id,
+                                 Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Mention m SET m.isRead = true WHERE m.id = :id AND m.userId = :userId AND m.isRead = false")
+    int markRead(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE Mention m SET m.isRead = true WHERE m.userId = :userId AND m.isRead = false")
+    int markAllRead(@Param("userId") Long userId);
+
+    // Reading a conversation clears the mentions it contains
+    @Modifying
+    @Query("UPDATE Mention m SET m.isRead = true WHERE m.userId = :userId AND m.roomId = :roomId AND m.isRead = false")
+    int markRoomRead(@Param("userId") Long userId, @Param("roomId") String roomId);
+
+    List<Mention> findByMessageIdIn(Collection<Long> messageIds);
+
+    @Modifying
+    @Query("DELETE FROM Mention m WHERE m.messageId IN :messageIds")
+    int deleteByMessageIds(@Param("messageIds") Collection<Long> messageIds);
+}
@@ -0,0 +1,42 @@
+package com.yunichat.chat.repository;
+
+import com.yunichat.chat.entity.MessageReactionCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MessageReactionCountRepository extends JpaRepository<MessageReactionCount, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO message_reaction_counts (message_id, emoji, reaction_count) VALUES (:messageId, :emoji, 1) " +
+            "ON CONFLICT (message_id, emoji) DO UPDATE SET reaction_count = message_reaction_counts.reaction_count + 1",
+            nativeQuery = true)
+    int increment(@Param("messageId") Long messageId, @Param("emoji") String emoji);
+
+    @Modifying
+    @Query(value = "UPDATE message_reaction_counts SET reaction_count = reaction_count - 1 " +
+            "WHERE message_id = :messageId AND emoji = :emoji AND reaction_count > 0",
+            nativeQuery = true)
+    int decrement(@Param("messageId") Long messageId, @Param("emoji") String emoji);
+
+    // Counts plus the caller's "did I react" flag for a whole page of messages in one round-trip
+    @Query(value = "SELECT c.message_id AS \"messageId\", c.emoji AS \"emoji\", c.reaction_count AS \"reactionCount\", " +
+            "EXISTS (SELECT 1 FROM message_reactions r WHERE r.message_id = c.message_id AND r.emoji = c.emoji AND r.user_id = :userId) AS \"userReacted\" " +
+            "FROM message_reaction_counts c WHERE c.message_id IN (:messageIds) AND c.reaction_count > 0 " +
+            "ORDER BY c.message_id, c.id",
+            nativeQuery = true)
+    List<ReactionSummaryView> findSummaries(@Param("messageIds") Collection<Long> messageIds, @Param("userId") Long userId);
+
+    interface ReactionSummaryView {
+        Long getMessageId();
+        String getEmoji();
+        Long getReactionCount();
+        Boolean getUserReacted();
+    }
+}
@@ -4,12 +4,14 @@ import com.yunichat.chat.entity.MessageReaction;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface MessageReactionRepository extends JpaRepository<MessageReaction, Long> {
     List<MessageReaction> findByMessageId(Long messageId);
+    List<MessageReaction> findByMessageIdIn(Collection<Long> messageIds);
     Optional<MessageReaction> findByMessageIdAndUserIdAndEmoji(Long messageId, Long userId, String emoji);
     void deleteByMessageIdAndUserIdAndEmoji(Long messageId, Long userId, String emoji);
     long countByMessageIdAndEmoji(Long messageId, String emoji);
@@ -26,13 +26,18 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     
     List<Message> findBySenderIdAndRoomId(Long senderId, String roomId);
     
-    @Query("SELECT m FROM Message m WHERE (m.roomId = :roomId1 OR m.roomId = :roomId2) AND m.isDeleted = false ORDER BY m.createdAt ASC")
-    List<Message> findPrivateMessages(String roomId1, String roomId2);
+    // Private chat history in conversation order, served by idx_messages_conversation_seq
+    @Query("SELECT m FROM Message m WHERE m.conversationId = :conversationId AND m.isDeleted = false ORDER BY m.seq ASC")
+    List<Message> findPrivateMessages(@Param("conversationId") Long conversationId);
     
     // New query for finding old messages to cleanup
     @Query("SELECT m FROM Message m WHERE m.roomId = :roomId AND m.createdAt < :cutoffTime")
     List<Message> findByRoomIdAndCreatedAtBefore(@Param("roomId") String roomId, @Param("cutoffTime") LocalDateTime cutoffTime);
     
+    // Newest messages since a cutoff, deleted ones included (the lobby shows them as tombstones)
+    @Query("SELECT m FROM Message m WHERE m.roomId = :roomId AND m.createdAt > :cutoffTime ORDER BY m.createdAt DESC")
+    List<Message> findRecentSince(@Param("roomId") String roomId, @Param("cutoffTime") LocalDateTime cutoffTime, Pageable pageable);
+    
     // Query for paginated messages with time filter
     @Query("SELECT m FROM Message m WHERE m.roomId = :roomId AND m.createdAt > :cutoffTime AND m.isDeleted = false ORDER BY m.createdAt DESC")
     Page<Message> findByRoomIdAndCreatedAtAfterAndIsDeletedFalse(@Param("roomId") String roomId, @Param("cutoffTime") LocalDateTime cutoffTime, Pageable pageable);
@@ -43,4 +48,8 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     
     // Find specific message by ID and room
     Optional<Message> findByIdAndRoomId(Long id, String roomId);
+    
+    // Keyset batch used to rebuild the search index from the database
+    @Query("SELECT m FROM Message m WHERE m.id > :afterId AND m.roomId <> 'public' AND m.isDeleted = false ORDER BY m.id ASC")
+    List<Message> findIndexableAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
@@ -2,9 +2,12 @@ package com.yunichat.chat.repository;
 
 import com.yunichat.chat.entity.RoomMember;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,4 +29,29 @@ public interface RoomMemberRepository extends JpaRepository<RoomMember, Long> {
     
     @Query("SELECT rm.userId FROM RoomMember rm WHERE rm.roomId = :roomId")
     List<Long> findUserIdsByRoomId(String roomId);
+    
+    // Member counts for a page of rooms in one grouped query
+    @Query("SELECT rm.roomId AS roomId, COUNT(rm) AS memberCount FROM RoomMember rm WHERE rm.roomId IN :roomIds GROUP BY rm.roomId")
+    List<RoomMemberCount> countMembersByRoomIds(@Param("roomIds") Collection<String> roomIds);
+    
+    // Everything sent to the room so far counts as read; also how a new member starts
+    @Modifying
+    @Query(value = "UPDATE room_members SET read_message_count = " +
+            "COALESCE((SELECT message_count FROM room_summaries WHERE room_id = :roomId), 0) " +
+            "WHERE room_id = :roomId AND user_id = :userId",
+            nativeQuery = true)
+    int markAllRead(@Param("roomId") String roomId, @Param("userId") Long userId);
+    
+    // Capped at the room's count so a member can never end up with a negative unread count
+    @Modifying
+    @Query(value = "UPDATE room_members SET read_message_count = LEAST(read_message_count + :count, " +
+            "COALESCE((SELECT message_count FROM room_summaries WHERE room_id = :roomId), 0)) " +
+            "WHERE room_id = :roomId AND user_id = :userId",
+            nativeQuery = true)
+    int advanceRead(@Param("roomId") String roomId, @Param("userId") Long userId, @Param("count") int count);
+    
+    interface RoomMemberCount {
+        String getRoomId();
+        Long getMemberCount();
+    }
 }
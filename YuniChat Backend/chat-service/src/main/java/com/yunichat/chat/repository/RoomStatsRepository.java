@@ -0,0 +1,29 @@
+package com.yunichat.chat.repository;
+
+import com.yunichat.chat.entity.RoomStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface RoomStatsRepository extends JpaRepository<RoomStats, String> {
+
+    // Deltas rather than totals, so checkpoints from several instances add up instead of overwriting each other
+    @Modifying
+    @Query(value = "INSERT INTO room_stats (room_id, message_count, member_count, last_message_at, updated_at) " +
+            "VALUES (:roomId, :messageDelta, :memberDelta, :lastMessageAt, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (room_id) DO UPDATE SET " +
+            "message_count = room_stats.message_count + EXCLUDED.message_count, " +
+            "member_count = room_stats.member_count + EXCLUDED.member_count, " +
+            "last_message_at = GREATEST(room_stats.last_message_at, EXCLUDED.last_message_at), " +
+            "updated_at = EXCLUDED.updated_at",
+            nativeQuery = true)
+    int addDeltas(@Param("roomId") String roomId,
+                  @Param("messageDelta") long messageDelta,
+                  @Param("memberDelta") int memberDelta,
+                  @Param("lastMessageAt") LocalDateTime lastMessageAt);
+}
@@ -0,0 +1,41 @@
+package com.yunichat.chat.repository;
+
+import com.yunichat.chat.entity.RoomSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface RoomSummaryRepository extends JpaRepository<RoomSummary, String> {
+
+    // One row per room whatever its size; members' unread counts are derived from message_count when read
+    @Modifying
+    @Query(value = "INSERT INTO room_summaries (room_id, last_message_id, last_message_preview, last_sender_id, last_activity_at, message_count) " +
+            "VALUES (:roomId, :messageId, :preview, :senderId, :activityAt, :messageIncrement) " +
+            "ON CONFLICT (room_id) DO UPDATE SET last_message_id = EXCLUDED.last_message_id, " +
+            "last_message_preview = EXCLUDED.last_message_preview, last_sender_id = EXCLUDED.last_sender_id, " +
+            "last_activity_at = EXCLUDED.last_activity_at, message_count = room_summaries.message_count + EXCLUDED.message_count",
+            nativeQuery = true)
+    int upsert(@Param("roomId") String roomId,
+               @Param("messageId") Long messageId,
+               @Param("preview") String preview,
+               @Param("senderId") Long senderId,
+               @Param("activityAt") LocalDateTime activityAt,
+               @Param("messageIncrement") int messageIncrement);
+
+    // Point the summary at the newest remaining message after its last message was deleted
+    @Modifying
+    @Query(value = "UPDATE room_summaries rs SET last_message_id = m.id, last_message_preview = LEFT(m.content, 200), last_sender_id = m.sender_id " +
+            "FROM (SELECT id, content, sender_id FROM messages WHERE room_id = :roomId AND is_deleted = false ORDER BY id DESC LIMIT 1) m " +
+            "WHERE rs.room_id = :roomId AND rs.last_message_id = :deletedMessageId",
+            nativeQuery = true)
+    int replaceDeletedLastMessage(@Param("roomId") String roomId, @Param("deletedMessageId") Long deletedMessageId);
+
+    @Modifying
+    @Query("UPDATE RoomSummary r SET r.lastMessagePreview = :preview WHERE r.roomId = :roomId AND r.lastMessageId = :messageId")
+    int updatePreview(@Param("roomId") String roomId, @Param("messageId") Long messageId, @Param("preview") String preview);
+}
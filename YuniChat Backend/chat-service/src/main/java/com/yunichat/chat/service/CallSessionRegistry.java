@@ -0,0 +1,177 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.dto.CallSignalResponse;
+import com.yunichat.chat.event.UserOfflineEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Active one-to-one calls, indexed by both participants.
+ * Offers to offline or busy users are refused here before anything reaches the callee;
+ * unanswered calls time out, and a call is torn down when either participant goes offline.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CallSessionRegistry {
+
+    public enum OfferResult { STARTED, CALLEE_OFFLINE, CALLEE_BUSY }
+
+    private final WebSocketPresenceService presenceService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${chat.calls.ring-timeout-seconds:45}")
+    private long ringTimeoutSeconds;
+
+    // userId -> the call they are in; both participants map to the same session. Guarded by this
+    private final Map<Long, CallSession> callsByUser = new HashMap<>();
+
+    /**
+     * Register a call for an offer. A repeated offer between the same pair (renegotiation, glare) reuses the call;
+     * a caller already in a call with someone else hangs that call up first.
+     */
+    public OfferResult offer(Long callerId, Long calleeId, String callType) {
+        CallSession replaced = null;
+        synchronized (this) {
+            CallSession existing = callsByUser.get(callerId);
+            if (existing != null && existing.involves(calleeId)) {
+                return OfferResult.STARTED;
+            }
+            if (!presenceService.isUserOnline(calleeId)) {
+                return OfferResult.CALLEE_OFFLINE;
+            }
+            if (callsByUser.containsKey(calleeId)) {
+                return OfferResult.CALLEE_BUSY;
+            }
+            if (existing != null) {
+                remove(existing);
+                replaced = existing;
+            }
+            CallSession session = new CallSession(callerId, calleeId, callType, System.currentTimeMillis());
+            callsByUser.put(callerId, session);
+            callsByUser.put(calleeId, session);
+        }
+        if (replaced != null) {
+            sendEnd(replaced.peerOf(callerId), callerId, "CALLER_STARTED_NEW_CALL");
+        }
+        return OfferResult.STARTED;
+    }
+
+    /**
+     * Mark the call between the pair answered; false when there is no such call (already ended or timed out)
+     */
+    public synchronized boolean answer(Long userId, Long peerId) {
+        CallSession session = callsByUser.get(userId);
+        if (session == null || !session.involves(peerId)) {
+            return false;
+        }
+        session.answered = true;
+        return true;
+    }
+
+    public synchronized boolean isInCall(Long userId, Long peerId) {
+        CallSession session = callsByUser.get(userId);
+        return session != null && session.involves(peerId);
+    }
+
+    /**
+     * End the call between the pair (hang-up, reject, busy); false when there was none
+     */
+    public synchronized boolean end(Long userId, Long peerId) {
+        CallSession session = callsByUser.get(userId);
+        if (session == null || !session.involves(peerId)) {
+            return false;
+        }
+        remove(session);
+        return true;
+    }
+
+    public synchronized int getActiveCallCount() {
+        return callsByUser.size() / 2;
+    }
+
+    @EventListener
+    public void onUserOffline(UserOfflineEvent event) {
+        CallSession session;
+        synchronized (this) {
+            session = callsByUser.get(event.userId());
+            if (session == null) {
+                return;
+            }
+            remove(session);
+        }
+        log.info("Ending call between {} and {}: user {} went offline", session.callerId, session.calleeId, event.userId());
+        sendEnd(session.peerOf(event.userId()), event.userId(), "PEER_OFFLINE");
+    }
+
+    @Scheduled(fixedDelayString = "${chat.calls.sweep-interval-ms:5000}")
+    public void expireUnansweredCalls() {
+        long cutoff = System.currentTimeMillis() - ringTimeoutSeconds * 1000;
+        List<CallSession> expired = new ArrayList<>();
+        synchronized (this) {
+            // Each call is indexed twice; visit it once through its caller's entry
+            for (Map.Entry<Long, CallSession> entry : callsByUser.entrySet()) {
+                CallSession session = entry.getValue();
+                if (entry.getKey().equals(session.callerId) && !session.answered && session.startedAt < cutoff) {
+                    expired.add(session);
+                }
+            }
+            expired.forEach(this::remove);
+        }
+        for (CallSession session : expired) {
+            log.info("{} call from {} to {} was not answered within {}s",
+                    session.callType, session.callerId, session.calleeId, ringTimeoutSeconds);
+            sendEnd(session.callerId, session.calleeId, "TIMEOUT");
+            sendEnd(session.calleeId, session.callerId, "TIMEOUT");
+        }
+    }
+
+    private void remove(CallSession session) {
+        callsByUser.remove(session.callerId, session);
+        callsByUser.remove(session.calleeId, session);
+    }
+
+    private void sendEnd(Long recipientId, Long peerId, String reason) {
+        CallSignalResponse response = CallSignalResponse.builder()
+                .type("CALL_END")
+                .callerId(peerId)
+                .calleeId(recipientId)
+                .reason(reason)
+                .timestamp(System.currentTimeMillis())
+                .build();
+        messagingTemplate.convertAndSendToUser(recipientId.toString(), "/queue/call-signal", response);
+    }
+
+    private static final class CallSession {
+        private final Long callerId;
+        private final Long calleeId;
+        private final String callType;
+        private final long startedAt;
+        private boolean answered;
+
+        private CallSession(Long callerId, Long calleeId, String callType, long startedAt) {
+            this.callerId = callerId;
+            this.calleeId = calleeId;
+            this.callType = callType;
+            this.startedAt = startedAt;
+        }
+
+        private boolean involves(Long userId) {
+            return callerId.equals(userId) || calleeId.equals(userId);
+        }
+
+        private Long peerOf(Long userId) {
+            return callerId.equals(userId) ? calleeId : callerId;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.yunichat.chat.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunichat.chat.dto.MessageResponse;
+import com.yunichat.chat.entity.Message;
+import com.yunichat.chat.event.MessageBatchSentEvent;
+import com.yunichat.chat.event.MessageDeletedEvent;
+import com.yunichat.chat.event.MessageEditedEvent;
+import com.yunichat.chat.event.MessageSentEvent;
+import com.yunichat.chat.event.MessagesReadEvent;
+import com.yunichat.chat.event.ReactionChangedEvent;
+import com.yunichat.chat.util.OrderedExecutor;
+import com.yunichat.common.dto.ChatEventDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Publishes committed chat changes to the Kafka event log, keyed by roomId so each room's
+ * events stay ordered within one partition.
+ * Sends run on their own ordered lanes and the producer batches them (linger.ms), so neither the
+ * STOMP inbound thread, a database connection nor message delivery ever waits on the broker.
+ * While the broker is down the lanes back up; past max-pending-events further events are dropped
+ * and counted as failures rather than blocking the committing thread.
+ */
+@Service
+@ConditionalOnProperty(name = "chat.events.kafka.enabled", havingValue = "true")
+@Slf4j
+public class ChatEventPublisher {
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final OrderedExecutor chatEventPublishExecutor;
+    private final Counter publishFailures;
+
+    @Value("${chat.events.kafka.topic:" + ChatEventDTO.TOPIC + "}")
+    private String topic;
+
+    @Value("${chat.events.kafka.max-pending-events:8000}")
+    private int maxPendingEvents;
+
+    public ChatEventPublisher(KafkaTemplate<String, String> kafkaTemplate,
+                              ObjectMapper objectMapper,
+                              OrderedExecutor chatEventPublishExecutor,
+                              MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.chatEventPublishExecutor = chatEventPublishExecutor;
+        this.publishFailures = Counter.builder("chat.events.publish.failures")
+                .description("Chat events the Kafka producer failed to deliver")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener
+    public void onMessageSent(MessageSentEvent event) {
+        publish(messageEvent(ChatEventDTO.Type.MESSAGE_CREATED, event.message(), event.response()));
+    }
+
+    @TransactionalEventListener
+    public void onMessageBatchSent(MessageBatchSentEvent event) {
+        for (int i = 0; i < event.messages().size(); i++) {
+            publish(messageEvent(ChatEventDTO.Type.MESSAGE_CREATED, event.messages().get(i), event.responses().get(i)));
+        }
+    }
+
+    @TransactionalEventListener
+    public void onMessageEdited(MessageEditedEvent event) {
+        publish(messageEvent(ChatEventDTO.Type.MESSAGE_EDITED, event.message(), event.response()));
+    }
+
+    @TransactionalEventListener
+    public void onMessageDeleted(MessageDeletedEvent event) {
+        publish(messageEvent(ChatEventDTO.Type.MESSAGE_DELETED, event.message(), event.response()));
+    }
+
+    @TransactionalEventListener
+    public void onMessagesRead(MessagesReadEvent event) {
+        publish(ChatEventDTO.builder()
+                .eventId(UUID.randomUUID().toString())
+                .type(ChatEventDTO.Type.MESSAGES_READ)
+                .roomId(event.roomId())
+                .actorId(event.readerId())
+                .messageIds(event.receipts().stream().map(MessageResponse::getId).toList())
+                .occurredAt(LocalDateTime.now().toString())
+                .build());
+    }
+
+    @TransactionalEventListener
+    public void onReactionChanged(ReactionChangedEvent event) {
+        Message message = event.message();
+        publish(ChatEventDTO.builder()
+                .eventId(UUID.randomUUID().toString())
+                .type(event.added() ? ChatEventDTO.Type.REACTION_ADDED : ChatEventDTO.Type.REACTION_REMOVED)
+                .roomId(message.getRoomId())
+                .messageId(message.getId())
+                .senderId(message.getSenderId())
+                .recipientId(message.getRecipientId())
+                .actorId(event.userId())
+                .emoji(event.emoji())
+                .occurredAt(LocalDateTime.now().toString())
+                .build());
+    }
+
+    private ChatEventDTO messageEvent(ChatEventDTO.Type type, Message message, MessageResponse response) {
+        return ChatEventDTO.builder()
+                .eventId(UUID.randomUUID().toString())
+                .type(type)
+                .roomId(message.getRoomId())
+                .messageId(message.getId())
+                .senderId(message.getSenderId())
+                .recipientId(message.getRecipientId())
+                .senderUsername(response.getSenderUsername())
+                .content(message.getContent())
+                .messageType(message.getType() != null ? message.getType().name() : null)
+                .seq(message.getSeq())
+                .mentionedUserIds(message.getMentionedUserIds())
+                .messageCreatedAt(message.getCreatedAt() != null ? message.getCreatedAt().toString() : null)
+                .occurredAt(LocalDateTime.now().toString())
+                .build();
+    }
+
+    private void publish(ChatEventDTO event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize chat event {} for room {}: {}", event.getType(), event.getRoomId(), e.getMessage());
+            return;
+        }
+        if (chatEventPublishExecutor.queuedTasks() >= maxPendingEvents) {
+            publishFailures.increment();
+            log.warn("Kafka publish backlog is full; dropping chat event {} for room {}", event.getType(), event.getRoomId());
+            return;
+        }
+
+        chatEventPublishExecutor.execute(event.getRoomId(), () ->
+                kafkaTemplate.send(topic, event.getRoomId(), payload).whenComplete((result, error) -> {
+                    if (error != null) {
+                        publishFailures.increment();
+                        log.error("Failed to publish chat event {} for room {}: {}", event.getType(), event.getRoomId(), error.getMessage());
+                    }
+                }));
+    }
+}
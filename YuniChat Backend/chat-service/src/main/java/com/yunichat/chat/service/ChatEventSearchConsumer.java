@@ -0,0 +1,60 @@
+package com.yunichat.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunichat.chat.entity.Message;
+import com.yunichat.common.dto.ChatEventDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Keeps this instance's search index current from the chat event log when Kafka is enabled.
+ * Every instance holds its own in-memory index, so each one reads the full topic in its own group.
+ * The group is named after the instance and stays the same across restarts, so a restarted instance
+ * resumes from its committed offsets instead of skipping what it missed; only a brand-new group starts
+ * at latest, its history coming from the database rebuild.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.events.kafka.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ChatEventSearchConsumer {
+
+    private final MessageSearchService messageSearchService;
+    private final ObjectMapper objectMapper;
+
+    @KafkaListener(
+            topics = "${chat.events.kafka.topic:" + ChatEventDTO.TOPIC + "}",
+            groupId = "chat-search-${chat.events.kafka.instance-id}",
+            properties = "auto.offset.reset=latest")
+    public void onChatEvent(String payload) {
+        try {
+            ChatEventDTO event = objectMapper.readValue(payload, ChatEventDTO.class);
+            switch (event.getType()) {
+                case MESSAGE_CREATED, MESSAGE_EDITED -> messageSearchService.indexMessage(toMessage(event));
+                case MESSAGE_DELETED -> messageSearchService.removeMessage(event.getMessageId());
+                default -> {
+                    // Reads and reactions do not affect the index
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to apply chat event to search index: {}", e.getMessage());
+        }
+    }
+
+    private Message toMessage(ChatEventDTO event) {
+        return Message.builder()
+                .id(event.getMessageId())
+                .roomId(event.getRoomId())
+                .senderId(event.getSenderId())
+                .recipientId(event.getRecipientId())
+                .content(event.getContent())
+                .isDeleted(false)
+                .createdAt(event.getMessageCreatedAt() != null ? LocalDateTime.parse(event.getMessageCreatedAt()) : null)
+                .build();
+    }
+}
@@ -2,6 +2,7 @@ package com.yunichat.chat.service;
 
 import com.yunichat.chat.dto.CreateRoomRequest;
 import com.yunichat.chat.dto.RoomResponse;
+import com.yunichat.chat.dto.TrendingRoomResponse;
 import com.yunichat.chat.entity.ChatRoom;
 import com.yunichat.chat.entity.RoomMember;
 import com.yunichat.chat.repository.ChatRoomRepository;
@@ -13,7 +14,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -24,6 +29,9 @@ public class ChatRoomService {
 
     private final ChatRoomRepository chatRoomRepository;
     private final RoomMemberRepository roomMemberRepository;
+    private final RoomMembershipCache membershipCache;
+    private final RoomActivityTracker activityTracker;
+    private final ConversationSummaryService conversationSummaryService;
 
     @Transactional
     public RoomResponse createRoom(CreateRoomRequest request, Long creatorId) {
@@ -47,6 +55,7 @@ public class ChatRoomService {
                 .role(RoomMember.MemberRole.OWNER)
                 .build();
         roomMemberRepository.save(owner);
+        List<Long> memberIds = new ArrayList<>(List.of(creatorId));
         
         // Add other members if provided
         if (request.getMemberIds() != null && !request.getMemberIds().isEmpty()) {
@@ -58,9 +67,12 @@ public class ChatRoomService {
                             .role(RoomMember.MemberRole.MEMBER)
                             .build();
                     roomMemberRepository.save(member);
+                    memberIds.add(memberId);
                 }
             }
         }
+        membershipCache.onRoomCreated(roomId, memberIds);
+        activityTracker.onRoomCreated(roomId, memberIds.size());
         
         log.info("Created chat room: {} by user: {}", roomId, creatorId);
         return mapToRoomResponse(room);
@@ -72,19 +84,66 @@ public class ChatRoomService {
         return mapToRoomResponse(room);
     }
 
+    /**
+     * Active public rooms, busiest first; member counts come from the activity counters rather than room_members
+     */
     public List<RoomResponse> getPublicRooms() {
-        return chatRoomRepository.findAllPublicRooms().stream()
-                .map(this::mapToRoomResponse)
+        List<ChatRoom> rooms = chatRoomRepository.findAllPublicRooms();
+        if (rooms.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<String, RoomActivityTracker.RoomSnapshot> stats = activityTracker.snapshots(
+                        rooms.stream().map(ChatRoom::getRoomId).toList()).stream()
+                .collect(Collectors.toMap(RoomActivityTracker.RoomSnapshot::roomId, Function.identity()));
+        
+        return rooms.stream()
+                .sorted(Comparator.comparingInt((ChatRoom room) -> stats.get(room.getRoomId()).messagesLast15())
+                        .thenComparingInt(room -> stats.get(room.getRoomId()).messagesLast60())
+                        .reversed()
+                        .thenComparing(ChatRoom::getName, String.CASE_INSENSITIVE_ORDER))
+                .map(room -> mapToRoomResponse(room, stats.get(room.getRoomId()).memberCount()))
                 .collect(Collectors.toList());
     }
+    
+    /**
+     * Public rooms ranked by recent message rate, served from the in-memory counters
+     */
+    public List<TrendingRoomResponse> getTrendingRooms(int limit) {
+        List<RoomActivityTracker.RoomSnapshot> ranked = activityTracker.trending(
+                roomId -> membershipCache.isPublicRoom(roomId), limit);
+        if (ranked.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<String, ChatRoom> rooms = chatRoomRepository.findByRoomIdIn(
+                        ranked.stream().map(RoomActivityTracker.RoomSnapshot::roomId).toList()).stream()
+                .collect(Collectors.toMap(ChatRoom::getRoomId, Function.identity()));
+        
+        List<TrendingRoomResponse> trending = new ArrayList<>(ranked.size());
+        for (RoomActivityTracker.RoomSnapshot stats : ranked) {
+            ChatRoom room = rooms.get(stats.roomId());
+            if (room == null || !Boolean.TRUE.equals(room.getIsActive())) {
+                continue;
+            }
+            trending.add(TrendingRoomResponse.builder()
+                    .roomId(room.getRoomId())
+                    .name(room.getName())
+                    .description(room.getDescription())
+                    .memberCount(stats.memberCount())
+                    .activeMembers(stats.activeMembers())
+                    .messageCount(stats.messageCount())
+                    .messagesLastMinute(stats.messagesLastMinute())
+                    .messagesPerMinute5(stats.messagesLast5() / 5.0)
+                    .messagesPerMinute15(stats.messagesLast15() / 15.0)
+                    .messagesPerMinute60(stats.messagesLast60() / 60.0)
+                    .build());
+        }
+        return trending;
+    }
 
     public List<RoomResponse> getUserRooms(Long userId) {
-        List<RoomMember> memberships = roomMemberRepository.findByUserId(userId);
-        return memberships.stream()
-                .map(membership -> chatRoomRepository.findByRoomId(membership.getRoomId()))
-                .filter(opt -> opt.isPresent())
-                .map(opt -> mapToRoomResponse(opt.get()))
-                .collect(Collectors.toList());
+        return mapToRoomResponses(chatRoomRepository.findRoomsByMemberId(userId));
     }
 
     @Transactional
@@ -103,6 +162,9 @@ public class ChatRoomService {
                 .build();
         
         roomMemberRepository.save(member);
+        conversationSummaryService.onMemberJoined(roomId, userId);
+        membershipCache.onMemberJoined(roomId, userId);
+        activityTracker.onMemberJoined(roomId);
         log.info("User {} joined room {}", userId, roomId);
     }
 
@@ -113,20 +175,42 @@ public class ChatRoomService {
         }
         
         roomMemberRepository.deleteByRoomIdAndUserId(roomId, userId);
+        membershipCache.onMemberLeft(roomId, userId);
+        activityTracker.onMemberLeft(roomId);
         log.info("User {} left room {}", userId, roomId);
     }
 
     public List<Long> getRoomMembers(String roomId) {
-        return roomMemberRepository.findUserIdsByRoomId(roomId);
+        return new ArrayList<>(membershipCache.getMembers(roomId));
     }
 
     public boolean isMember(String roomId, Long userId) {
-        return roomMemberRepository.existsByRoomIdAndUserId(roomId, userId);
+        return membershipCache.isMember(roomId, userId);
     }
 
-    private RoomResponse mapToRoomResponse(ChatRoom room) {
-        int memberCount = roomMemberRepository.countMembersByRoomId(room.getRoomId());
+    /**
+     * Map a list of rooms with two queries in total, regardless of how many rooms there are
+     */
+    private List<RoomResponse> mapToRoomResponses(List<ChatRoom> rooms) {
+        if (rooms.isEmpty()) {
+            return List.of();
+        }
+        
+        List<String> roomIds = rooms.stream().map(ChatRoom::getRoomId).collect(Collectors.toList());
+        Map<String, Long> memberCounts = roomMemberRepository.countMembersByRoomIds(roomIds).stream()
+                .collect(Collectors.toMap(RoomMemberRepository.RoomMemberCount::getRoomId,
+                        RoomMemberRepository.RoomMemberCount::getMemberCount));
         
+        return rooms.stream()
+                .map(room -> mapToRoomResponse(room, memberCounts.getOrDefault(room.getRoomId(), 0L).intValue()))
+                .collect(Collectors.toList());
+    }
+
+    private RoomResponse mapToRoomResponse(ChatRoom room) {
+        return mapToRoomResponse(room, roomMemberRepository.countMembersByRoomId(room.getRoomId()));
+    }
+
+    private RoomResponse mapToRoomResponse(ChatRoom room, int memberCount) {
         return RoomResponse.builder()
                 .id(room.getId())
                 .roomId(room.getRoomId())
@@ -0,0 +1,182 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.config.ContentFilterProperties;
+import com.yunichat.chat.util.AhoCorasickMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Moderation stage for message content, run before a send or edit reaches its transaction.
+ * Terms compile into one Aho-Corasick automaton, so checking a message is a single pass whatever the list size.
+ * Reloading builds a new automaton beside the old one and publishes it with a volatile write; senders never
+ * wait on a reload and always see either the old list or the new one.
+ */
+@Component
+@Slf4j
+public class ContentFilter {
+
+    /**
+     * In increasing severity; a term listed under several actions keeps the most severe
+     */
+    public enum Action {
+        FLAG,
+        MASK,
+        REJECT
+    }
+
+    public record Result(String content, boolean rejected, boolean flagged) {
+    }
+
+    private final ContentFilterProperties properties;
+    private final Map<Action, Counter> matchCounters = new EnumMap<>(Action.class);
+
+    private volatile CompiledTerms compiled = CompiledTerms.EMPTY;
+    private volatile long termsFileModified = -1;
+
+    public ContentFilter(ContentFilterProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (Action action : Action.values()) {
+            matchCounters.put(action, Counter.builder("chat.content_filter.matches")
+                    .description("Messages that matched a moderation term, by the action taken")
+                    .tag("action", action.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    public Result apply(String content) {
+        CompiledTerms terms = compiled;
+        if (!properties.isEnabled() || content == null || content.isEmpty() || terms.actions.length == 0) {
+            return new Result(content, false, false);
+        }
+
+        boolean[] found = new boolean[Action.values().length];
+        boolean[] masked = new boolean[content.length()];
+        terms.matcher.match(content, properties.isWholeWords(), (term, start, end) -> {
+            Action action = terms.actions[term];
+            found[action.ordinal()] = true;
+            if (action == Action.MASK) {
+                for (int i = start; i < end; i++) {
+                    masked[i] = true;
+                }
+            }
+        });
+
+        if (found[Action.REJECT.ordinal()]) {
+            matchCounters.get(Action.REJECT).increment();
+            return new Result(content, true, false);
+        }
+        String filtered = content;
+        if (found[Action.MASK.ordinal()]) {
+            matchCounters.get(Action.MASK).increment();
+            filtered = mask(content, masked);
+        }
+        if (found[Action.FLAG.ordinal()]) {
+            matchCounters.get(Action.FLAG).increment();
+        }
+        return new Result(filtered, false, found[Action.FLAG.ordinal()]);
+    }
+
+    /**
+     * Rebuild the automaton from configuration and the terms file
+     */
+    public synchronized void reload() {
+        Map<String, Action> byTerm = new LinkedHashMap<>();
+        addEntries(byTerm, properties.getTerms());
+
+        Path file = termsFile();
+        if (file != null) {
+            try {
+                termsFileModified = Files.getLastModifiedTime(file).toMillis();
+                addEntries(byTerm, Files.readAllLines(file, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                // Keep serving the previous list rather than dropping moderation altogether
+                log.error("Could not read content filter terms from {}: {}", file, e.getMessage());
+                return;
+            }
+        }
+
+        List<String> termList = new ArrayList<>(byTerm.keySet());
+        long started = System.nanoTime();
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.build(termList);
+        compiled = new CompiledTerms(matcher, byTerm.values().toArray(new Action[0]));
+        log.info("Content filter loaded {} terms ({} automaton states) in {} ms",
+                termList.size(), matcher.stateCount(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.content-filter.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        Path file = termsFile();
+        if (file == null) {
+            return;
+        }
+        try {
+            if (Files.getLastModifiedTime(file).toMillis() != termsFileModified) {
+                reload();
+            }
+        } catch (IOException e) {
+            log.warn("Could not check content filter terms file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Path termsFile() {
+        String termsFile = properties.getTermsFile();
+        return termsFile == null || termsFile.isBlank() ? null : Path.of(termsFile);
+    }
+
+    private void addEntries(Map<String, Action> byTerm, List<String> entries) {
+        for (String entry : entries) {
+            String line = entry.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            Action action = properties.getDefaultAction();
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                try {
+                    action = Action.valueOf(line.substring(0, colon).strip().toUpperCase(Locale.ROOT));
+                    line = line.substring(colon + 1).strip();
+                } catch (IllegalArgumentException e) {
+                    // Not an action prefix; the colon is part of the term
+                }
+            }
+            // Keyed by the folded form the automaton matches, so spellings that fold together share one action
+            String term = AhoCorasickMatcher.normalize(line).text();
+            if (!term.isEmpty()) {
+                byTerm.merge(term, action, (a, b) -> a.compareTo(b) >= 0 ? a : b);
+            }
+        }
+    }
+
+    private static String mask(String content, boolean[] masked) {
+        StringBuilder builder = new StringBuilder(content.length());
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            builder.append(masked[i] && !Character.isWhitespace(c) ? '*' : c);
+        }
+        return builder.toString();
+    }
+
+    private record CompiledTerms(AhoCorasickMatcher matcher, Action[] actions) {
+        static final CompiledTerms EMPTY = new CompiledTerms(AhoCorasickMatcher.build(List.of()), new Action[0]);
+    }
+}
@@ -0,0 +1,159 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.entity.Conversation;
+import com.yunichat.chat.repository.ConversationRepository;
+import com.yunichat.chat.util.TransactionUtils;
+import com.yunichat.common.exception.BadRequestException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves private chats to their Conversation row.
+ * Lookups are cached by participant pair; entries are only cached once the row is known to be committed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationService {
+
+    private final ConversationRepository conversationRepository;
+
+    @Value("${chat.conversation-cache.max-entries:100000}")
+    private int maxCachedConversations;
+
+    private final Map<Participants, Conversation> cache = new ConcurrentHashMap<>();
+    private final Map<Long, Conversation> byId = new ConcurrentHashMap<>();
+    // Highest sequence known to be assigned per conversation, raised as this instance's sends commit; the cached
+    // Conversation rows keep the last_seq they were loaded with
+    private final Map<Long, Long> knownLastSeqs = new ConcurrentHashMap<>();
+
+    @Transactional
+    public Conversation getOrCreate(Long userA, Long userB) {
+        if (userA == null || userB == null) {
+            throw new BadRequestException("Recipient is required for private messages");
+        }
+        if (userA.equals(userB)) {
+            throw new BadRequestException("Cannot start a private conversation with yourself");
+        }
+
+        Participants key = Participants.of(userA, userB);
+        Conversation cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Conversation conversation = conversationRepository.findByUserLowIdAndUserHighId(key.low(), key.high())
+                .orElseGet(() -> {
+                    conversationRepository.insertIfAbsent(key.low(), key.high());
+                    log.info("Created private conversation between users {} and {}", key.low(), key.high());
+                    return conversationRepository.findByUserLowIdAndUserHighId(key.low(), key.high())
+                            .orElseThrow(() -> new IllegalStateException("Conversation was not created"));
+                });
+        TransactionUtils.afterCommit(() -> remember(key, conversation));
+        return conversation;
+    }
+
+    public Optional<Conversation> find(Long userA, Long userB) {
+        Participants key = Participants.of(userA, userB);
+        Conversation cached = cache.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<Conversation> conversation = conversationRepository.findByUserLowIdAndUserHighId(key.low(), key.high());
+        conversation.ifPresent(found -> remember(key, found));
+        return conversation;
+    }
+
+    /**
+     * Conversation by ID, from the cache when possible; participants never change, so a cached row stays valid
+     */
+    public Optional<Conversation> findById(Long conversationId) {
+        Conversation cached = byId.get(conversationId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<Conversation> conversation = conversationRepository.findById(conversationId);
+        conversation.ifPresent(found -> remember(Participants.of(found.getUserLowId(), found.getUserHighId()), found));
+        return conversation;
+    }
+
+    /**
+     * Next per-conversation sequence number; must run inside the sending transaction
+     */
+    @Transactional
+    public long nextSeq(Long conversationId) {
+        return reserveSeqs(conversationId, 1);
+    }
+
+    /**
+     * Reserve a block of consecutive sequence numbers and return the first; used by batch sends
+     */
+    @Transactional
+    public long reserveSeqs(Long conversationId, int count) {
+        conversationRepository.incrementSeq(conversationId, count);
+        long lastSeq = conversationRepository.findLastSeq(conversationId);
+        TransactionUtils.afterCommit(() -> knownLastSeqs.merge(conversationId, lastSeq, Math::max));
+        return lastSeq - count + 1;
+    }
+
+    /**
+     * Highest sequence assigned in a conversation. Answered from memory when that already covers atLeast;
+     * otherwise read from the table, so sends committed by other instances are seen too.
+     */
+    public long lastSeq(Long conversationId, long atLeast) {
+        Long known = knownLastSeqs.get(conversationId);
+        if (known != null && known >= atLeast) {
+            return known;
+        }
+        Long stored = conversationRepository.findLastSeq(conversationId);
+        long lastSeq = stored != null ? stored : 0L;
+        return knownLastSeqs.merge(conversationId, lastSeq, Math::max);
+    }
+
+    /**
+     * Resolve the other participant from a client-supplied private room ID ("private_{low}_{high}").
+     * Only used at the API boundary when a client omits recipientId.
+     */
+    public Long recipientFromRoomKey(String roomId, Long senderId) {
+        if (roomId != null && roomId.startsWith("private_")) {
+            String[] parts = roomId.split("_");
+            if (parts.length == 3) {
+                try {
+                    Long userId1 = Long.parseLong(parts[1]);
+                    Long userId2 = Long.parseLong(parts[2]);
+                    if (senderId.equals(userId1) || senderId.equals(userId2)) {
+                        return senderId.equals(userId1) ? userId2 : userId1;
+                    }
+                } catch (NumberFormatException e) {
+                    log.warn("Malformed private room ID: {}", roomId);
+                }
+            }
+        }
+        throw new BadRequestException("Recipient is required for private messages");
+    }
+
+    private void remember(Participants key, Conversation conversation) {
+        if (cache.size() >= maxCachedConversations || knownLastSeqs.size() >= maxCachedConversations) {
+            cache.clear();
+            byId.clear();
+            knownLastSeqs.clear();
+        }
+        cache.put(key, conversation);
+        byId.put(conversation.getId(), conversation);
+    }
+
+    private record Participants(long low, long high) {
+        static Participants of(long userA, long userB) {
+            return new Participants(Math.min(userA, userB), Math.max(userA, userB));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.dto.ConversationInboxResponse;
+import com.yunichat.chat.dto.ConversationSummaryResponse;
+import com.yunichat.chat.entity.Message;
+import com.yunichat.chat.repository.ConversationSummaryRepository;
+import com.yunichat.chat.repository.ConversationSummaryRepository.InboxEntryView;
+import com.yunichat.chat.repository.RoomMemberRepository;
+import com.yunichat.chat.repository.RoomSummaryRepository;
+import com.yunichat.common.exception.BadRequestException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the conversation summaries behind the inbox: one row per participant for private chats and one row
+ * per room for rooms, so a send writes at most two rows whatever the room size. A room member's unread count is
+ * the room's message count minus the member's read position in room_members, worked out when the inbox is read.
+ * All updates join the caller's transaction so the inbox never disagrees with the messages table.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationSummaryService {
+
+    private static final int PREVIEW_LENGTH = 200;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final ConversationSummaryRepository conversationSummaryRepository;
+    private final RoomSummaryRepository roomSummaryRepository;
+    private final RoomMemberRepository roomMemberRepository;
+
+    /**
+     * Record a new message: for both users of a private chat, or once for a room
+     */
+    @Transactional
+    public void onMessageSent(Message message, Long recipientId) {
+        applySent(message, recipientId, 1);
+    }
+
+    /**
+     * Batch variant: one upsert per conversation using its newest message and the number of messages sent to it
+     */
+    @Transactional
+    public void onMessagesSent(List<Message> messages) {
+        Map<String, List<Message>> byRoom = messages.stream()
+                .collect(Collectors.groupingBy(Message::getRoomId, LinkedHashMap::new, Collectors.toList()));
+        byRoom.values().forEach(roomMessages ->
+                applySent(roomMessages.get(roomMessages.size() - 1), roomMessages.get(0).getRecipientId(), roomMessages.size()));
+    }
+
+    private void applySent(Message message, Long recipientId, int unreadIncrement) {
+        if ("public".equals(message.getRoomId())) {
+            return;
+        }
+        
+        String preview = buildPreview(message);
+        LocalDateTime activityAt = message.getCreatedAt() != null ? message.getCreatedAt() : LocalDateTime.now();
+        
+        if (recipientId != null) {
+            conversationSummaryRepository.upsertForUser(message.getSenderId(), message.getRoomId(), recipientId,
+                    message.getId(), preview, message.getSenderId(), activityAt, 0);
+            conversationSummaryRepository.upsertForUser(recipientId, message.getRoomId(), message.getSenderId(),
+                    message.getId(), preview, message.getSenderId(), activityAt, unreadIncrement);
+        } else {
+            roomSummaryRepository.upsert(message.getRoomId(), message.getId(), preview,
+                    message.getSenderId(), activityAt, unreadIncrement);
+            // The sender has seen their own messages
+            roomMemberRepository.advanceRead(message.getRoomId(), message.getSenderId(), unreadIncrement);
+        }
+    }
+
+    @Transactional
+    public void onMessageEdited(Message message) {
+        if (message.getRecipientId() != null) {
+            conversationSummaryRepository.updatePreview(message.getRoomId(), message.getId(), buildPreview(message));
+        } else {
+            roomSummaryRepository.updatePreview(message.getRoomId(), message.getId(), buildPreview(message));
+        }
+    }
+
+    /**
+     * Unread counts are only adjusted for private chats, where the message read flag belongs to the single recipient
+     */
+    @Transactional
+    public void onMessageDeleted(Message message, Long recipientId, boolean wasUnread) {
+        if ("public".equals(message.getRoomId())) {
+            return;
+        }
+        
+        if (recipientId != null) {
+            if (wasUnread) {
+                conversationSummaryRepository.decrementUnread(recipientId, message.getRoomId());
+            }
+            int replaced = conversationSummaryRepository.replaceDeletedLastMessage(message.getRoomId(), message.getId());
+            if (replaced == 0) {
+                // Either it was not the last message or nothing is left in the conversation
+                conversationSummaryRepository.updatePreview(message.getRoomId(), message.getId(), message.getContent());
+            }
+        } else {
+            int replaced = roomSummaryRepository.replaceDeletedLastMessage(message.getRoomId(), message.getId());
+            if (replaced == 0) {
+                roomSummaryRepository.updatePreview(message.getRoomId(), message.getId(), message.getContent());
+            }
+        }
+    }
+
+    @Transactional
+    public void onRoomRead(Long userId, String roomId) {
+        if (isPrivateRoom(roomId)) {
+            conversationSummaryRepository.resetUnread(userId, roomId);
+        } else {
+            roomMemberRepository.markAllRead(roomId, userId);
+        }
+    }
+
+    @Transactional
+    public void onMessageRead(Long userId, String roomId) {
+        if (isPrivateRoom(roomId)) {
+            conversationSummaryRepository.decrementUnread(userId, roomId);
+        } else {
+            roomMemberRepository.advanceRead(roomId, userId, 1);
+        }
+    }
+
+    /**
+     * A new member starts with nothing unread rather than the room's whole history
+     */
+    @Transactional
+    public void onMemberJoined(String roomId, Long userId) {
+        roomMemberRepository.markAllRead(roomId, userId);
+    }
+
+    /**
+     * Inbox page sorted by last activity, served from the (user_id, last_activity_at, room_id) index
+     */
+    public ConversationInboxResponse getInbox(Long userId, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        
+        List<InboxEntryView> page;
+        if (cursor == null || cursor.isBlank()) {
+            page = conversationSummaryRepository.findInbox(userId, pageSize);
+        } else {
+            CursorPosition position = decodeCursor(cursor);
+            page = conversationSummaryRepository.findInboxAfter(userId, position.lastActivityAt(), position.roomId(), pageSize);
+        }
+        
+        String nextCursor = null;
+        if (page.size() == pageSize) {
+            InboxEntryView last = page.get(page.size() - 1);
+            nextCursor = encodeCursor(last.getLastActivityAt(), last.getRoomId());
+        }
+        
+        return ConversationInboxResponse.builder()
+                .conversations(page.stream().map(this::mapToResponse).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private String buildPreview(Message message) {
+        String content = message.getContent();
+        if (content == null || content.isBlank()) {
+            return "[" + message.getType() + "]";
+        }
+        return content.length() > PREVIEW_LENGTH ? content.substring(0, PREVIEW_LENGTH) : content;
+    }
+
+    private String encodeCursor(LocalDateTime lastActivityAt, String roomId) {
+        String raw = lastActivityAt + "|" + roomId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private CursorPosition decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] position = raw.split("\\|", 2);
+            if (position.length != 2) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new CursorPosition(LocalDateTime.parse(position[0]), position[1]);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid inbox cursor");
+        }
+    }
+
+    private static boolean isPrivateRoom(String roomId) {
+        return roomId.startsWith("private_");
+    }
+
+    private ConversationSummaryResponse mapToResponse(InboxEntryView summary) {
+        return ConversationSummaryResponse.builder()
+                .roomId(summary.getRoomId())
+                .peerUserId(summary.getPeerUserId())
+                .lastMessageId(summary.getLastMessageId())
+                .lastMessagePreview(summary.getLastMessagePreview())
+                .lastSenderId(summary.getLastSenderId())
+                .lastActivityAt(summary.getLastActivityAt())
+                .unreadCount(summary.getUnreadCount())
+                .build();
+    }
+
+    private record CursorPosition(LocalDateTime lastActivityAt, String roomId) {
+    }
+}
@@ -0,0 +1,234 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.dto.DeliveryAckRequest;
+import com.yunichat.chat.dto.DeliveryReceipt;
+import com.yunichat.chat.entity.Conversation;
+import com.yunichat.chat.entity.DeliveryWatermark;
+import com.yunichat.chat.repository.DeliveryWatermarkRepository;
+import com.yunichat.common.exception.BadRequestException;
+import com.yunichat.common.exception.ResourceNotFoundException;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivered state for private messages. Devices ack the highest sequence received per conversation in batches;
+ * each ack advances an in-memory per-(conversation, recipient) watermark. Senders get one coalesced receipt per
+ * conversation per notify tick, and watermarks are written to delivery_watermarks on a slower flush tick.
+ * Conversations come from ConversationService's cache and a watermark is read from the table only when it is
+ * first loaded. Acks are capped at the conversation's last assigned sequence, which ConversationService knows
+ * in memory for sends made here, so a steady stream of acks touches no database at all.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeliveryService {
+
+    private static final int MAX_ACK_BATCH = 500;
+
+    private final ConversationService conversationService;
+    private final DeliveryWatermarkRepository watermarkRepository;
+    private final TransactionRunner transactionRunner;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${chat.delivery.idle-eviction-seconds:600}")
+    private long idleEvictionSeconds;
+
+    private final Map<WatermarkKey, Watermark> watermarks = new ConcurrentHashMap<>();
+
+    // Watermarks advanced since the last notify / flush tick
+    private final Set<WatermarkKey> pendingNotify = ConcurrentHashMap.newKeySet();
+    private final Set<WatermarkKey> pendingFlush = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Record that a device of userId received its conversations' messages up to the given sequence numbers;
+     * conversations userId is not part of are ignored. Returns how many watermarks moved forward.
+     */
+    public int acknowledge(Long userId, Collection<DeliveryAckRequest.ConversationAck> acks) {
+        if (acks == null || acks.isEmpty()) {
+            return 0;
+        }
+        if (acks.size() > MAX_ACK_BATCH) {
+            throw new BadRequestException("At most " + MAX_ACK_BATCH + " conversations can be acknowledged per frame");
+        }
+
+        // Highest acked sequence per conversation
+        Map<Long, Long> highest = new HashMap<>();
+        for (DeliveryAckRequest.ConversationAck ack : acks) {
+            if (ack != null && ack.getConversationId() != null && ack.getSeq() != null && ack.getSeq() > 0) {
+                highest.merge(ack.getConversationId(), ack.getSeq(), Math::max);
+            }
+        }
+
+        int advanced = 0;
+        for (Map.Entry<Long, Long> entry : highest.entrySet()) {
+            Conversation conversation = conversationService.findById(entry.getKey()).orElse(null);
+            if (conversation == null || !conversation.hasParticipant(userId)) {
+                continue;
+            }
+            // An ack past the last message would mark messages not yet sent as delivered
+            long seq = Math.min(entry.getValue(), conversationService.lastSeq(conversation.getId(), entry.getValue()));
+            if (seq <= 0) {
+                continue;
+            }
+            WatermarkKey key = new WatermarkKey(conversation.getId(), userId);
+            if (advance(key, conversation, seq)) {
+                pendingNotify.add(key);
+                pendingFlush.add(key);
+                advanced++;
+            }
+        }
+        return advanced;
+    }
+
+    private boolean advance(WatermarkKey key, Conversation conversation, long seq) {
+        while (true) {
+            Watermark watermark = watermarks.get(key);
+            if (watermark == null) {
+                // Seeded from the table so a reloaded watermark never reports less than was already delivered
+                long stored = watermarkRepository.findByConversationIdAndUserId(key.conversationId(), key.userId())
+                        .map(DeliveryWatermark::getDeliveredSeq)
+                        .orElse(0L);
+                Watermark loaded = new Watermark(conversation.getRoomKey(), conversation.peerOf(key.userId()), stored);
+                Watermark existing = watermarks.putIfAbsent(key, loaded);
+                watermark = existing != null ? existing : loaded;
+            }
+            boolean moved = watermark.advanceTo(seq);
+            // Evicted while advancing: the bump may be lost with it, so apply it to the reloaded watermark
+            if (!watermark.retired) {
+                return moved;
+            }
+        }
+    }
+
+    /**
+     * How far the other participant has received this user's messages in a conversation
+     */
+    public long getPeerDeliveredSeq(Long conversationId, Long userId) {
+        Conversation conversation = conversationService.findById(conversationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Conversation not found"));
+        if (!conversation.hasParticipant(userId)) {
+            throw new BadRequestException("You are not a participant in this conversation");
+        }
+
+        Long peerId = conversation.peerOf(userId);
+        long stored = watermarkRepository.findByConversationIdAndUserId(conversationId, peerId)
+                .map(DeliveryWatermark::getDeliveredSeq)
+                .orElse(0L);
+        Watermark inMemory = watermarks.get(new WatermarkKey(conversationId, peerId));
+        return inMemory != null ? Math.max(stored, inMemory.delivered.get()) : stored;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.delivery.notify-interval-ms:250}")
+    public void notifySenders() {
+        for (WatermarkKey key : drain(pendingNotify)) {
+            Watermark watermark = watermarks.get(key);
+            if (watermark == null) {
+                continue;
+            }
+            DeliveryReceipt receipt = DeliveryReceipt.builder()
+                    .roomId(watermark.roomId)
+                    .conversationId(key.conversationId())
+                    .recipientId(key.userId())
+                    .deliveredSeq(watermark.delivered.get())
+                    .timestamp(System.currentTimeMillis())
+                    .build();
+            messagingTemplate.convertAndSendToUser(watermark.senderId.toString(), "/queue/delivery", receipt);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.delivery.flush-interval-ms:2000}")
+    public void flushWatermarks() {
+        List<WatermarkKey> dirty = drain(pendingFlush);
+        if (!dirty.isEmpty()) {
+            try {
+                transactionRunner.inTransaction("delivery-flush", () -> {
+                    for (WatermarkKey key : dirty) {
+                        Watermark watermark = watermarks.get(key);
+                        if (watermark != null) {
+                            watermarkRepository.advance(key.conversationId(), key.userId(), watermark.delivered.get());
+                        }
+                    }
+                    return null;
+                });
+                log.debug("Flushed {} delivery watermarks", dirty.size());
+            } catch (Exception e) {
+                // Keep them dirty; the next tick retries
+                pendingFlush.addAll(dirty);
+                log.error("Failed to flush {} delivery watermarks: {}", dirty.size(), e.getMessage());
+                return;
+            }
+        }
+
+        // Forget conversations nobody has acked in a while; the table has their watermark
+        long cutoff = System.currentTimeMillis() - idleEvictionSeconds * 1000;
+        for (WatermarkKey key : new ArrayList<>(watermarks.keySet())) {
+            watermarks.computeIfPresent(key, (k, watermark) -> {
+                if (watermark.lastAdvancedAt >= cutoff || pendingFlush.contains(k)) {
+                    return watermark;
+                }
+                watermark.retired = true;
+                return null;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushWatermarks();
+    }
+
+    private static List<WatermarkKey> drain(Set<WatermarkKey> pending) {
+        List<WatermarkKey> drained = new ArrayList<>();
+        Iterator<WatermarkKey> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    private record WatermarkKey(long conversationId, long userId) {
+    }
+
+    private static final class Watermark {
+        private final String roomId;
+        private final Long senderId;
+        private final AtomicLong delivered;
+        private volatile long lastAdvancedAt = System.currentTimeMillis();
+        // Set once evicted; an ack that raced the eviction retries on a freshly loaded watermark
+        private volatile boolean retired;
+
+        private Watermark(String roomId, Long senderId, long delivered) {
+            this.roomId = roomId;
+            this.senderId = senderId;
+            this.delivered = new AtomicLong(delivered);
+        }
+
+        private boolean advanceTo(long seq) {
+            long current;
+            do {
+                current = delivered.get();
+                if (seq <= current) {
+                    return false;
+                }
+            } while (!delivered.compareAndSet(current, seq));
+            lastAdvancedAt = System.currentTimeMillis();
+            return true;
+        }
+    }
+}
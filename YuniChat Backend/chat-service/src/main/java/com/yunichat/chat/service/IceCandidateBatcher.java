@@ -0,0 +1,95 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.dto.CallSignalResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces trickle-ICE candidates per sender/recipient pair. A browser gathers several candidates within
+ * a few milliseconds; they are held for a short window and forwarded as one ICE_CANDIDATES frame.
+ */
+@Component
+@Slf4j
+public class IceCandidateBatcher {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long windowMillis;
+    private final Map<Route, List<String>> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ice-candidate-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public IceCandidateBatcher(SimpMessagingTemplate messagingTemplate,
+                               @Value("${chat.calls.ice-batch-window-ms:20}") long windowMillis) {
+        this.messagingTemplate = messagingTemplate;
+        this.windowMillis = windowMillis;
+    }
+
+    public void add(Long senderId, Long recipientId, String candidate) {
+        Route route = new Route(senderId, recipientId);
+        boolean[] opened = new boolean[1];
+        pending.compute(route, (key, candidates) -> {
+            if (candidates == null) {
+                candidates = new ArrayList<>();
+                opened[0] = true;
+            }
+            candidates.add(candidate);
+            return candidates;
+        });
+        if (opened[0]) {
+            scheduler.schedule(() -> flush(route), windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Drop anything still buffered between the pair once their call has ended
+     */
+    public void discard(Long userA, Long userB) {
+        pending.remove(new Route(userA, userB));
+        pending.remove(new Route(userB, userA));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    private void flush(Route route) {
+        List<String> candidates = pending.remove(route);
+        if (candidates == null) {
+            return;
+        }
+
+        CallSignalResponse.CallSignalResponseBuilder response = CallSignalResponse.builder()
+                .callerId(route.senderId())
+                .calleeId(route.recipientId())
+                .timestamp(System.currentTimeMillis());
+        if (candidates.size() == 1) {
+            response.type("ICE_CANDIDATE").candidate(candidates.get(0));
+        } else {
+            response.type("ICE_CANDIDATES").candidates(candidates);
+        }
+        try {
+            messagingTemplate.convertAndSendToUser(route.recipientId().toString(), "/queue/call-signal", response.build());
+            log.debug("Forwarded {} ICE candidate(s) from {} to {}", candidates.size(), route.senderId(), route.recipientId());
+        } catch (Exception e) {
+            log.error("Failed to forward ICE candidates from {} to {}: {}", route.senderId(), route.recipientId(), e.getMessage());
+        }
+    }
+
+    private record Route(Long senderId, Long recipientId) {
+    }
+}
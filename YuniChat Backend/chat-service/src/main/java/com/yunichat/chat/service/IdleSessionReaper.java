@@ -0,0 +1,65 @@
+package com.yunichat.chat.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Closes WebSocket sessions that have gone silent: half-open TCP connections left behind by clients that
+ * switched networks or slept. A session is dead after missing several negotiated heartbeats, or after a long
+ * silence if the client never agreed to send any. Dead sessions are deregistered from presence in batches,
+ * so a burst of them costs one active-users broadcast and one guest cleanup call per batch.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdleSessionReaper {
+
+    private final WebSocketActivityTracker activityTracker;
+    private final WebSocketPresenceService presenceService;
+
+    @Value("${chat.websocket.missed-heartbeats:3}")
+    private int missedHeartbeats;
+
+    @Value("${chat.websocket.silent-session-timeout-ms:1800000}")
+    private long silentSessionTimeoutMillis;
+
+    @Value("${chat.websocket.reap-batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${chat.websocket.reap-interval-ms:15000}")
+    public void reapIdleSessions() {
+        long now = System.currentTimeMillis();
+        List<WebSocketActivityTracker.TrackedSession> dead = new ArrayList<>();
+        for (WebSocketActivityTracker.TrackedSession tracked : activityTracker.getSessions()) {
+            long heartbeat = tracked.getInboundHeartbeatMillis();
+            long timeout = heartbeat > 0 ? heartbeat * missedHeartbeats : silentSessionTimeoutMillis;
+            if (now - tracked.getLastInboundAt() > timeout) {
+                dead.add(tracked);
+            }
+        }
+        if (dead.isEmpty()) {
+            return;
+        }
+
+        log.info("Reaping {} idle WebSocket session(s) of {}", dead.size(), activityTracker.getSessionCount());
+        for (int from = 0; from < dead.size(); from += batchSize) {
+            List<WebSocketActivityTracker.TrackedSession> batch = dead.subList(from, Math.min(from + batchSize, dead.size()));
+            // Deregister first so the disconnect events raised by close() find nothing left to do
+            presenceService.deregisterSessions(batch.stream().map(tracked -> tracked.getSession().getId()).toList());
+            for (WebSocketActivityTracker.TrackedSession tracked : batch) {
+                try {
+                    tracked.getSession().close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (Exception e) {
+                    log.debug("Error closing idle session {}: {}", tracked.getSession().getId(), e.getMessage());
+                }
+            }
+        }
+    }
+}
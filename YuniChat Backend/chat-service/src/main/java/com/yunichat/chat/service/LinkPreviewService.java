@@ -0,0 +1,531 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.dto.LinkPreview;
+import com.yunichat.chat.dto.LinkPreviewUpdate;
+import com.yunichat.chat.entity.Message;
+import com.yunichat.chat.event.MessageBatchSentEvent;
+import com.yunichat.chat.event.MessageSentEvent;
+import com.yunichat.chat.util.OrderedExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Server-side link unfurling, so a room fetches each link once instead of once per client.
+ * After a message commits, its URLs are looked up in a shared per-URL cache; misses are fetched on the bounded
+ * linkPreviewExecutor and parsed for OpenGraph metadata. Whatever is found goes to the room as a follow-up
+ * "preview" frame for that message. Failures are cached for a shorter time so a dead link is not re-fetched
+ * for every message that repeats it. Nothing here runs on the send path.
+ * Host names are resolved once by a resolver that refuses private addresses, and connections go only to the
+ * addresses it returned, so a DNS answer cannot change between the check and the connect.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LinkPreviewService {
+
+    private static final Pattern URL_PATTERN = Pattern.compile("https?://[^\\s<>\"'`]+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern META_TAG = Pattern.compile("<meta\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ATTRIBUTE = Pattern.compile("([a-zA-Z:-]+)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+))");
+    private static final Pattern TITLE_TAG = Pattern.compile("<title[^>]*>([^<]*)</title>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ENTITY = Pattern.compile("&(#[xX][0-9a-fA-F]+|#[0-9]+|amp|lt|gt|quot|apos|nbsp);");
+    private static final String TRAILING_PUNCTUATION = ".,;:!?)]}";
+    private static final int MAX_URL_LENGTH = 2048;
+    private static final int MAX_FIELD_LENGTH = 500;
+    private static final int MAX_REDIRECTS = 3;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final OrderedExecutor chatEventExecutor;
+    private final RoomBroadcaster roomBroadcaster;
+    private final ExecutorService linkPreviewExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.link-preview.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.link-preview.max-urls-per-message:3}")
+    private int maxUrlsPerMessage;
+
+    @Value("${chat.link-preview.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    // Whole exchange, headers and body, per hop; also the limit on any single read
+    @Value("${chat.link-preview.request-timeout-ms:4000}")
+    private long requestTimeoutMs;
+
+    // Only the head of the page is needed; the rest of the body is never read
+    @Value("${chat.link-preview.max-bytes:262144}")
+    private int maxBytes;
+
+    @Value("${chat.link-preview.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    @Value("${chat.link-preview.negative-ttl-seconds:300}")
+    private long negativeTtlSeconds;
+
+    @Value("${chat.link-preview.max-entries:10000}")
+    private int maxEntries;
+
+    // Off in production: users must not be able to make the server probe the internal network
+    @Value("${chat.link-preview.allow-private-hosts:false}")
+    private boolean allowPrivateHosts;
+
+    @Value("${chat.link-preview.user-agent:YuniChatBot/1.0 (link preview)}")
+    private String userAgent;
+
+    private CloseableHttpClient httpClient;
+
+    // URL -> result (null preview when nothing usable was found), access-ordered as an LRU; guarded by this
+    private Map<String, CachedPreview> cache;
+
+    // Fetches under way, so messages linking the same URL at the same time share one request
+    private final Map<String, CompletableFuture<LinkPreview>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        // Redirects are followed by hand so every hop goes through the scheme check again
+        httpClient = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setDnsResolver(new PublicAddressResolver())
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                                .setSocketTimeout(Timeout.ofMilliseconds(requestTimeoutMs))
+                                .build())
+                        .build())
+                // Hosts are arbitrary and rarely fetched twice in a row; keeping sockets to them open buys nothing
+                .setConnectionReuseStrategy((request, response, context) -> false)
+                .disableRedirectHandling()
+                .disableAutomaticRetries()
+                .disableCookieManagement()
+                .setUserAgent(userAgent)
+                .build();
+        cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPreview> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    @TransactionalEventListener
+    public void onMessageSent(MessageSentEvent event) {
+        unfurl(event.message());
+    }
+
+    @TransactionalEventListener
+    public void onMessageBatchSent(MessageBatchSentEvent event) {
+        event.messages().forEach(this::unfurl);
+    }
+
+    /**
+     * Preview for one URL: from the cache, joined to a fetch already under way, or fetched now.
+     * Completes with null when the page has no usable metadata, could not be fetched, or the fetch queue is full;
+     * never completes exceptionally.
+     */
+    public CompletableFuture<LinkPreview> preview(String url) {
+        CachedPreview cached = cached(url);
+        if (cached != null) {
+            count("cached");
+            return CompletableFuture.completedFuture(cached.preview());
+        }
+
+        CompletableFuture<LinkPreview> created = new CompletableFuture<>();
+        CompletableFuture<LinkPreview> existing = inFlight.putIfAbsent(url, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            linkPreviewExecutor.execute(() -> fetchInto(url, created));
+        } catch (RejectedExecutionException e) {
+            // Not cached: the next message with this link gets another chance
+            inFlight.remove(url, created);
+            count("rejected");
+            created.complete(null);
+        }
+        return created;
+    }
+
+    private void unfurl(Message message) {
+        if (!enabled || message.getType() != Message.MessageType.TEXT) {
+            return;
+        }
+        List<String> urls = extractUrls(message.getContent(), maxUrlsPerMessage);
+        if (urls.isEmpty()) {
+            return;
+        }
+
+        List<CompletableFuture<LinkPreview>> previews = urls.stream().map(this::preview).toList();
+        CompletableFuture.allOf(previews.toArray(new CompletableFuture<?>[0])).thenRun(() -> {
+            List<LinkPreview> found = previews.stream().map(CompletableFuture::join).filter(Objects::nonNull).toList();
+            if (!found.isEmpty()) {
+                push(message, found);
+            }
+        });
+    }
+
+    private void push(Message message, List<LinkPreview> previews) {
+        LinkPreviewUpdate update = LinkPreviewUpdate.builder()
+                .messageId(message.getId())
+                .roomId(message.getRoomId())
+                .previews(previews)
+                .build();
+        // Room lane, behind the message itself
+        chatEventExecutor.execute(message.getRoomId(), () -> {
+            if (message.getRecipientId() != null) {
+                messagingTemplate.convertAndSendToUser(message.getSenderId().toString(), "/queue/message-preview", update);
+                messagingTemplate.convertAndSendToUser(message.getRecipientId().toString(), "/queue/message-preview", update);
+            } else {
+                roomBroadcaster.broadcast(message.getRoomId(), "/preview", update);
+            }
+            log.debug("Pushed {} link previews for message {}", previews.size(), message.getId());
+        });
+    }
+
+    private void fetchInto(String url, CompletableFuture<LinkPreview> future) {
+        LinkPreview preview = null;
+        try {
+            preview = fetch(url);
+            count(preview != null ? "ok" : "empty");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            count("failed");
+        } catch (Exception e) {
+            log.debug("Link preview fetch failed for {}: {}", url, e.toString());
+            count("failed");
+        }
+        store(url, preview);
+        inFlight.remove(url, future);
+        future.complete(preview);
+    }
+
+    private LinkPreview fetch(String url) throws Exception {
+        URI uri = URI.create(url);
+        for (int hop = 0; hop <= MAX_REDIRECTS; hop++) {
+            checkScheme(uri);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestTimeoutMs);
+            HttpGet request = new HttpGet(uri);
+            request.setHeader(HttpHeaders.ACCEPT, "text/html,application/xhtml+xml");
+
+            ClassicHttpResponse response = httpClient.executeOpen(null, request, null);
+            try {
+                int status = response.getCode();
+                if (status >= 300 && status < 400) {
+                    Header location = response.getFirstHeader(HttpHeaders.LOCATION);
+                    if (location == null) {
+                        return null;
+                    }
+                    uri = uri.resolve(location.getValue());
+                    continue;
+                }
+                HttpEntity entity = response.getEntity();
+                String contentType = entity != null && entity.getContentType() != null ? entity.getContentType() : "";
+                if (status != 200 || !contentType.toLowerCase(Locale.ROOT).contains("html")) {
+                    return null;
+                }
+                byte[] body = readHead(entity.getContent(), deadline);
+                return parse(url, uri, new String(body, charsetOf(contentType)));
+            } finally {
+                // Drops the connection instead of draining whatever is left of the body (closing the response would
+                // read it to the end); a no-op once the exchange has completed
+                request.cancel();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * At most maxBytes of the body. Each read is bounded by the socket timeout and the whole body by the deadline,
+     * so a server dribbling bytes cannot hold a fetch thread.
+     */
+    private byte[] readHead(InputStream in, long deadline) throws IOException, TimeoutException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (body.size() < maxBytes) {
+            int read = in.read(buffer, 0, Math.min(buffer.length, maxBytes - body.size()));
+            if (read < 0) {
+                break;
+            }
+            body.write(buffer, 0, read);
+            if (System.nanoTime() > deadline) {
+                throw new TimeoutException("Body not received within " + requestTimeoutMs + " ms");
+            }
+        }
+        return body.toByteArray();
+    }
+
+    private static void checkScheme(URI uri) {
+        String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : "";
+        if ((!scheme.equals("http") && !scheme.equals("https")) || uri.getHost() == null) {
+            throw new IllegalArgumentException("Not an http(s) URL: " + uri);
+        }
+    }
+
+    static boolean isPrivate(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return true;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            int first = bytes[0] & 0xff;
+            int second = bytes[1] & 0xff;
+            return first == 0                                   // "this network" (0.0.0.0/8)
+                    || (first == 100 && (second & 0xc0) == 64)  // carrier-grade NAT (100.64.0.0/10)
+                    || (first == 198 && (second & 0xfe) == 18)  // benchmarking (198.18.0.0/15)
+                    || first >= 240;                            // reserved and broadcast (240.0.0.0/4)
+        }
+        // IPv6 unique local addresses (fc00::/7)
+        if ((bytes[0] & 0xfe) == 0xfc) {
+            return true;
+        }
+        // An IPv4 address carried in IPv6 (::ffff:0:0/96 mapped, 64:ff9b::/96 NAT64) is judged as that IPv4 address
+        byte[] embedded = embeddedIpv4(bytes);
+        if (embedded != null) {
+            try {
+                return isPrivate(InetAddress.getByAddress(embedded));
+            } catch (UnknownHostException e) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] embeddedIpv4(byte[] ipv6) {
+        boolean mapped = ipv6[10] == (byte) 0xff && ipv6[11] == (byte) 0xff && allZero(ipv6, 0, 10);
+        boolean nat64 = ipv6[0] == 0x00 && ipv6[1] == 0x64 && ipv6[2] == (byte) 0xff && ipv6[3] == (byte) 0x9b
+                && allZero(ipv6, 4, 12);
+        return mapped || nat64 ? Arrays.copyOfRange(ipv6, 12, 16) : null;
+    }
+
+    private static boolean allZero(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Distinct http(s) URLs in message text, in order of appearance, without trailing sentence punctuation
+     */
+    static List<String> extractUrls(String content, int limit) {
+        if (content == null || limit <= 0) {
+            return List.of();
+        }
+        Set<String> urls = new LinkedHashSet<>();
+        Matcher matcher = URL_PATTERN.matcher(content);
+        while (matcher.find() && urls.size() < limit) {
+            String url = matcher.group();
+            int end = url.length();
+            while (end > 0 && TRAILING_PUNCTUATION.indexOf(url.charAt(end - 1)) >= 0) {
+                end--;
+            }
+            url = url.substring(0, end);
+            if (url.length() <= MAX_URL_LENGTH && url.indexOf("://") + 3 < url.length()) {
+                urls.add(url);
+            }
+        }
+        return new ArrayList<>(urls);
+    }
+
+    static LinkPreview parse(String url, URI pageUri, String html) {
+        int headEnd = html.toLowerCase(Locale.ROOT).indexOf("</head>");
+        String head = headEnd >= 0 ? html.substring(0, headEnd) : html;
+
+        Map<String, String> meta = new HashMap<>();
+        Matcher tags = META_TAG.matcher(head);
+        while (tags.find()) {
+            String key = null;
+            String content = null;
+            Matcher attributes = ATTRIBUTE.matcher(tags.group());
+            while (attributes.find()) {
+                String name = attributes.group(1).toLowerCase(Locale.ROOT);
+                String value = attributes.group(2) != null ? attributes.group(2)
+                        : attributes.group(3) != null ? attributes.group(3) : attributes.group(4);
+                if (name.equals("property") || name.equals("name")) {
+                    key = value.toLowerCase(Locale.ROOT);
+                } else if (name.equals("content")) {
+                    content = value;
+                }
+            }
+            if (key != null && content != null) {
+                meta.putIfAbsent(key, content);
+            }
+        }
+
+        Matcher titleTag = TITLE_TAG.matcher(head);
+        String title = firstText(meta.get("og:title"), meta.get("twitter:title"), titleTag.find() ? titleTag.group(1) : null);
+        if (title == null) {
+            return null;
+        }
+        String image = firstText(meta.get("og:image"), meta.get("twitter:image"));
+        String siteName = firstText(meta.get("og:site_name"));
+        return LinkPreview.builder()
+                .url(url)
+                .title(title)
+                .description(firstText(meta.get("og:description"), meta.get("twitter:description"), meta.get("description")))
+                .imageUrl(image != null ? absoluteHttpUrl(pageUri, image) : null)
+                .siteName(siteName != null ? siteName : pageUri.getHost())
+                .build();
+    }
+
+    private static String firstText(String... candidates) {
+        for (String candidate : candidates) {
+            if (candidate != null) {
+                String text = decodeEntities(candidate).strip();
+                if (!text.isEmpty()) {
+                    return text.length() > MAX_FIELD_LENGTH ? text.substring(0, MAX_FIELD_LENGTH) : text;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String absoluteHttpUrl(URI base, String reference) {
+        try {
+            URI resolved = base.resolve(reference);
+            String scheme = resolved.getScheme();
+            return "http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme) ? resolved.toString() : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String decodeEntities(String text) {
+        if (text.indexOf('&') < 0) {
+            return text;
+        }
+        Matcher matcher = ENTITY.matcher(text);
+        StringBuilder decoded = new StringBuilder(text.length());
+        while (matcher.find()) {
+            String entity = matcher.group(1);
+            String replacement = switch (entity) {
+                case "amp" -> "&";
+                case "lt" -> "<";
+                case "gt" -> ">";
+                case "quot" -> "\"";
+                case "apos" -> "'";
+                case "nbsp" -> " ";
+                default -> {
+                    boolean hex = entity.charAt(1) == 'x' || entity.charAt(1) == 'X';
+                    int codePoint = Integer.parseInt(entity.substring(hex ? 2 : 1), hex ? 16 : 10);
+                    yield Character.isValidCodePoint(codePoint) ? Character.toString(codePoint) : "";
+                }
+            };
+            matcher.appendReplacement(decoded, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(decoded);
+        return decoded.toString();
+    }
+
+    private static Charset charsetOf(String contentType) {
+        int index = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (index >= 0) {
+            String name = contentType.substring(index + "charset=".length()).split(";")[0].replace("\"", "").strip();
+            try {
+                return Charset.forName(name);
+            } catch (IllegalArgumentException e) {
+                // Unknown or malformed charset; fall through to UTF-8
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private synchronized CachedPreview cached(String url) {
+        CachedPreview cached = cache.get(url);
+        if (cached != null && cached.expiresAt() < System.currentTimeMillis()) {
+            cache.remove(url);
+            return null;
+        }
+        return cached;
+    }
+
+    private synchronized void store(String url, LinkPreview preview) {
+        long ttl = TimeUnit.SECONDS.toMillis(preview != null ? ttlSeconds : negativeTtlSeconds);
+        cache.put(url, new CachedPreview(preview, System.currentTimeMillis() + ttl));
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("chat.link_preview.fetches", "result", result).increment();
+    }
+
+    private record CachedPreview(LinkPreview preview, long expiresAt) {
+    }
+
+    /**
+     * Resolves host names for the HTTP client and refuses any name with a private address. The client connects
+     * only to the addresses returned here, which closes the window a second, rebinding DNS lookup would open.
+     */
+    private final class PublicAddressResolver implements DnsResolver {
+
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            InetAddress[] addresses = SystemDefaultDnsResolver.INSTANCE.resolve(host);
+            if (!allowPrivateHosts) {
+                for (InetAddress address : addresses) {
+                    if (isPrivate(address)) {
+                        throw new UnknownHostException("Refusing to fetch private address " + address.getHostAddress());
+                    }
+                }
+            }
+            return addresses;
+        }
+
+        @Override
+        public String resolveCanonicalHostname(String host) throws UnknownHostException {
+            return SystemDefaultDnsResolver.INSTANCE.resolveCanonicalHostname(host);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.dto.MentionInboxResponse;
+import com.yunichat.chat.dto.MentionResponse;
+import com.yunichat.chat.entity.Mention;
+import com.yunichat.chat.entity.MentionCounter;
+import com.yunichat.chat.entity.Message;
+import com.yunichat.chat.event.MentionNotificationEvent;
+import com.yunichat.chat.repository.MentionCounterRepository;
+import com.yunichat.chat.repository.MentionRepository;
+import com.yunichat.chat.repository.MessageRepository;
+import com.yunichat.common.exception.BadRequestException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Mentions inbox: persists one row per mentioned user, keeps unread counters in step and
+ * publishes the live notification plus the new counter for delivery once the write commits.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MentionService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final MentionRepository mentionRepository;
+    private final MentionCounterRepository mentionCounterRepository;
+    private final MessageRepository messageRepository;
+    private final RoomMembershipCache membershipCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Record mentions for a newly sent message. The sender is skipped and, in group rooms,
+     * so is anyone who is not a member.
+     */
+    @Transactional
+    public void onMessageSent(Message message, String senderUsername, boolean isPrivateMessage) {
+        List<Long> mentionedUserIds = message.getMentionedUserIds();
+        if (mentionedUserIds == null || mentionedUserIds.isEmpty()) {
+            return;
+        }
+        
+        boolean isGroupRoom = !isPrivateMessage && !"public".equals(message.getRoomId());
+        Set<Long> recipients = new LinkedHashSet<>();
+        for (Long mentionedUserId : mentionedUserIds) {
+            if (mentionedUserId == null || mentionedUserId.equals(message.getSenderId())) {
+                continue;
+            }
+            if (isPrivateMessage && !mentionedUserId.equals(message.getRecipientId())) {
+                continue;
+            }
+            // In group rooms only members can be notified; mentions of outsiders are not delivered
+            if (isGroupRoom && !membershipCache.isMember(message.getRoomId(), mentionedUserId)) {
+                continue;
+            }
+            recipients.add(mentionedUserId);
+        }
+        if (recipients.isEmpty()) {
+            return;
+        }
+        
+        LocalDateTime createdAt = message.getCreatedAt() != null ? message.getCreatedAt() : LocalDateTime.now();
+        List<Mention> mentions = new ArrayList<>(recipients.size());
+        for (Long userId : recipients) {
+            mentions.add(Mention.builder()
+                    .userId(userId)
+                    .messageId(message.getId())
+                    .roomId(message.getRoomId())
+                    .senderId(message.getSenderId())
+                    .createdAt(createdAt)
+                    .build());
+            mentionCounterRepository.increment(userId, 1);
+        }
+        mentionRepository.saveAll(mentions);
+        
+        Map<Long, Integer> counts = loadCounts(recipients);
+        Map<String, Object> mentionNotification = Map.of(
+            "messageId", message.getId(),
+            "senderId", message.getSenderId(),
+            "senderUsername", senderUsername,
+            "content", message.getContent(),
+            "chatType", isPrivateMessage ? "PRIVATE" : "PUBLIC",
+            "roomId", message.getRoomId()
+        );
+        eventPublisher.publishEvent(new MentionNotificationEvent(mentionNotification, countsFor(recipients, counts)));
+        log.info("Recorded mentions of users {} in message {}", recipients, message.getId());
+    }
+
+    /**
+     * Drop mentions of deleted or purged messages, releasing any unread counts they held
+     */
+    @Transactional
+    public void onMessagesDeleted(Collection<Long> messageIds) {
+        if (messageIds == null || messageIds.isEmpty()) {
+            return;
+        }
+        
+        List<Mention> mentions = mentionRepository.findByMessageIdIn(messageIds);
+        if (mentions.isEmpty()) {
+            return;
+        }
+        
+        Map<Long, Long> unreadByUser = mentions.stream()
+                .filter(mention -> !Boolean.TRUE.equals(mention.getIsRead()))
+                .collect(Collectors.groupingBy(Mention::getUserId, Collectors.counting()));
+        unreadByUser.forEach((userId, unread) -> mentionCounterRepository.decrement(userId, unread.intValue()));
+        mentionRepository.deleteByMessageIds(messageIds);
+        
+        publishCounts(unreadByUser.keySet());
+    }
+
+    @Transactional
+    public int markRead(Long userId, Long mentionId) {
+        int updated = mentionRepository.markRead(mentionId, userId);
+        if (updated > 0) {
+            mentionCounterRepository.decrement(userId, updated);
+            publishCounts(List.of(userId));
+        }
+        return getUnreadCount(userId);
+    }
+
+    @Transactional
+    public int markAllRead(Long userId) {
+        int updated = mentionRepository.markAllRead(userId);
+        mentionCounterRepository.reset(userId);
+        if (updated > 0) {
+            publishCounts(List.of(userId));
+        }
+        return updated;
+    }
+
+    /**
+     * Called when the user reads a room or private chat; clears the mentions inside it
+     */
+    @Transactional
+    public void onRoomRead(Long userId, String roomId) {
+        int updated = mentionRepository.markRoomRead(userId, roomId);
+        if (updated > 0) {
+            mentionCounterRepository.decrement(userId, updated);
+            publishCounts(List.of(userId));
+        }
+    }
+
+    public int getUnreadCount(Long userId) {
+        return mentionCounterRepository.findById(userId)
+                .map(MentionCounter::getUnreadCount)
+                .orElse(0);
+    }
+
+    /**
+     * Mentions page newest first, served from the (user_id, created_at, id) index
+     */
+    public MentionInboxResponse getMentions(Long userId, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        PageRequest limit = PageRequest.of(0, pageSize);
+        
+        List<Mention> page;
+        if (cursor == null || cursor.isBlank()) {
+            page = mentionRepository.findInbox(userId, limit);
+        } else {
+            CursorPosition position = decodeCursor(cursor);
+            page = mentionRepository.findInboxAfter(userId, position.createdAt(), position.id(), limit);
+        }
+        
+        // Message content is fetched by primary key for just this page
+        Map<Long, Message> messages = messageRepository.findAllById(
+                        page.stream().map(Mention::getMessageId).collect(Collectors.toList())).stream()
+                .collect(Collectors.toMap(Message::getId, Function.identity()));
+        
+        String nextCursor = null;
+        if (page.size() == pageSize) {
+            Mention last = page.get(page.size() - 1);
+            nextCursor = encodeCursor(last.getCreatedAt(), last.getId());
+        }
+        
+        return MentionInboxResponse.builder()
+                .mentions(page.stream()
+                        .map(mention -> mapToResponse(mention, messages.get(mention.getMessageId())))
+                        .collect(Collectors.toList()))
+                .unreadCount(getUnreadCount(userId))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private Map<Long, Integer> loadCounts(Collection<Long> userIds) {
+        return mentionCounterRepository.findByUserIdIn(userIds).stream()
+                .collect(Collectors.toMap(MentionCounter::getUserId, MentionCounter::getUnreadCount));
+    }
+
+    private void publishCounts(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        eventPublisher.publishEvent(new MentionNotificationEvent(null, countsFor(userIds, loadCounts(userIds))));
+    }
+
+    private Map<Long, Integer> countsFor(Collection<Long> userIds, Map<Long, Integer> loaded) {
+        Map<Long, Integer> counts = new LinkedHashMap<>();
+        userIds.forEach(userId -> counts.put(userId, loaded.getOrDefault(userId, 0)));
+        return counts;
+    }
+
+    private String encodeCursor(LocalDateTime createdAt, Long id) {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private CursorPosition decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] position = raw.split("\\|", 2);
+            if (position.length != 2) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new CursorPosition(LocalDateTime.parse(position[0]), Long.parseLong(position[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid mentions cursor");
+        }
+    }
+
+    private MentionResponse mapToResponse(Mention mention, Message message) {
+        return MentionResponse.builder()
+                .id(mention.getId())
+                .messageId(mention.getMessageId())
+                .roomId(mention.getRoomId())
+                .senderId(mention.getSenderId())
+                .content(message != null ? message.getContent() : null)
+                .createdAt(mention.getCreatedAt())
+                .isRead(mention.getIsRead())
+                .build();
+    }
+
+    private record CursorPosition(LocalDateTime createdAt, Long id) {
+    }
+}
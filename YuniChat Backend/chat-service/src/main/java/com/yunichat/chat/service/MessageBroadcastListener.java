@@ -0,0 +1,145 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.dto.MessageBatchResponse;
+import com.yunichat.chat.dto.MessageResponse;
+import com.yunichat.chat.entity.Message;
+import com.yunichat.chat.event.MentionNotificationEvent;
+import com.yunichat.chat.event.MessageBatchSentEvent;
+import com.yunichat.chat.event.MessageDeletedEvent;
+import com.yunichat.chat.event.MessageEditedEvent;
+import com.yunichat.chat.event.MessageSentEvent;
+import com.yunichat.chat.event.MessagesReadEvent;
+import com.yunichat.chat.event.ReactionChangedEvent;
+import com.yunichat.chat.util.OrderedExecutor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivers message changes over STOMP once their transaction has committed.
+ * Work is handed to the ordered executor keyed by room, so clients see a room's events
+ * in commit order and nothing here runs while a database connection is held.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MessageBroadcastListener {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final OrderedExecutor chatEventExecutor;
+    private final RoomBroadcaster roomBroadcaster;
+
+    // Queued ahead of other after-commit work so follow-up frames for a message (link previews) land behind it
+    @TransactionalEventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onMessageSent(MessageSentEvent event) {
+        Message message = event.message();
+        MessageResponse response = event.response();
+        chatEventExecutor.execute(message.getRoomId(), () -> {
+            if (message.getRecipientId() != null) {
+                // Recipient gets the message, sender gets it back as confirmation
+                messagingTemplate.convertAndSendToUser(message.getRecipientId().toString(), "/queue/messages", response);
+                messagingTemplate.convertAndSendToUser(message.getSenderId().toString(), "/queue/messages", response);
+                log.info("Private message {} delivered from {} to {}", message.getId(), message.getSenderId(), message.getRecipientId());
+            } else {
+                roomBroadcaster.broadcast(message.getRoomId(), "", response);
+                log.info("Broadcasted message {} to room {}", message.getId(), message.getRoomId());
+            }
+        });
+    }
+
+    /**
+     * One combined frame per room (or private chat) instead of one frame per message
+     */
+    @TransactionalEventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onMessageBatchSent(MessageBatchSentEvent event) {
+        Map<String, List<Integer>> byRoom = new LinkedHashMap<>();
+        for (int i = 0; i < event.messages().size(); i++) {
+            byRoom.computeIfAbsent(event.messages().get(i).getRoomId(), roomId -> new ArrayList<>()).add(i);
+        }
+        
+        byRoom.forEach((roomId, indexes) -> {
+            Message first = event.messages().get(indexes.get(0));
+            List<MessageResponse> responses = indexes.stream().map(event.responses()::get).toList();
+            MessageBatchResponse batch = MessageBatchResponse.builder().roomId(roomId).messages(responses).build();
+            chatEventExecutor.execute(roomId, () -> {
+                if (first.getRecipientId() != null) {
+                    messagingTemplate.convertAndSendToUser(first.getRecipientId().toString(), "/queue/messages-batch", batch);
+                    messagingTemplate.convertAndSendToUser(first.getSenderId().toString(), "/queue/messages-batch", batch);
+                } else {
+                    roomBroadcaster.broadcast(roomId, "/batch", batch);
+                }
+                log.info("Broadcasted batch of {} messages for room {}", responses.size(), roomId);
+            });
+        });
+    }
+
+    @TransactionalEventListener
+    public void onMessageEdited(MessageEditedEvent event) {
+        broadcastChange(event.message(), event.response(), "/queue/message-edit", "/edit");
+    }
+
+    @TransactionalEventListener
+    public void onMessageDeleted(MessageDeletedEvent event) {
+        broadcastChange(event.message(), event.response(), "/queue/message-delete", "/delete");
+    }
+
+    @TransactionalEventListener
+    public void onMessagesRead(MessagesReadEvent event) {
+        chatEventExecutor.execute(event.roomId(), () -> {
+            // Notify each sender that their message was read
+            for (MessageResponse receipt : event.receipts()) {
+                messagingTemplate.convertAndSendToUser(receipt.getSenderId().toString(), "/queue/read-receipt", receipt);
+            }
+            log.debug("Sent {} read receipts for user {} in room {}", event.receipts().size(), event.readerId(), event.roomId());
+        });
+    }
+
+    @TransactionalEventListener
+    public void onReactionChanged(ReactionChangedEvent event) {
+        Message message = event.message();
+        String privateQueue = event.added() ? "/queue/message-reaction" : "/queue/message-reaction-remove";
+        String roomTopicSuffix = event.added() ? "/reaction" : "/reaction-remove";
+        chatEventExecutor.execute(message.getRoomId(), () -> {
+            if (message.getRecipientId() != null) {
+                // Send to both users
+                messagingTemplate.convertAndSendToUser(message.getSenderId().toString(), privateQueue, event.payload());
+                messagingTemplate.convertAndSendToUser(message.getRecipientId().toString(), privateQueue, event.payload());
+            } else {
+                roomBroadcaster.broadcast(message.getRoomId(), roomTopicSuffix, event.payload());
+            }
+        });
+    }
+
+    @TransactionalEventListener
+    public void onMentionNotification(MentionNotificationEvent event) {
+        event.unreadCounts().forEach((userId, unreadCount) -> chatEventExecutor.execute(userId, () -> {
+            if (event.notification() != null) {
+                messagingTemplate.convertAndSend("/user/" + userId + "/queue/mentions", event.notification());
+            }
+            messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/mention-count", Map.of("unreadCount", unreadCount));
+        }));
+    }
+
+    private void broadcastChange(Message message, MessageResponse response, String privateQueue, String roomTopicSuffix) {
+        chatEventExecutor.execute(message.getRoomId(), () -> {
+            if (message.getRecipientId() != null) {
+                // Send to both sender and recipient
+                messagingTemplate.convertAndSendToUser(message.getSenderId().toString(), privateQueue, response);
+                messagingTemplate.convertAndSendToUser(message.getRecipientId().toString(), privateQueue, response);
+            } else {
+                roomBroadcaster.broadcast(message.getRoomId(), roomTopicSuffix, response);
+            }
+        });
+    }
+}
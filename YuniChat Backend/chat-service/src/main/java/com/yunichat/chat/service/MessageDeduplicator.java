@@ -0,0 +1,165 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.dto.MessageResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deduplication window for client-generated message IDs.
+ * Each sender keeps a bounded, time-limited map of clientMessageId -> send result; a retry of an
+ * in-flight or completed send gets the original result instead of a second row. An optional Redis
+ * tier remembers the server message ID for the same window so retries that land on another
+ * instance, or after a restart, are also recognised.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MessageDeduplicator {
+
+    private static final String REDIS_KEY_PREFIX = "chat:dedup:";
+
+    private final ObjectProvider<StringRedisTemplate> redisTemplateProvider;
+
+    @Value("${chat.dedup.window-size:256}")
+    private int windowSize;
+
+    @Value("${chat.dedup.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${chat.dedup.redis.enabled:false}")
+    private boolean redisEnabled;
+
+    private final Map<Long, SenderWindow> windows = new ConcurrentHashMap<>();
+
+    /**
+     * Claim a client message ID for sending.
+     * Returns null when the caller now owns the send and must call complete or release;
+     * otherwise returns the original send's (possibly still pending) result.
+     */
+    public CompletableFuture<MessageResponse> claim(long senderId, String clientMessageId) {
+        SenderWindow window = windows.computeIfAbsent(senderId, id -> new SenderWindow(windowSize));
+        return window.claim(clientMessageId, System.currentTimeMillis(), ttlSeconds * 1000);
+    }
+
+    public void complete(long senderId, String clientMessageId, MessageResponse response) {
+        SenderWindow window = windows.get(senderId);
+        if (window != null) {
+            window.complete(clientMessageId, response);
+        }
+        
+        StringRedisTemplate redis = redisTier();
+        if (redis != null) {
+            try {
+                redis.opsForValue().set(redisKey(senderId, clientMessageId), response.getId().toString(),
+                        Duration.ofSeconds(ttlSeconds));
+            } catch (Exception e) {
+                log.warn("Could not record client message ID in Redis: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Give up a claim after a failed send so the client may retry with the same ID
+     */
+    public void release(long senderId, String clientMessageId, Throwable failure) {
+        SenderWindow window = windows.get(senderId);
+        if (window != null) {
+            window.release(clientMessageId, failure);
+        }
+    }
+
+    /**
+     * Server message ID recorded by the Redis tier, or null when unknown or Redis is disabled
+     */
+    public Long findRecordedMessageId(long senderId, String clientMessageId) {
+        StringRedisTemplate redis = redisTier();
+        if (redis == null) {
+            return null;
+        }
+        try {
+            String messageId = redis.opsForValue().get(redisKey(senderId, clientMessageId));
+            return messageId != null ? Long.valueOf(messageId) : null;
+        } catch (Exception e) {
+            // Fail open: an unreachable Redis must not block sending
+            log.warn("Could not read client message ID from Redis: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Drop windows of senders that have been quiet for longer than the TTL
+     */
+    @Scheduled(fixedDelayString = "${chat.dedup.sweep-interval-ms:60000}")
+    public void sweep() {
+        long cutoff = System.currentTimeMillis() - ttlSeconds * 1000;
+        windows.entrySet().removeIf(entry -> entry.getValue().isIdleSince(cutoff));
+    }
+
+    private StringRedisTemplate redisTier() {
+        return redisEnabled ? redisTemplateProvider.getIfAvailable() : null;
+    }
+
+    private String redisKey(long senderId, String clientMessageId) {
+        return REDIS_KEY_PREFIX + senderId + ":" + clientMessageId;
+    }
+
+    /**
+     * Insertion-ordered map capped at windowSize entries; guarded by this
+     */
+    private static final class SenderWindow {
+
+        private final Map<String, Entry> entries;
+        private long lastActivity = System.currentTimeMillis();
+
+        SenderWindow(int windowSize) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > windowSize;
+                }
+            };
+        }
+
+        synchronized CompletableFuture<MessageResponse> claim(String clientMessageId, long now, long ttlMillis) {
+            lastActivity = now;
+            Entry existing = entries.get(clientMessageId);
+            if (existing != null && now - existing.claimedAt <= ttlMillis) {
+                return existing.result;
+            }
+            entries.put(clientMessageId, new Entry(now, new CompletableFuture<>()));
+            return null;
+        }
+
+        synchronized void complete(String clientMessageId, MessageResponse response) {
+            Entry entry = entries.get(clientMessageId);
+            if (entry != null) {
+                entry.result.complete(response);
+            }
+        }
+
+        synchronized void release(String clientMessageId, Throwable failure) {
+            Entry entry = entries.remove(clientMessageId);
+            if (entry != null) {
+                entry.result.completeExceptionally(failure);
+            }
+        }
+
+        synchronized boolean isIdleSince(long cutoff) {
+            return lastActivity < cutoff;
+        }
+    }
+
+    private record Entry(long claimedAt, CompletableFuture<MessageResponse> result) {
+    }
+}
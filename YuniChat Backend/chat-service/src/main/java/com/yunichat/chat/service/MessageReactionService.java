@@ -3,16 +3,21 @@ package com.yunichat.chat.service;
 import com.yunichat.chat.dto.MessageReactionResponse;
 import com.yunichat.chat.entity.Message;
 import com.yunichat.chat.entity.MessageReaction;
+import com.yunichat.chat.event.ReactionChangedEvent;
+import com.yunichat.chat.repository.MessageReactionCountRepository;
 import com.yunichat.chat.repository.MessageReactionRepository;
 import com.yunichat.chat.repository.MessageRepository;
 import com.yunichat.common.exception.BadRequestException;
 import com.yunichat.common.exception.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -23,8 +28,9 @@ import java.util.stream.Collectors;
 public class MessageReactionService {
 
     private final MessageReactionRepository reactionRepository;
+    private final MessageReactionCountRepository reactionCountRepository;
     private final MessageRepository messageRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public MessageReactionResponse addReaction(Long messageId, Long userId, String emoji) {
@@ -44,23 +50,13 @@ public class MessageReactionService {
                 .build();
         
         reaction = reactionRepository.save(reaction);
+        reactionCountRepository.increment(messageId, emoji);
         log.info("User {} added reaction {} to message {}", userId, emoji, messageId);
         
         MessageReactionResponse response = mapToResponse(reaction);
         
-        // Broadcast reaction to all participants
-        if (message.getRoomId().startsWith("private_")) {
-            // Extract user IDs from room ID
-            String[] parts = message.getRoomId().split("_");
-            Long userId1 = Long.parseLong(parts[1]);
-            Long userId2 = Long.parseLong(parts[2]);
-            
-            // Send to both users
-            messagingTemplate.convertAndSendToUser(userId1.toString(), "/queue/message-reaction", response);
-            messagingTemplate.convertAndSendToUser(userId2.toString(), "/queue/message-reaction", response);
-        } else {
-            messagingTemplate.convertAndSend("/topic/room/" + message.getRoomId() + "/reaction", response);
-        }
+        // Broadcast reaction to all participants after commit
+        eventPublisher.publishEvent(new ReactionChangedEvent(message, userId, emoji, true, response));
         
         return response;
     }
@@ -74,6 +70,7 @@ public class MessageReactionService {
                 .orElseThrow(() -> new ResourceNotFoundException("Message not found"));
         
         reactionRepository.delete(reaction);
+        reactionCountRepository.decrement(messageId, emoji);
         log.info("User {} removed reaction {} from message {}", userId, emoji, messageId);
         
         // Broadcast reaction removal
@@ -84,16 +81,7 @@ public class MessageReactionService {
             "emoji", emoji
         );
         
-        if (message.getRoomId().startsWith("private_")) {
-            String[] parts = message.getRoomId().split("_");
-            Long userId1 = Long.parseLong(parts[1]);
-            Long userId2 = Long.parseLong(parts[2]);
-            
-            messagingTemplate.convertAndSendToUser(userId1.toString(), "/queue/message-reaction-remove", removalData);
-            messagingTemplate.convertAndSendToUser(userId2.toString(), "/queue/message-reaction-remove", removalData);
-        } else {
-            messagingTemplate.convertAndSend("/topic/room/" + message.getRoomId() + "/reaction-remove", removalData);
-        }
+        eventPublisher.publishEvent(new ReactionChangedEvent(message, userId, emoji, false, removalData));
     }
 
     public List<MessageReactionResponse> getMessageReactions(Long messageId) {
@@ -105,26 +93,32 @@ public class MessageReactionService {
     }
 
     public List<MessageReactionResponse.ReactionSummary> getReactionSummary(Long messageId, Long currentUserId) {
-        List<MessageReaction> reactions = reactionRepository.findByMessageId(messageId);
+        return getReactionSummaries(List.of(messageId), currentUserId)
+                .getOrDefault(messageId, List.of());
+    }
+
+    /**
+     * Reaction summaries for a page of messages, served from the materialized counters in one query.
+     * Messages without reactions are absent from the returned map.
+     */
+    public Map<Long, List<MessageReactionResponse.ReactionSummary>> getReactionSummaries(Collection<Long> messageIds, Long currentUserId) {
+        if (messageIds == null || messageIds.isEmpty()) {
+            return Map.of();
+        }
         
-        // Group by emoji and count
-        Map<String, List<MessageReaction>> groupedByEmoji = reactions.stream()
-                .collect(Collectors.groupingBy(MessageReaction::getEmoji));
+        // -1 never matches a user, so anonymous callers simply get userReacted = false
+        Long userId = currentUserId != null ? currentUserId : -1L;
         
-        return groupedByEmoji.entrySet().stream()
-                .map(entry -> {
-                    String emoji = entry.getKey();
-                    List<MessageReaction> emojiReactions = entry.getValue();
-                    boolean userReacted = emojiReactions.stream()
-                            .anyMatch(r -> r.getUserId().equals(currentUserId));
-                    
-                    return MessageReactionResponse.ReactionSummary.builder()
-                            .emoji(emoji)
-                            .count((long) emojiReactions.size())
-                            .userReacted(userReacted)
-                            .build();
-                })
-                .collect(Collectors.toList());
+        Map<Long, List<MessageReactionResponse.ReactionSummary>> summaries = new HashMap<>();
+        for (MessageReactionCountRepository.ReactionSummaryView view : reactionCountRepository.findSummaries(messageIds, userId)) {
+            summaries.computeIfAbsent(view.getMessageId(), id -> new ArrayList<>())
+                    .add(MessageReactionResponse.ReactionSummary.builder()
+                            .emoji(view.getEmoji())
+                            .count(view.getReactionCount())
+                            .userReacted(Boolean.TRUE.equals(view.getUserReacted()))
+                            .build());
+        }
+        return summaries;
     }
 
     private MessageReactionResponse mapToResponse(MessageReaction reaction) {
@@ -0,0 +1,424 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.dto.MessageSearchResponse;
+import com.yunichat.chat.dto.MessageSearchResult;
+import com.yunichat.chat.entity.Message;
+import com.yunichat.chat.entity.RoomMember;
+import com.yunichat.chat.event.MessageBatchSentEvent;
+import com.yunichat.chat.event.MessageDeletedEvent;
+import com.yunichat.chat.event.MessageEditedEvent;
+import com.yunichat.chat.event.MessageSentEvent;
+import com.yunichat.chat.repository.MessageRepository;
+import com.yunichat.chat.repository.RoomMemberRepository;
+import com.yunichat.chat.util.OrderedExecutor;
+import com.yunichat.common.exception.BadRequestException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherLifetimeManager;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.search.highlight.SimpleSpanFragmenter;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * In-process full-text index over chat history.
+ * Documents are kept in sync from committed send, edit and delete events and the whole
+ * index is rebuilt from Postgres on startup. Public chat is ephemeral (30 minutes)
+ * and is intentionally not indexed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageSearchService {
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_ID_SORT = "id_sort";
+    private static final String FIELD_ROOM_ID = "roomId";
+    private static final String FIELD_PARTICIPANT = "participant";
+    private static final String FIELD_SENDER_ID = "senderId";
+    private static final String FIELD_CONTENT = "content";
+    private static final String FIELD_CREATED_AT = "createdAt";
+
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final int SNIPPET_LENGTH = 120;
+
+    private static final Sort RELEVANCE_SORT = new Sort(
+            SortField.FIELD_SCORE,
+            new SortField(FIELD_ID_SORT, SortField.Type.LONG, true));
+
+    private final MessageRepository messageRepository;
+    private final RoomMemberRepository roomMemberRepository;
+    private final RoomMembershipCache membershipCache;
+    private final OrderedExecutor chatEventExecutor;
+
+    @Value("${chat.search.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    @Value("${chat.search.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    @Value("${chat.search.cursor-ttl-seconds:600}")
+    private int cursorTtlSeconds;
+
+    // With the Kafka event log enabled, ChatEventSearchConsumer feeds the index instead of the in-process events
+    @Value("${chat.events.kafka.enabled:false}")
+    private boolean kafkaEventsEnabled;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private Directory directory;
+    private IndexWriter indexWriter;
+    private SearcherManager searcherManager;
+    // Index snapshots handed out with a cursor, so every page of one search is scored against the same index
+    private SearcherLifetimeManager searcherLifetimeManager;
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = new ByteBuffersDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        indexWriter = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(indexWriter, null);
+        searcherLifetimeManager = new SearcherLifetimeManager();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherLifetimeManager.close();
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+    }
+
+    /**
+     * Bulk-load every searchable message from the database in keyset batches
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        if (!rebuildOnStartup) {
+            log.info("Search index rebuild on startup is disabled");
+            return;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        long lastId = 0L;
+        int indexed = 0;
+        try {
+            indexWriter.deleteAll();
+            List<Message> batch;
+            do {
+                batch = messageRepository.findIndexableAfter(lastId, PageRequest.of(0, rebuildBatchSize));
+                for (Message message : batch) {
+                    indexWriter.addDocument(toDocument(message));
+                    lastId = message.getId();
+                }
+                indexed += batch.size();
+            } while (batch.size() == rebuildBatchSize);
+
+            searcherManager.maybeRefreshBlocking();
+            log.info("Search index rebuilt: {} messages in {} ms", indexed, System.currentTimeMillis() - startedAt);
+        } catch (IOException e) {
+            log.error("Failed to rebuild search index after {} messages: {}", indexed, e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener
+    public void onMessageSent(MessageSentEvent event) {
+        if (kafkaEventsEnabled) {
+            return;
+        }
+        chatEventExecutor.execute(event.message().getRoomId(), () -> indexMessage(event.message()));
+    }
+
+    @TransactionalEventListener
+    public void onMessageBatchSent(MessageBatchSentEvent event) {
+        if (kafkaEventsEnabled) {
+            return;
+        }
+        event.messages().forEach(message -> chatEventExecutor.execute(message.getRoomId(), () -> indexMessage(message)));
+    }
+
+    @TransactionalEventListener
+    public void onMessageEdited(MessageEditedEvent event) {
+        if (kafkaEventsEnabled) {
+            return;
+        }
+        chatEventExecutor.execute(event.message().getRoomId(), () -> indexMessage(event.message()));
+    }
+
+    @TransactionalEventListener
+    public void onMessageDeleted(MessageDeletedEvent event) {
+        if (kafkaEventsEnabled) {
+            return;
+        }
+        chatEventExecutor.execute(event.message().getRoomId(), () -> removeMessage(event.message().getId()));
+    }
+
+    /**
+     * Add or replace a message in the index
+     */
+    public void indexMessage(Message message) {
+        if (message.getId() == null || "public".equals(message.getRoomId())) {
+            return;
+        }
+        try {
+            if (Boolean.TRUE.equals(message.getIsDeleted())) {
+                indexWriter.deleteDocuments(new Term(FIELD_ID, message.getId().toString()));
+            } else {
+                indexWriter.updateDocument(new Term(FIELD_ID, message.getId().toString()), toDocument(message));
+            }
+        } catch (IOException e) {
+            log.error("Failed to index message {}: {}", message.getId(), e.getMessage());
+        }
+    }
+
+    public void removeMessage(Long messageId) {
+        try {
+            indexWriter.deleteDocuments(new Term(FIELD_ID, messageId.toString()));
+        } catch (IOException e) {
+            log.error("Failed to remove message {} from search index: {}", messageId, e.getMessage());
+        }
+    }
+
+    /**
+     * Make recent index changes visible to searchers (near real-time) and drop snapshots held past the cursor TTL
+     */
+    @Scheduled(fixedDelayString = "${chat.search.refresh-interval-ms:1000}")
+    public void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+            searcherLifetimeManager.prune(new SearcherLifetimeManager.PruneByAge(cursorTtlSeconds));
+        } catch (IOException e) {
+            log.error("Failed to refresh search index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Search the messages visible to a user, ranked by relevance, newest first on ties.
+     * Visibility is limited to rooms the user is a member of and private chats the user takes part in.
+     * Later pages search the snapshot the first page used, since scores, and so the cursor position, shift
+     * as the index changes.
+     */
+    public MessageSearchResponse search(Long userId, String queryText, String roomId, String cursor, int size) {
+        if (queryText == null || queryText.isBlank()) {
+            throw new BadRequestException("Search query is required");
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, FIELD_CONTENT);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query textQuery = parser.parse(queryText);
+
+        Query query = new BooleanQuery.Builder()
+                .add(textQuery, BooleanClause.Occur.MUST)
+                .add(buildAccessFilter(userId, roomId), BooleanClause.Occur.FILTER)
+                .build();
+
+        SearchCursor after = decodeCursor(cursor);
+        IndexSearcher searcher = null;
+        boolean pinned = false;
+        try {
+            if (after != null) {
+                searcher = searcherLifetimeManager.acquire(after.searcherVersion());
+                pinned = searcher != null;
+            }
+            if (searcher == null) {
+                // First page, or the snapshot expired: continue on the current index
+                searcher = searcherManager.acquire();
+            }
+            long searcherVersion = pinned ? after.searcherVersion() : searcherLifetimeManager.record(searcher);
+            TopFieldDocs topDocs = searcher.searchAfter(after != null ? after.position(searcher) : null,
+                    query, pageSize, RELEVANCE_SORT, true);
+
+            QueryScorer scorer = new QueryScorer(textQuery, FIELD_CONTENT);
+            Highlighter highlighter = new Highlighter(
+                    new SimpleHTMLFormatter("<mark>", "</mark>"), new SimpleHTMLEncoder(), scorer);
+            highlighter.setTextFragmenter(new SimpleSpanFragmenter(scorer, SNIPPET_LENGTH));
+
+            List<MessageSearchResult> results = new ArrayList<>(topDocs.scoreDocs.length);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                Document doc = searcher.storedFields().document(scoreDoc.doc);
+                results.add(MessageSearchResult.builder()
+                        .messageId(Long.parseLong(doc.get(FIELD_ID)))
+                        .roomId(doc.get(FIELD_ROOM_ID))
+                        .senderId(doc.getField(FIELD_SENDER_ID).numericValue().longValue())
+                        .snippet(buildSnippet(highlighter, doc.get(FIELD_CONTENT)))
+                        .score(scoreDoc.score)
+                        .createdAt(LocalDateTime.ofInstant(
+                                Instant.ofEpochMilli(doc.getField(FIELD_CREATED_AT).numericValue().longValue()),
+                                ZoneOffset.UTC))
+                        .build());
+            }
+
+            String nextCursor = null;
+            if (topDocs.scoreDocs.length == pageSize) {
+                nextCursor = encodeCursor(searcherVersion, (FieldDoc) topDocs.scoreDocs[topDocs.scoreDocs.length - 1]);
+            }
+
+            log.debug("Search by user {} for '{}' returned {} results", userId, queryText, results.size());
+            return MessageSearchResponse.builder()
+                    .results(results)
+                    .nextCursor(nextCursor)
+                    .build();
+        } catch (IOException e) {
+            log.error("Search failed for user {}: {}", userId, e.getMessage());
+            throw new BadRequestException("Search is temporarily unavailable");
+        } finally {
+            if (searcher != null) {
+                try {
+                    if (pinned) {
+                        searcherLifetimeManager.release(searcher);
+                    } else {
+                        searcherManager.release(searcher);
+                    }
+                } catch (IOException e) {
+                    log.warn("Failed to release index searcher: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Query buildAccessFilter(Long userId, String roomId) {
+        if (roomId != null && !roomId.isBlank()) {
+            if ("public".equals(roomId)) {
+                throw new BadRequestException("Public chat history is not searchable");
+            }
+            boolean allowed = roomId.startsWith("private_")
+                    ? isParticipant(roomId, userId)
+                    : membershipCache.isMember(roomId, userId);
+            if (!allowed) {
+                throw new BadRequestException("You do not have access to this room");
+            }
+            return new TermQuery(new Term(FIELD_ROOM_ID, roomId));
+        }
+
+        List<BytesRef> memberRooms = roomMemberRepository.findByUserId(userId).stream()
+                .map(RoomMember::getRoomId)
+                .map(BytesRef::new)
+                .toList();
+
+        BooleanQuery.Builder access = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(FIELD_PARTICIPANT, userId.toString())), BooleanClause.Occur.SHOULD);
+        if (!memberRooms.isEmpty()) {
+            access.add(new TermInSetQuery(FIELD_ROOM_ID, memberRooms), BooleanClause.Occur.SHOULD);
+        }
+        return access.setMinimumNumberShouldMatch(1).build();
+    }
+
+    private Document toDocument(Message message) {
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_ID, message.getId().toString(), Field.Store.YES));
+        doc.add(new NumericDocValuesField(FIELD_ID_SORT, message.getId()));
+        doc.add(new StringField(FIELD_ROOM_ID, message.getRoomId(), Field.Store.YES));
+        doc.add(new StoredField(FIELD_SENDER_ID, message.getSenderId()));
+        doc.add(new TextField(FIELD_CONTENT, message.getContent() != null ? message.getContent() : "", Field.Store.YES));
+        LocalDateTime createdAt = message.getCreatedAt() != null ? message.getCreatedAt() : LocalDateTime.now();
+        doc.add(new StoredField(FIELD_CREATED_AT, createdAt.toInstant(ZoneOffset.UTC).toEpochMilli()));
+
+        // Private chats are visible to both participants regardless of room membership
+        if (message.getRecipientId() != null) {
+            doc.add(new StringField(FIELD_PARTICIPANT, message.getSenderId().toString(), Field.Store.NO));
+            doc.add(new StringField(FIELD_PARTICIPANT, message.getRecipientId().toString(), Field.Store.NO));
+        }
+        return doc;
+    }
+
+    private boolean isParticipant(String privateRoomId, Long userId) {
+        String[] parts = privateRoomId.split("_");
+        return parts.length == 3 && (parts[1].equals(userId.toString()) || parts[2].equals(userId.toString()));
+    }
+
+    private String buildSnippet(Highlighter highlighter, String content) {
+        try {
+            String fragment = highlighter.getBestFragment(analyzer, FIELD_CONTENT, content);
+            if (fragment != null) {
+                return fragment;
+            }
+        } catch (Exception e) {
+            log.debug("Could not highlight search result: {}", e.getMessage());
+        }
+        String truncated = content.length() > SNIPPET_LENGTH ? content.substring(0, SNIPPET_LENGTH) : content;
+        return SimpleHTMLEncoder.htmlEncode(truncated);
+    }
+
+    /**
+     * Cursor is the index snapshot version plus the (score, messageId) pair of the last hit, matching RELEVANCE_SORT
+     */
+    private String encodeCursor(long searcherVersion, FieldDoc last) {
+        float score = (Float) last.fields[0];
+        long messageId = (Long) last.fields[1];
+        String raw = searcherVersion + ":" + Integer.toHexString(Float.floatToIntBits(score)) + ":" + messageId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private SearchCursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            long searcherVersion = Long.parseLong(parts[0]);
+            float score = Float.intBitsToFloat(Integer.parseUnsignedInt(parts[1], 16));
+            return new SearchCursor(searcherVersion, score, Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid search cursor");
+        }
+    }
+
+    private record SearchCursor(long searcherVersion, float score, long messageId) {
+
+        // Sort values only tie on the last hit itself; placing it on the reader's last doc keeps it off the next page
+        FieldDoc position(IndexSearcher searcher) {
+            return new FieldDoc(searcher.getIndexReader().maxDoc() - 1, score, new Object[]{score, messageId});
+        }
+    }
+}
@@ -1,27 +1,41 @@
 package com.yunichat.chat.service;
 
+import com.yunichat.chat.dto.MessageReactionResponse;
 import com.yunichat.chat.dto.MessageRequest;
 import com.yunichat.chat.dto.MessageResponse;
+import com.yunichat.chat.entity.Conversation;
 import com.yunichat.chat.entity.Message;
+import com.yunichat.chat.event.MessageBatchSentEvent;
+import com.yunichat.chat.event.MessageDeletedEvent;
+import com.yunichat.chat.event.MessageEditedEvent;
+import com.yunichat.chat.event.MessageSentEvent;
+import com.yunichat.chat.event.MessagesReadEvent;
 import com.yunichat.chat.repository.MessageRepository;
-import com.yunichat.chat.repository.RoomMemberRepository;
 import com.yunichat.common.exception.BadRequestException;
 import com.yunichat.common.exception.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,38 +43,310 @@ import java.util.stream.Collectors;
 @Slf4j
 public class MessageService {
 
+    private static final long DUPLICATE_WAIT_SECONDS = 10;
+    public static final int MAX_BATCH_SIZE = 100;
+
     private final MessageRepository messageRepository;
-    private final RoomMemberRepository roomMemberRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final RoomMembershipCache membershipCache;
+    private final MessageReactionService messageReactionService;
+    private final ConversationSummaryService conversationSummaryService;
+    private final ConversationService conversationService;
+    private final MentionService mentionService;
+    private final TransactionRunner transactionRunner;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MessageDeduplicator messageDeduplicator;
+    private final RoomActivityTracker roomActivityTracker;
+    private final ContentFilter contentFilter;
     private final RestTemplate restTemplate = new RestTemplate();
     
     @Value("${USER_SERVICE_URL:http://localhost:8082}")
     private String userServiceUrl;
 
-    @Transactional
+    /**
+     * Send a message, at most once per client message ID within the deduplication window.
+     * A retry of a send that is in flight or already stored returns the original result.
+     * Blocks while an in-flight original finishes; STOMP handlers use sendMessageAsync instead.
+     */
     public MessageResponse sendMessage(MessageRequest request, Long senderId, String senderUsername) {
+        try {
+            return sendMessageAsync(request, senderId, senderUsername).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * As sendMessage, but a retry of a send that is still in flight returns a future that completes with the
+     * original result, so the calling thread is never held waiting for another send. New sends run on the
+     * calling thread and return an already completed future.
+     */
+    public CompletableFuture<MessageResponse> sendMessageAsync(MessageRequest request, Long senderId, String senderUsername) {
+        String clientMessageId = request.getClientMessageId();
+        try {
+            if (clientMessageId == null || clientMessageId.isBlank()) {
+                return CompletableFuture.completedFuture(doSendMessage(request, senderId, senderUsername));
+            }
+            
+            CompletableFuture<MessageResponse> original = messageDeduplicator.claim(senderId, clientMessageId);
+            if (original != null) {
+                log.info("Duplicate send of client message {} from user {}", clientMessageId, senderId);
+                return followOriginal(original, clientMessageId);
+            }
+            
+            try {
+                MessageResponse response = findRecordedSend(senderId, clientMessageId, senderUsername);
+                if (response == null) {
+                    response = doSendMessage(request, senderId, senderUsername);
+                }
+                messageDeduplicator.complete(senderId, clientMessageId, response);
+                return CompletableFuture.completedFuture(response);
+            } catch (RuntimeException e) {
+                messageDeduplicator.release(senderId, clientMessageId, e);
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * The result of an earlier attempt with the same client message ID, or why a retry should be sent later
+     */
+    private CompletableFuture<MessageResponse> followOriginal(CompletableFuture<MessageResponse> original,
+                                                              String clientMessageId) {
+        // The timeout applies to a copy so it never completes the original other retries are following
+        return original.copy()
+                .orTimeout(DUPLICATE_WAIT_SECONDS, TimeUnit.SECONDS)
+                .handle((response, failure) -> {
+                    if (failure == null) {
+                        return response;
+                    }
+                    if (failure instanceof TimeoutException || failure.getCause() instanceof TimeoutException) {
+                        throw new BadRequestException("Message " + clientMessageId + " is still being processed");
+                    }
+                    // The original attempt failed; its claim is released so a later retry can go through
+                    throw new BadRequestException("Message " + clientMessageId + " could not be sent, please retry");
+                });
+    }
+    
+    /**
+     * Rebuild the response for a send recorded by another instance or before a restart (Redis tier)
+     */
+    private MessageResponse findRecordedSend(Long senderId, String clientMessageId, String senderUsername) {
+        Long messageId = messageDeduplicator.findRecordedMessageId(senderId, clientMessageId);
+        if (messageId == null) {
+            return null;
+        }
+        return messageRepository.findById(messageId)
+                .filter(message -> senderId.equals(message.getSenderId()))
+                .map(message -> mapToMessageResponse(message, senderUsername))
+                .orElse(null);
+    }
+
+    /**
+     * Validation and the ignore check run before the transaction; the transaction covers only
+     * the writes, and delivery happens after commit via MessageSentEvent.
+     */
+    private MessageResponse doSendMessage(MessageRequest request, Long senderId, String senderUsername) {
+        Long recipientId = resolveRecipient(request, senderId);
+        boolean isPrivateMessage = recipientId != null;
+        ContentFilter.Result filtered = filterContent(request.getContent());
+        
+        MessageResponse response = transactionRunner.inTransaction("send", () -> {
+            // Private messages belong to a conversation row; routing later reads recipientId instead of parsing the room ID
+            Conversation conversation = isPrivateMessage ? conversationService.getOrCreate(senderId, recipientId) : null;
+            Long seq = conversation != null ? conversationService.nextSeq(conversation.getId()) : null;
+            
+            Message message = messageRepository.save(buildMessage(request, filtered, senderId, conversation, seq));
+            MessageResponse saved = mapToMessageResponse(message, senderUsername);
+            conversationSummaryService.onMessageSent(message, message.getRecipientId());
+            
+            // Persist mentions to the inbox; notifications are pushed once the message commits
+            mentionService.onMessageSent(message, senderUsername, isPrivateMessage);
+            eventPublisher.publishEvent(new MessageSentEvent(message, saved));
+            return saved;
+        });
+        
+        log.info("Message sent - type: {}, room: {}, sender: {}, mentions: {}", isPrivateMessage ? "PRIVATE" : "PUBLIC", response.getRoomId(), senderId, request.getMentionedUserIds());
+        return response;
+    }
+    
+    /**
+     * Send an ordered batch of messages in one transaction with one combined broadcast per room.
+     * Client message IDs are deduplicated exactly as for single sends; results keep request order.
+     * Validation and storage run on the calling thread; the future also waits for items that an earlier
+     * attempt is still sending, without holding the calling thread.
+     */
+    public CompletableFuture<List<MessageResponse>> sendMessageBatch(List<MessageRequest> requests, Long senderId, String senderUsername) {
+        if (requests == null || requests.isEmpty()) {
+            throw new BadRequestException("Batch must contain at least one message");
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Batch cannot contain more than " + MAX_BATCH_SIZE + " messages");
+        }
+        
+        MessageResponse[] results = new MessageResponse[requests.size()];
+        Map<String, Integer> claimed = new LinkedHashMap<>();
+        Map<Integer, CompletableFuture<MessageResponse>> inFlight = new LinkedHashMap<>();
+        try {
+            List<Integer> toSend = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                String clientMessageId = requests.get(i).getClientMessageId();
+                if (clientMessageId == null || clientMessageId.isBlank()) {
+                    toSend.add(i);
+                    continue;
+                }
+                if (claimed.containsKey(clientMessageId)) {
+                    throw new BadRequestException("Duplicate client message ID in batch: " + clientMessageId);
+                }
+                
+                CompletableFuture<MessageResponse> original = messageDeduplicator.claim(senderId, clientMessageId);
+                if (original != null) {
+                    inFlight.put(i, followOriginal(original, clientMessageId));
+                    continue;
+                }
+                claimed.put(clientMessageId, i);
+                results[i] = findRecordedSend(senderId, clientMessageId, senderUsername);
+                if (results[i] == null) {
+                    toSend.add(i);
+                }
+            }
+            
+            // Validate each distinct destination once, before the transaction
+            Map<String, Long> recipients = new HashMap<>();
+            Long[] recipientIds = new Long[requests.size()];
+            ContentFilter.Result[] filtered = new ContentFilter.Result[requests.size()];
+            for (int i : toSend) {
+                MessageRequest request = requests.get(i);
+                filtered[i] = filterContent(request.getContent());
+                String targetKey = request.getRecipientId() != null ? "user:" + request.getRecipientId() : "room:" + request.getRoomId();
+                if (!recipients.containsKey(targetKey)) {
+                    recipients.put(targetKey, resolveRecipient(request, senderId));
+                }
+                recipientIds[i] = recipients.get(targetKey);
+            }
+            
+            if (!toSend.isEmpty()) {
+                List<MessageResponse> sent = persistBatch(requests, filtered, toSend, recipientIds, senderId, senderUsername);
+                for (int k = 0; k < toSend.size(); k++) {
+                    results[toSend.get(k)] = sent.get(k);
+                }
+            }
+            
+            claimed.forEach((clientMessageId, index) -> messageDeduplicator.complete(senderId, clientMessageId, results[index]));
+        } catch (RuntimeException e) {
+            claimed.keySet().forEach(clientMessageId -> messageDeduplicator.release(senderId, clientMessageId, e));
+            throw e;
+        }
+        
+        log.info("Message batch sent - sender: {}, requested: {}", senderId, requests.size());
+        if (inFlight.isEmpty()) {
+            return CompletableFuture.completedFuture(Arrays.asList(results));
+        }
+        return CompletableFuture.allOf(inFlight.values().toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    inFlight.forEach((index, original) -> results[index] = original.join());
+                    return Arrays.asList(results);
+                });
+    }
+    
+    private List<MessageResponse> persistBatch(List<MessageRequest> requests, ContentFilter.Result[] filtered,
+                                               List<Integer> toSend, Long[] recipientIds,
+                                               Long senderId, String senderUsername) {
+        return transactionRunner.inTransaction("send-batch", () -> {
+            // One conversation lookup and one sequence reservation per private conversation in the batch
+            Map<Long, Conversation> conversations = new HashMap<>();
+            Map<Long, Integer> perRecipient = new HashMap<>();
+            for (int i : toSend) {
+                if (recipientIds[i] != null) {
+                    perRecipient.merge(recipientIds[i], 1, Integer::sum);
+                }
+            }
+            Map<Long, Long> nextSeq = new HashMap<>();
+            perRecipient.forEach((recipientId, count) -> {
+                Conversation conversation = conversationService.getOrCreate(senderId, recipientId);
+                conversations.put(recipientId, conversation);
+                nextSeq.put(recipientId, conversationService.reserveSeqs(conversation.getId(), count));
+            });
+            
+            List<Message> messages = new ArrayList<>(toSend.size());
+            for (int i : toSend) {
+                Long recipientId = recipientIds[i];
+                Conversation conversation = recipientId != null ? conversations.get(recipientId) : null;
+                Long seq = recipientId != null ? nextSeq.merge(recipientId, 1L, Long::sum) - 1 : null;
+                messages.add(buildMessage(requests.get(i), filtered[i], senderId, conversation, seq));
+            }
+            
+            // IDENTITY keys rule out JDBC insert batching, but the whole batch shares one transaction and connection
+            messages = messageRepository.saveAll(messages);
+            List<MessageResponse> responses = messages.stream()
+                    .map(message -> mapToMessageResponse(message, senderUsername))
+                    .collect(Collectors.toList());
+            
+            conversationSummaryService.onMessagesSent(messages);
+            for (Message message : messages) {
+                mentionService.onMessageSent(message, senderUsername, message.getRecipientId() != null);
+            }
+            eventPublisher.publishEvent(new MessageBatchSentEvent(messages, responses));
+            return responses;
+        });
+    }
+    
+    /**
+     * Resolve and authorize the destination of a send: the recipient for private messages, null for rooms.
+     * Runs outside any transaction because the ignore check is a remote call.
+     */
+    private Long resolveRecipient(MessageRequest request, Long senderId) {
         // For private messages (no roomId or starts with "private_"), skip room checks
         boolean isPrivateMessage = request.getRoomId() == null || request.getRoomId().startsWith("private_") || request.getRecipientId() != null;
         
-        // Check if sender is ignored by recipient for private messages
-        if (isPrivateMessage && request.getRecipientId() != null) {
-            if (isUserIgnored(request.getRecipientId(), senderId)) {
-                log.warn("Message blocked: User {} has ignored user {}", request.getRecipientId(), senderId);
+        if (isPrivateMessage) {
+            Long recipientId = request.getRecipientId() != null
+                    ? request.getRecipientId()
+                    : conversationService.recipientFromRoomKey(request.getRoomId(), senderId);
+            
+            // Check if sender is ignored by recipient
+            if (isUserIgnored(recipientId, senderId)) {
+                log.warn("Message blocked: User {} has ignored user {}", recipientId, senderId);
                 throw new BadRequestException("Unable to send message. This user has restricted messages from you.");
             }
+            return recipientId;
         }
         
-        if (!isPrivateMessage && !"public".equals(request.getRoomId())) {
+        if (!"public".equals(request.getRoomId())) {
             // Verify user is member of the room (for non-public rooms only)
-            if (!roomMemberRepository.existsByRoomIdAndUserId(request.getRoomId(), senderId)) {
+            if (!membershipCache.isMember(request.getRoomId(), senderId)) {
                 throw new BadRequestException("User is not a member of this room");
             }
         }
-        
-        Message message = Message.builder()
-                .roomId(request.getRoomId() != null ? request.getRoomId() : "private_" + Math.min(senderId, request.getRecipientId()) + "_" + Math.max(senderId, request.getRecipientId()))
+        return null;
+    }
+    
+    /**
+     * Run content through moderation; rejected content fails the whole send before anything is written
+     */
+    private ContentFilter.Result filterContent(String content) {
+        ContentFilter.Result result = contentFilter.apply(content);
+        if (result.rejected()) {
+            throw new BadRequestException("Message contains content that is not allowed");
+        }
+        return result;
+    }
+    
+    private Message buildMessage(MessageRequest request, ContentFilter.Result filtered, Long senderId,
+                                 Conversation conversation, Long seq) {
+        return Message.builder()
+                .roomId(conversation != null ? conversation.getRoomKey() : request.getRoomId())
                 .senderId(senderId)
-                .content(request.getContent())
+                .conversationId(conversation != null ? conversation.getId() : null)
+                .recipientId(conversation != null ? conversation.peerOf(senderId) : null)
+                .seq(seq)
+                .clientMessageId(request.getClientMessageId())
+                .content(filtered.content())
+                .isFlagged(filtered.flagged())
                 .type(request.getType())
                 .fileUrl(request.getFileUrl())
                 .fileName(request.getFileName())
@@ -70,37 +356,6 @@ public class MessageService {
                 .isEdited(false)
                 .isDeleted(false)
                 .build();
-        
-        message = messageRepository.save(message);
-        log.info("Message sent - type: {}, room: {}, sender: {}, mentions: {}", isPrivateMessage ? "PRIVATE" : "PUBLIC", message.getRoomId(), senderId, request.getMentionedUserIds());
-        
-        MessageResponse response = mapToMessageResponse(message, senderUsername);
-        
-        // Send mention notifications
-        if (request.getMentionedUserIds() != null && !request.getMentionedUserIds().isEmpty()) {
-            for (Long mentionedUserId : request.getMentionedUserIds()) {
-                if (!mentionedUserId.equals(senderId)) {
-                    Map<String, Object> mentionNotification = Map.of(
-                        "messageId", message.getId(),
-                        "senderId", senderId,
-                        "senderUsername", senderUsername,
-                        "content", request.getContent(),
-                        "chatType", isPrivateMessage ? "PRIVATE" : "PUBLIC",
-                        "roomId", message.getRoomId()
-                    );
-                    messagingTemplate.convertAndSend("/user/" + mentionedUserId + "/queue/mentions", mentionNotification);
-                    log.info("Sent mention notification to user {}", mentionedUserId);
-                }
-            }
-        }
-        
-        // Only broadcast to room topic for non-private messages
-        if (!isPrivateMessage) {
-            messagingTemplate.convertAndSend("/topic/room/" + request.getRoomId(), response);
-            log.info("Broadcasted to /topic/room/{}", request.getRoomId());
-        }
-        
-        return response;
     }
     
     private boolean isUserIgnored(Long ignorerId, Long targetUserId) {
@@ -133,15 +388,15 @@ public class MessageService {
         return false;
     }
 
-    public List<MessageResponse> getRoomMessages(String roomId, int page, int size) {
+    public List<MessageResponse> getRoomMessages(String roomId, int page, int size, Long currentUserId) {
         // For public chat, only return messages from the last 30 minutes
         if ("public".equals(roomId)) {
             LocalDateTime thirtyMinutesAgo = LocalDateTime.now().minusMinutes(30);
             List<Message> messages = messageRepository.findByRoomIdAndCreatedAtAfter(roomId, thirtyMinutesAgo);
             
-            return messages.stream()
+            return withReactionSummaries(messages.stream()
                     .map(msg -> mapToMessageResponse(msg, "User" + msg.getSenderId()))
-                    .collect(Collectors.toList());
+                    .collect(Collectors.toList()), currentUserId);
         }
         
         // For other rooms, use pagination
@@ -149,119 +404,115 @@ public class MessageService {
         Page<Message> messages = messageRepository.findByRoomIdAndIsDeletedFalseOrderByCreatedAtDesc(roomId, pageable);
         
         // Note: In production, fetch usernames from User Service
-        return messages.getContent().stream()
+        return withReactionSummaries(messages.getContent().stream()
                 .map(msg -> mapToMessageResponse(msg, "User" + msg.getSenderId()))
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()), currentUserId);
     }
 
-    public List<MessageResponse> getMessagesSince(String roomId, LocalDateTime since) {
+    public List<MessageResponse> getMessagesSince(String roomId, LocalDateTime since, Long currentUserId) {
         List<Message> messages = messageRepository.findByRoomIdAndCreatedAtAfter(roomId, since);
         
-        return messages.stream()
+        return withReactionSummaries(messages.stream()
                 .map(msg -> mapToMessageResponse(msg, "User" + msg.getSenderId()))
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()), currentUserId);
     }
 
-    @Transactional
     public MessageResponse editMessage(Long messageId, String newContent, Long userId) {
-        Message message = messageRepository.findById(messageId)
-                .orElseThrow(() -> new ResourceNotFoundException("Message not found"));
-        
-        if (!message.getSenderId().equals(userId)) {
-            throw new BadRequestException("You can only edit your own messages");
-        }
-        
-        if (message.getIsDeleted()) {
-            throw new BadRequestException("Cannot edit deleted message");
-        }
-        
-        message.setContent(newContent);
-        message.setIsEdited(true);
-        message.setEditedAt(LocalDateTime.now());
+        ContentFilter.Result filtered = filterContent(newContent);
+        MessageResponse response = transactionRunner.inTransaction("edit", () -> {
+            Message message = messageRepository.findById(messageId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Message not found"));
+            
+            if (!message.getSenderId().equals(userId)) {
+                throw new BadRequestException("You can only edit your own messages");
+            }
+            
+            if (message.getIsDeleted()) {
+                throw new BadRequestException("Cannot edit deleted message");
+            }
+            
+            message.setContent(filtered.content());
+            message.setIsFlagged(message.getIsFlagged() || filtered.flagged());
+            message.setIsEdited(true);
+            message.setEditedAt(LocalDateTime.now());
+            
+            message = messageRepository.save(message);
+            MessageResponse edited = mapToMessageResponse(message, "User" + userId);
+            conversationSummaryService.onMessageEdited(message);
+            
+            // Broadcast and re-index after commit
+            eventPublisher.publishEvent(new MessageEditedEvent(message, edited));
+            return edited;
+        });
         
-        message = messageRepository.save(message);
         log.info("Message {} edited by user {}", messageId, userId);
-        
-        MessageResponse response = mapToMessageResponse(message, "User" + userId);
-        
-        // Broadcast update - for private messages, send to specific user
-        if (message.getRoomId().startsWith("private_")) {
-            // Extract recipient ID from room ID
-            String[] parts = message.getRoomId().split("_");
-            Long userId1 = Long.parseLong(parts[1]);
-            Long userId2 = Long.parseLong(parts[2]);
-            Long recipientId = userId.equals(userId1) ? userId2 : userId1;
-            
-            // Send to both sender and recipient
-            messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/message-edit", response);
-            messagingTemplate.convertAndSendToUser(recipientId.toString(), "/queue/message-edit", response);
-        } else {
-            messagingTemplate.convertAndSend("/topic/room/" + message.getRoomId() + "/edit", response);
-        }
-        
         return response;
     }
 
-    @Transactional
     public void deleteMessage(Long messageId, Long userId) {
-        Message message = messageRepository.findById(messageId)
-                .orElseThrow(() -> new ResourceNotFoundException("Message not found"));
-        
-        if (!message.getSenderId().equals(userId)) {
-            throw new BadRequestException("You can only delete your own messages");
-        }
-        
-        message.setIsDeleted(true);
-        message.setContent("[Message deleted]");
-        message = messageRepository.save(message);
+        transactionRunner.inTransaction("delete", () -> {
+            Message message = messageRepository.findById(messageId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Message not found"));
+            
+            if (!message.getSenderId().equals(userId)) {
+                throw new BadRequestException("You can only delete your own messages");
+            }
+            
+            boolean wasUnread = !Boolean.TRUE.equals(message.getIsRead());
+            message.setIsDeleted(true);
+            message.setContent("[Message deleted]");
+            message = messageRepository.save(message);
+            
+            MessageResponse deleted = mapToMessageResponse(message, "User" + userId);
+            conversationSummaryService.onMessageDeleted(message, message.getRecipientId(), wasUnread);
+            mentionService.onMessagesDeleted(List.of(messageId));
+            
+            // Broadcast and remove from the search index after commit
+            eventPublisher.publishEvent(new MessageDeletedEvent(message, deleted));
+            return deleted;
+        });
         
         log.info("Message {} deleted by user {}", messageId, userId);
-        
-        MessageResponse response = mapToMessageResponse(message, "User" + userId);
-        
-        // Broadcast deletion - for private messages, send to specific user
-        if (message.getRoomId().startsWith("private_")) {
-            // Extract recipient ID from room ID
-            String[] parts = message.getRoomId().split("_");
-            Long userId1 = Long.parseLong(parts[1]);
-            Long userId2 = Long.parseLong(parts[2]);
-            Long recipientId = userId.equals(userId1) ? userId2 : userId1;
-            
-            // Send to both sender and recipient
-            messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/message-delete", response);
-            messagingTemplate.convertAndSendToUser(recipientId.toString(), "/queue/message-delete", response);
-        } else {
-            messagingTemplate.convertAndSend("/topic/room/" + message.getRoomId() + "/delete", response);
-        }
     }
 
     public long getRoomMessageCount(String roomId) {
-        return messageRepository.countByRoomIdAndIsDeletedFalse(roomId);
+        // Lobby messages expire in bulk and private chats are not rooms, so neither is tracked
+        if ("public".equals(roomId) || roomId.startsWith("private_")) {
+            return messageRepository.countByRoomIdAndIsDeletedFalse(roomId);
+        }
+        return roomActivityTracker.getMessageCount(roomId);
     }
 
     public List<MessageResponse> getPrivateMessages(Long userId1, Long userId2) {
-        // Use the consistent room ID generation
-        String roomId = generatePrivateRoomId(userId1, userId2);
-        
-        log.info("Fetching private messages with roomId={}", roomId);
+        Conversation conversation = conversationService.find(userId1, userId2).orElse(null);
+        if (conversation == null) {
+            log.info("No private conversation yet between users {} and {}", userId1, userId2);
+            return List.of();
+        }
         
-        // Use the repository method to fetch messages from both room combinations for backward compatibility
-        String roomId1 = roomId;
-        String roomId2 = "private_" + Math.max(userId1, userId2) + "_" + Math.min(userId1, userId2);
-        List<Message> messages = messageRepository.findPrivateMessages(roomId1, roomId2);
+        log.info("Fetching private messages for conversation {} (roomId={})", conversation.getId(), conversation.getRoomKey());
+        List<Message> messages = messageRepository.findPrivateMessages(conversation.getId());
         
         log.info("Found {} private messages", messages.size());
         
-        return messages.stream()
+        return withReactionSummaries(messages.stream()
                 .map(msg -> mapToMessageResponse(msg, "User" + msg.getSenderId()))
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()), userId1);
     }
 
     /**
-     * Generates a consistent private room ID for two users
+     * Attach reaction summaries to a page of history with a single counter query
      */
-    private String generatePrivateRoomId(Long userId1, Long userId2) {
-        return "private_" + Math.min(userId1, userId2) + "_" + Math.max(userId1, userId2);
+    private List<MessageResponse> withReactionSummaries(List<MessageResponse> responses, Long currentUserId) {
+        if (responses.isEmpty()) {
+            return responses;
+        }
+        
+        List<Long> messageIds = responses.stream().map(MessageResponse::getId).collect(Collectors.toList());
+        Map<Long, List<MessageReactionResponse.ReactionSummary>> summaries =
+                messageReactionService.getReactionSummaries(messageIds, currentUserId);
+        responses.forEach(response -> response.setReactions(summaries.getOrDefault(response.getId(), List.of())));
+        return responses;
     }
 
     /**
@@ -275,6 +526,7 @@ public class MessageService {
         List<Message> oldMessages = messageRepository.findByRoomIdAndCreatedAtBefore("public", cutoffTime);
         
         if (!oldMessages.isEmpty()) {
+            mentionService.onMessagesDeleted(oldMessages.stream().map(Message::getId).collect(Collectors.toList()));
             messageRepository.deleteAll(oldMessages);
             log.info("Scheduled cleanup: Deleted {} public messages older than 30 minutes", oldMessages.size());
         } else {
@@ -293,6 +545,7 @@ public class MessageService {
         
         int count = oldMessages.size();
         if (count > 0) {
+            mentionService.onMessagesDeleted(oldMessages.stream().map(Message::getId).collect(Collectors.toList()));
             messageRepository.deleteAll(oldMessages);
             log.info("Manual cleanup: Deleted {} public messages older than 30 minutes", count);
         } else {
@@ -306,90 +559,85 @@ public class MessageService {
      * Mark messages as read when user opens/views a chat
      * Notifies the sender via WebSocket that their message was read
      */
-    @Transactional
     public int markMessagesAsRead(String roomId, Long userId) {
-        List<Message> unreadMessages = messageRepository.findUnreadMessagesForUser(roomId, userId);
+        int count = transactionRunner.inTransaction("mark-read", () -> {
+            List<Message> unreadMessages = messageRepository.findUnreadMessagesForUser(roomId, userId);
+            conversationSummaryService.onRoomRead(userId, roomId);
+            mentionService.onRoomRead(userId, roomId);
+            
+            if (unreadMessages.isEmpty()) {
+                return 0;
+            }
+            
+            LocalDateTime readAt = LocalDateTime.now();
+            for (Message message : unreadMessages) {
+                message.setIsRead(true);
+                message.setReadAt(readAt);
+            }
+            messageRepository.saveAll(unreadMessages);
+            
+            // Notify each sender via WebSocket after commit
+            List<MessageResponse> receipts = unreadMessages.stream()
+                    .map(message -> mapToMessageResponse(message, "User" + message.getSenderId()))
+                    .collect(Collectors.toList());
+            eventPublisher.publishEvent(new MessagesReadEvent(userId, roomId, receipts));
+            return unreadMessages.size();
+        });
         
-        if (unreadMessages.isEmpty()) {
+        if (count == 0) {
             log.debug("No unread messages to mark as read for user {} in room {}", userId, roomId);
-            return 0;
+        } else {
+            log.info("Marked {} messages as read for user {} in room {}", count, userId, roomId);
         }
-        
-        LocalDateTime readAt = LocalDateTime.now();
-        
-        for (Message message : unreadMessages) {
+        return count;
+    }
+
+    /**
+     * Mark a specific message as read
+     */
+    public MessageResponse markMessageAsRead(Long messageId, Long userId) {
+        return transactionRunner.inTransaction("mark-read", () -> {
+            Message message = messageRepository.findById(messageId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Message not found"));
+            
+            // Only mark as read if the user is not the sender
+            if (message.getSenderId().equals(userId)) {
+                throw new BadRequestException("Cannot mark your own message as read");
+            }
+            
+            if (message.getIsRead()) {
+                log.debug("Message {} already marked as read", messageId);
+                return mapToMessageResponse(message, "User" + message.getSenderId());
+            }
+            
             message.setIsRead(true);
-            message.setReadAt(readAt);
-            messageRepository.save(message);
+            message.setReadAt(LocalDateTime.now());
+            message = messageRepository.save(message);
+            conversationSummaryService.onMessageRead(userId, message.getRoomId());
             
-            // Notify the sender via WebSocket that their message was read
             MessageResponse response = mapToMessageResponse(message, "User" + message.getSenderId());
-            messagingTemplate.convertAndSendToUser(
-                message.getSenderId().toString(),
-                "/queue/read-receipt",
-                response
-            );
             
-            log.info("Message {} marked as read by user {} in room {}", message.getId(), userId, roomId);
-        }
-        
-        log.info("Marked {} messages as read for user {} in room {}", unreadMessages.size(), userId, roomId);
-        return unreadMessages.size();
+            // Notify the sender via WebSocket after commit
+            eventPublisher.publishEvent(new MessagesReadEvent(userId, message.getRoomId(), List.of(response)));
+            return response;
+        });
     }
 
     /**
-     * Mark a specific message as read
+     * Response for a stored message without reaction summaries, for callers that keep reactions themselves
      */
-    @Transactional
-    public MessageResponse markMessageAsRead(Long messageId, Long userId) {
-        Message message = messageRepository.findById(messageId)
-                .orElseThrow(() -> new ResourceNotFoundException("Message not found"));
-        
-        // Only mark as read if the user is not the sender
-        if (message.getSenderId().equals(userId)) {
-            throw new BadRequestException("Cannot mark your own message as read");
-        }
-        
-        if (message.getIsRead()) {
-            log.debug("Message {} already marked as read", messageId);
-            return mapToMessageResponse(message, "User" + message.getSenderId());
-        }
-        
-        message.setIsRead(true);
-        message.setReadAt(LocalDateTime.now());
-        message = messageRepository.save(message);
-        
-        log.info("Message {} marked as read by user {}", messageId, userId);
-        
-        MessageResponse response = mapToMessageResponse(message, "User" + message.getSenderId());
-        
-        // Notify the sender via WebSocket that their message was read
-        messagingTemplate.convertAndSendToUser(
-            message.getSenderId().toString(),
-            "/queue/read-receipt",
-            response
-        );
-        
-        return response;
+    public MessageResponse toResponse(Message message) {
+        return mapToMessageResponse(message, "User" + message.getSenderId());
     }
 
     private MessageResponse mapToMessageResponse(Message message, String senderUsername) {
-        // Extract recipientId for private messages
-        Long recipientId = null;
-        if (message.getRoomId() != null && message.getRoomId().startsWith("private_")) {
-            String[] parts = message.getRoomId().split("_");
-            if (parts.length == 3) {
-                Long userId1 = Long.parseLong(parts[1]);
-                Long userId2 = Long.parseLong(parts[2]);
-                recipientId = message.getSenderId().equals(userId1) ? userId2 : userId1;
-            }
-        }
-        
         return MessageResponse.builder()
                 .id(message.getId())
                 .roomId(message.getRoomId())
                 .senderId(message.getSenderId())
-                .recipientId(recipientId)
+                .recipientId(message.getRecipientId())
+                .seq(message.getSeq())
+                .clientMessageId(message.getClientMessageId())
                 .senderUsername(senderUsername)
                 .content(message.getContent())
                 .type(message.getType())
@@ -0,0 +1,287 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.dto.OnlineUserPageResponse;
+import com.yunichat.chat.dto.OnlineUserResponse;
+import com.yunichat.common.exception.BadRequestException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Online users on this instance, kept sorted by username, by join time and by user ID so a lobby can page
+ * through them without loading everyone. Entries are added on a user's first session and removed on their last.
+ * Each entry holds the profile fetched once at connect, so listings never call user-service.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OnlineUserDirectory {
+
+    public enum Sort { USERNAME, JOINED }
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private static final Comparator<OnlineUser> BY_USERNAME = Comparator
+            .comparing((OnlineUser user) -> user.sortName)
+            .thenComparingLong(user -> user.userId);
+
+    private static final Comparator<OnlineUser> BY_JOIN_TIME = Comparator
+            .comparingLong((OnlineUser user) -> user.joinedAt)
+            .thenComparingLong(user -> user.userId);
+
+    private static final Comparator<OnlineUser> BY_USER_ID = Comparator.comparingLong(user -> user.userId);
+
+    private final RestTemplate restTemplate;
+    private final SessionRegistry sessionRegistry;
+
+    private final Map<Long, OnlineUser> byId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<OnlineUser> byUsername = new ConcurrentSkipListSet<>(BY_USERNAME);
+    private final ConcurrentSkipListSet<OnlineUser> byJoinTime = new ConcurrentSkipListSet<>(BY_JOIN_TIME);
+    private final ConcurrentSkipListSet<OnlineUser> byUserId = new ConcurrentSkipListSet<>(BY_USER_ID);
+
+    /**
+     * Add a user who just opened their first session, fetching their profile and status once
+     */
+    public void add(long userId, String username, Boolean isGuest) {
+        if (byId.containsKey(userId)) {
+            return;
+        }
+        OnlineUser user = fetchProfile(userId, username, isGuest);
+        if (byId.putIfAbsent(userId, user) != null) {
+            return;
+        }
+        byUsername.add(user);
+        byJoinTime.add(user);
+        byUserId.add(user);
+
+        // The last session may have closed while the profile was being fetched
+        if (!sessionRegistry.isOnline(userId)) {
+            remove(userId);
+        }
+    }
+
+    public void remove(long userId) {
+        OnlineUser user = byId.remove(userId);
+        if (user != null) {
+            byUsername.remove(user);
+            byJoinTime.remove(user);
+            byUserId.remove(user);
+        }
+    }
+
+    public void updateStatus(long userId, String status) {
+        OnlineUser user = byId.get(userId);
+        if (user != null && status != null) {
+            user.status = status.toUpperCase();
+        }
+    }
+
+    public OnlineUser get(long userId) {
+        return byId.get(userId);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Up to limit online users in user ID order after skipping the first offset, walking the index in place
+     */
+    public List<OnlineUser> listByUserId(long offset, int limit) {
+        List<OnlineUser> users = new ArrayList<>();
+        long skipped = 0;
+        for (OnlineUser user : byUserId) {
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            if (users.size() >= limit) {
+                break;
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    /**
+     * One page of online users in the given order, starting after the cursor, optionally filtered
+     */
+    public OnlineUserPageResponse list(Sort sort, String cursor, int size, Boolean guest, String gender) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        NavigableSet<OnlineUser> index = sort == Sort.JOINED ? byJoinTime : byUsername;
+        NavigableSet<OnlineUser> remaining = cursor == null || cursor.isBlank()
+                ? index
+                : index.tailSet(decodeCursor(sort, cursor), false);
+
+        List<OnlineUserResponse> users = new ArrayList<>(pageSize);
+        OnlineUser last = null;
+        boolean hasMore = false;
+        for (OnlineUser user : remaining) {
+            if (!matches(user, guest, gender)) {
+                continue;
+            }
+            if (users.size() == pageSize) {
+                hasMore = true;
+                break;
+            }
+            users.add(toResponse(user));
+            last = user;
+        }
+
+        return OnlineUserPageResponse.builder()
+                .users(users)
+                .totalOnline(byId.size())
+                .nextCursor(hasMore ? encodeCursor(sort, last) : null)
+                .build();
+    }
+
+    private boolean matches(OnlineUser user, Boolean guest, String gender) {
+        if (guest != null && guest != user.isGuest) {
+            return false;
+        }
+        return gender == null || gender.isBlank() || gender.equalsIgnoreCase(user.gender);
+    }
+
+    private OnlineUserResponse toResponse(OnlineUser user) {
+        return OnlineUserResponse.builder()
+                .userId(user.userId)
+                .username(user.username)
+                .isGuest(user.isGuest)
+                .gender(user.gender)
+                .avatarUrl(user.avatarUrl)
+                .status(user.status)
+                .joinedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(user.joinedAt), ZoneId.systemDefault()))
+                .build();
+    }
+
+    // Cursor is the sort key of the last user returned; the user ID goes first since usernames may contain '|'
+    private String encodeCursor(Sort sort, OnlineUser last) {
+        String raw = last.userId + "|" + (sort == Sort.JOINED ? String.valueOf(last.joinedAt) : last.sortName);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private OnlineUser decodeCursor(Sort sort, String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] position = raw.split("\\|", 2);
+            if (position.length != 2) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            long userId = Long.parseLong(position[0]);
+            return sort == Sort.JOINED
+                    ? OnlineUser.probe(userId, "", Long.parseLong(position[1]))
+                    : OnlineUser.probe(userId, position[1], 0);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid online users cursor");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private OnlineUser fetchProfile(long userId, String username, Boolean isGuest) {
+        String gender = null;
+        String avatarUrl = null;
+        String email = null;
+        String status = "ONLINE";
+        try {
+            Map<String, Object> profileResponse = restTemplate.getForObject(
+                    "http://user-service:8082/api/users/profile/" + userId, Map.class);
+            if (profileResponse != null && profileResponse.get("data") instanceof Map<?, ?> data) {
+                Map<String, Object> userData = (Map<String, Object>) data;
+                if (userData.get("isGuest") instanceof Boolean guest) {
+                    isGuest = guest;
+                }
+                if (username == null) {
+                    username = (String) userData.get("username");
+                }
+                gender = (String) userData.get("gender");
+                avatarUrl = (String) userData.get("avatarUrl");
+                email = (String) userData.get("email");
+            }
+
+            Map<String, Object> statusResponse = restTemplate.getForObject(
+                    "http://user-service:8082/api/users/presence/" + userId, Map.class);
+            if (statusResponse != null && statusResponse.get("data") instanceof String fetched && !fetched.isEmpty()) {
+                status = fetched.toUpperCase();
+            }
+        } catch (Exception e) {
+            log.error("❌ Could not fetch user info for {}: {}", userId, e.getMessage());
+        }
+        return new OnlineUser(userId, username != null ? username : "User" + userId, System.currentTimeMillis(),
+                Boolean.TRUE.equals(isGuest), gender, avatarUrl, email, status);
+    }
+
+    /**
+     * Directory entry. Sort keys are final; status changes in place.
+     */
+    public static final class OnlineUser {
+        private final long userId;
+        private final String username;
+        private final String sortName;
+        private final long joinedAt;
+        private final boolean isGuest;
+        private final String gender;
+        private final String avatarUrl;
+        private final String email;
+        private volatile String status;
+
+        private OnlineUser(long userId, String username, long joinedAt, boolean isGuest,
+                           String gender, String avatarUrl, String email, String status) {
+            this.userId = userId;
+            this.username = username;
+            this.sortName = username.toLowerCase();
+            this.joinedAt = joinedAt;
+            this.isGuest = isGuest;
+            this.gender = gender;
+            this.avatarUrl = avatarUrl;
+            this.email = email;
+            this.status = status;
+        }
+
+        // Search key positioned at a cursor; only the fields the comparators read are meaningful
+        private static OnlineUser probe(long userId, String sortName, long joinedAt) {
+            return new OnlineUser(userId, sortName, joinedAt, false, null, null, null, null);
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public boolean isGuest() {
+            return isGuest;
+        }
+
+        public String getGender() {
+            return gender;
+        }
+
+        public String getAvatarUrl() {
+            return avatarUrl;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.yunichat.chat.service;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Which sessions care about which users' presence. Each session declares one interest set (friends,
+ * members of the rooms it has open, explicit users) that replaces any earlier one; presence changes for a
+ * user are delivered only to the sessions watching them. Held in memory on the node the sessions are connected to.
+ */
+@Component
+public class PresenceInterestIndex {
+
+    // Watched userId -> sessions interested in that user; guarded by this
+    private final Long2ObjectOpenHashMap<ObjectOpenHashSet<String>> watchersByUser = new Long2ObjectOpenHashMap<>();
+
+    // sessionId -> the interest it declared, kept so it can be replaced or dropped; guarded by this
+    private final Map<String, Interest> interestsBySession = new HashMap<>();
+
+    public synchronized void replace(String sessionId, long ownerId, LongSet watchedUserIds) {
+        removeSession(sessionId);
+        LongOpenHashSet watched = new LongOpenHashSet(watchedUserIds);
+        watched.remove(ownerId);
+        if (watched.isEmpty()) {
+            return;
+        }
+        interestsBySession.put(sessionId, new Interest(ownerId, watched));
+        watched.forEach((long userId) -> watchersByUser.computeIfAbsent(userId, key -> new ObjectOpenHashSet<>()).add(sessionId));
+    }
+
+    public synchronized void removeSession(String sessionId) {
+        Interest interest = interestsBySession.remove(sessionId);
+        if (interest == null) {
+            return;
+        }
+        interest.watched().forEach((long userId) -> {
+            ObjectOpenHashSet<String> sessions = watchersByUser.get(userId);
+            if (sessions != null) {
+                sessions.remove(sessionId);
+                if (sessions.isEmpty()) {
+                    watchersByUser.remove(userId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sessions to notify when the given user's presence changes
+     */
+    public synchronized List<Watcher> watchersOf(long userId) {
+        ObjectOpenHashSet<String> sessions = watchersByUser.get(userId);
+        if (sessions == null) {
+            return List.of();
+        }
+        List<Watcher> watchers = new ArrayList<>(sessions.size());
+        for (String sessionId : sessions) {
+            watchers.add(new Watcher(sessionId, interestsBySession.get(sessionId).ownerId()));
+        }
+        return watchers;
+    }
+
+    public synchronized int getSessionCount() {
+        return interestsBySession.size();
+    }
+
+    public record Watcher(String sessionId, long ownerId) {
+    }
+
+    private record Interest(long ownerId, LongOpenHashSet watched) {
+    }
+}
@@ -0,0 +1,332 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.dto.MessageReactionResponse;
+import com.yunichat.chat.dto.MessageResponse;
+import com.yunichat.chat.entity.Message;
+import com.yunichat.chat.entity.MessageReaction;
+import com.yunichat.chat.event.MessageBatchSentEvent;
+import com.yunichat.chat.event.MessageDeletedEvent;
+import com.yunichat.chat.event.MessageEditedEvent;
+import com.yunichat.chat.event.MessageSentEvent;
+import com.yunichat.chat.event.MessagesReadEvent;
+import com.yunichat.chat.event.ReactionChangedEvent;
+import com.yunichat.chat.repository.MessageReactionRepository;
+import com.yunichat.chat.repository.MessageRepository;
+import com.yunichat.chat.util.OrderedExecutor;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * The last few messages of each active room, with who reacted with what, kept current from committed events.
+ * Rooms are bounded by LRU and loaded from the database on first use.
+ * Everything that reads or changes a room's ring runs on that room's chatEventExecutor lane, the same lane
+ * that broadcasts its events, so a ring is never touched by two threads at once. The database read for a cold
+ * room runs on historyLoadExecutor instead; changes that reach the lane meanwhile are held and replayed onto
+ * the loaded ring when it is handed back to the lane.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RecentMessageCache {
+
+    private final MessageService messageService;
+    private final MessageRepository messageRepository;
+    private final MessageReactionRepository reactionRepository;
+    private final OrderedExecutor chatEventExecutor;
+    private final ExecutorService historyLoadExecutor;
+
+    @Value("${chat.history.messages-per-room:50}")
+    private int capacity;
+
+    @Value("${chat.history.max-rooms:2000}")
+    private int maxRooms;
+
+    // Access-ordered map acting as the LRU; guarded by this
+    private Map<String, Ring> rooms;
+
+    // Rooms being read from the database; an entry is only touched on its room's lane
+    private final Map<String, Loading> loading = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        rooms = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Ring> eldest) {
+                return size() > maxRooms;
+            }
+        };
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Up to limit most recent messages, newest first, with reactions from the viewer's point of view.
+     * Must be called on the room's chatEventExecutor lane. Completes on that lane: at once when the room is
+     * cached, otherwise once its load has been handed back.
+     */
+    public CompletableFuture<List<MessageResponse>> recent(String roomId, Long viewerId, int limit) {
+        Ring ring = cachedRing(roomId);
+        if (ring != null) {
+            return CompletableFuture.completedFuture(snapshot(ring, roomId, viewerId, limit));
+        }
+        return load(roomId).thenApply(loaded -> snapshot(loaded, roomId, viewerId, limit));
+    }
+
+    @TransactionalEventListener
+    public void onMessageSent(MessageSentEvent event) {
+        Message message = event.message();
+        if (message.getRecipientId() == null) {
+            chatEventExecutor.execute(message.getRoomId(), () -> apply(message.getRoomId(), ring -> append(ring, event.response())));
+        }
+    }
+
+    @TransactionalEventListener
+    public void onMessageBatchSent(MessageBatchSentEvent event) {
+        for (int i = 0; i < event.messages().size(); i++) {
+            Message message = event.messages().get(i);
+            MessageResponse response = event.responses().get(i);
+            if (message.getRecipientId() == null) {
+                chatEventExecutor.execute(message.getRoomId(), () -> apply(message.getRoomId(), ring -> append(ring, response)));
+            }
+        }
+    }
+
+    @TransactionalEventListener
+    public void onMessageEdited(MessageEditedEvent event) {
+        String roomId = event.message().getRoomId();
+        chatEventExecutor.execute(roomId, () -> apply(roomId, ring -> {
+            CachedMessage cached = find(ring, event.message().getId());
+            if (cached != null) {
+                cached.response = event.response();
+            }
+        }));
+    }
+
+    @TransactionalEventListener
+    public void onMessageDeleted(MessageDeletedEvent event) {
+        String roomId = event.message().getRoomId();
+        chatEventExecutor.execute(roomId, () -> apply(roomId, ring -> {
+            // REST history keeps deleted lobby messages as tombstones and leaves them out everywhere else
+            if ("public".equals(roomId)) {
+                CachedMessage cached = find(ring, event.message().getId());
+                if (cached != null) {
+                    cached.response = event.response();
+                }
+            } else {
+                ring.messages.removeIf(cached -> Objects.equals(cached.response.getId(), event.message().getId()));
+            }
+        }));
+    }
+
+    @TransactionalEventListener
+    public void onReactionChanged(ReactionChangedEvent event) {
+        String roomId = event.message().getRoomId();
+        chatEventExecutor.execute(roomId, () -> apply(roomId, ring -> {
+            CachedMessage cached = find(ring, event.message().getId());
+            if (cached == null) {
+                return;
+            }
+            if (event.added()) {
+                cached.reactors.computeIfAbsent(event.emoji(), emoji -> new LongOpenHashSet()).add(event.userId().longValue());
+            } else {
+                LongOpenHashSet users = cached.reactors.get(event.emoji());
+                if (users != null && users.remove(event.userId().longValue()) && users.isEmpty()) {
+                    cached.reactors.remove(event.emoji());
+                }
+            }
+        }));
+    }
+
+    @TransactionalEventListener
+    public void onMessagesRead(MessagesReadEvent event) {
+        chatEventExecutor.execute(event.roomId(), () -> apply(event.roomId(), ring -> {
+            for (MessageResponse receipt : event.receipts()) {
+                CachedMessage cached = find(ring, receipt.getId());
+                if (cached != null) {
+                    cached.response = cached.response.toBuilder().isRead(receipt.getIsRead()).readAt(receipt.getReadAt()).build();
+                }
+            }
+        }));
+    }
+
+    /**
+     * Apply a change to a room's ring, or hold it for a load under way. Runs on the room's lane.
+     * Rooms neither cached nor loading are skipped: their next load reads the change from the database.
+     */
+    private void apply(String roomId, Consumer<Ring> change) {
+        Ring ring = cachedRing(roomId);
+        if (ring != null) {
+            change.accept(ring);
+            return;
+        }
+        Loading load = loading.get(roomId);
+        if (load != null) {
+            load.pending.add(change);
+        }
+    }
+
+    private void append(Ring ring, MessageResponse response) {
+        // Already present: the load saw the commit first
+        if (find(ring, response.getId()) != null) {
+            return;
+        }
+        ring.messages.addLast(new CachedMessage(response));
+        while (ring.messages.size() > capacity) {
+            ring.messages.removeFirst();
+        }
+    }
+
+    private List<MessageResponse> snapshot(Ring ring, String roomId, Long viewerId, int limit) {
+        // The lobby only ever shows the last 30 minutes, matching the REST history
+        LocalDateTime cutoff = "public".equals(roomId) ? LocalDateTime.now().minusMinutes(30) : null;
+
+        List<MessageResponse> result = new ArrayList<>(Math.min(limit, ring.messages.size()));
+        Iterator<CachedMessage> newestFirst = ring.messages.descendingIterator();
+        while (newestFirst.hasNext() && result.size() < limit) {
+            CachedMessage cached = newestFirst.next();
+            if (cutoff != null && cached.response.getCreatedAt() != null && cached.response.getCreatedAt().isBefore(cutoff)) {
+                break;
+            }
+            result.add(cached.response.toBuilder().reactions(cached.summarize(viewerId)).build());
+        }
+        return result;
+    }
+
+    private static CachedMessage find(Ring ring, Long messageId) {
+        // Recent messages are the likely targets, so search from the newest end
+        Iterator<CachedMessage> newestFirst = ring.messages.descendingIterator();
+        while (newestFirst.hasNext()) {
+            CachedMessage cached = newestFirst.next();
+            if (Objects.equals(cached.response.getId(), messageId)) {
+                return cached;
+            }
+        }
+        return null;
+    }
+
+    private synchronized Ring cachedRing(String roomId) {
+        return rooms.get(roomId);
+    }
+
+    /**
+     * Start reading a room on historyLoadExecutor, or join the read already under way. Runs on the room's lane.
+     */
+    private CompletableFuture<Ring> load(String roomId) {
+        Loading existing = loading.get(roomId);
+        if (existing != null) {
+            return existing.ring;
+        }
+
+        Loading load = new Loading();
+        loading.put(roomId, load);
+        try {
+            historyLoadExecutor.execute(() -> {
+                try {
+                    Ring ring = read(roomId);
+                    chatEventExecutor.execute(roomId, () -> install(roomId, load, ring));
+                } catch (RuntimeException e) {
+                    chatEventExecutor.execute(roomId, () -> {
+                        loading.remove(roomId, load);
+                        load.ring.completeExceptionally(e);
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loading.remove(roomId, load);
+            load.ring.completeExceptionally(e);
+        }
+        return load.ring;
+    }
+
+    /**
+     * Back on the room's lane: replay what arrived during the load, then publish the ring. Every change is
+     * idempotent, so one the load already read from the database is harmless.
+     */
+    private void install(String roomId, Loading load, Ring ring) {
+        loading.remove(roomId, load);
+        load.pending.forEach(change -> change.accept(ring));
+        synchronized (this) {
+            rooms.put(roomId, ring);
+        }
+        load.ring.complete(ring);
+    }
+
+    private Ring read(String roomId) {
+        PageRequest newest = PageRequest.of(0, capacity);
+        List<Message> messages = "public".equals(roomId)
+                ? messageRepository.findRecentSince(roomId, LocalDateTime.now().minusMinutes(30), newest)
+                : messageRepository.findRecentMessages(roomId, newest);
+        List<Message> oldestFirst = new ArrayList<>(messages);
+        oldestFirst.sort(Comparator.comparing(Message::getId));
+
+        Ring ring = new Ring();
+        Map<Long, CachedMessage> byId = new LinkedHashMap<>();
+        for (Message message : oldestFirst) {
+            CachedMessage cached = new CachedMessage(messageService.toResponse(message));
+            ring.messages.addLast(cached);
+            byId.put(message.getId(), cached);
+        }
+        if (!byId.isEmpty()) {
+            for (MessageReaction reaction : reactionRepository.findByMessageIdIn(byId.keySet())) {
+                byId.get(reaction.getMessageId()).reactors
+                        .computeIfAbsent(reaction.getEmoji(), emoji -> new LongOpenHashSet())
+                        .add(reaction.getUserId().longValue());
+            }
+        }
+        log.debug("Loaded {} recent messages for room {} into history cache", oldestFirst.size(), roomId);
+        return ring;
+    }
+
+    private static final class Ring {
+        private final ArrayDeque<CachedMessage> messages = new ArrayDeque<>();
+    }
+
+    private static final class Loading {
+        private final CompletableFuture<Ring> ring = new CompletableFuture<>();
+        // Changes that reached the lane while the room was being read
+        private final List<Consumer<Ring>> pending = new ArrayList<>();
+    }
+
+    private static final class CachedMessage {
+        private MessageResponse response;
+        // Emoji -> users who reacted with it, in first-reaction order
+        private final Map<String, LongOpenHashSet> reactors = new LinkedHashMap<>();
+
+        private CachedMessage(MessageResponse response) {
+            this.response = response;
+        }
+
+        private List<MessageReactionResponse.ReactionSummary> summarize(Long viewerId) {
+            List<MessageReactionResponse.ReactionSummary> summaries = new ArrayList<>(reactors.size());
+            reactors.forEach((emoji, users) -> summaries.add(MessageReactionResponse.ReactionSummary.builder()
+                    .emoji(emoji)
+                    .count((long) users.size())
+                    .userReacted(viewerId != null && users.contains(viewerId.longValue()))
+                    .build()));
+            return summaries;
+        }
+    }
+}
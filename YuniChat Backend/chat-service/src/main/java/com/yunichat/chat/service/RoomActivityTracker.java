@@ -0,0 +1,416 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.entity.Message;
+import com.yunichat.chat.entity.RoomStats;
+import com.yunichat.chat.event.MessageBatchSentEvent;
+import com.yunichat.chat.event.MessageDeletedEvent;
+import com.yunichat.chat.event.MessageSentEvent;
+import com.yunichat.chat.repository.ChatRoomRepository;
+import com.yunichat.chat.repository.RoomStatsRepository;
+import com.yunichat.chat.util.TransactionUtils;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Room statistics counted in memory: message and member counts, per-minute message buckets for the last hour,
+ * and recent distinct senders. Counts start from the room_stats checkpoint the first time a room is read and
+ * the accumulated deltas are added back to room_stats periodically, after which the checkpoint is re-read so other
+ * instances' deltas show up; the per-minute windows live only in memory.
+ * Private chats, the lobby (whose messages expire in bulk) and room IDs with no chat_rooms row are not tracked.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomActivityTracker {
+
+    private static final int WINDOW_MINUTES = 60;
+    private static final String LOBBY_ROOM_ID = "public";
+    private static final int REFRESH_BATCH_SIZE = 1000;
+
+    private final RoomStatsRepository roomStatsRepository;
+    private final ChatRoomRepository chatRoomRepository;
+    private final TransactionRunner transactionRunner;
+
+    @Value("${chat.room-stats.active-window-minutes:15}")
+    private int activeWindowMinutes;
+
+    @Value("${chat.room-stats.idle-eviction-minutes:120}")
+    private int idleEvictionMinutes;
+
+    private final Map<String, RoomActivity> rooms = new ConcurrentHashMap<>();
+
+    // Serializes checkpoints with checkpoint loads, so a load never races a delta that is being written
+    private final Object checkpointLock = new Object();
+
+    @TransactionalEventListener
+    public void onMessageSent(MessageSentEvent event) {
+        record(event.message());
+    }
+
+    @TransactionalEventListener
+    public void onMessagesBatchSent(MessageBatchSentEvent event) {
+        event.messages().forEach(this::record);
+    }
+
+    @TransactionalEventListener
+    public void onMessageDeleted(MessageDeletedEvent event) {
+        Message message = event.message();
+        if (isTracked(message)) {
+            update(message.getRoomId(), activity -> activity.adjustMessages(-1));
+        }
+    }
+
+    public void onRoomCreated(String roomId, int memberCount) {
+        TransactionUtils.afterCommit(() -> update(roomId, activity -> activity.adjustMembers(memberCount)));
+    }
+
+    public void onMemberJoined(String roomId) {
+        TransactionUtils.afterCommit(() -> update(roomId, activity -> activity.adjustMembers(1)));
+    }
+
+    public void onMemberLeft(String roomId) {
+        TransactionUtils.afterCommit(() -> update(roomId, activity -> activity.adjustMembers(-1)));
+    }
+
+    public long getMessageCount(String roomId) {
+        return snapshots(List.of(roomId)).get(0).messageCount();
+    }
+
+    /**
+     * Current counters for the given rooms, in the given order; rooms never seen start from their checkpoint.
+     * IDs that are not rooms get empty counters and are not tracked, so callers cannot grow the map at will.
+     */
+    public List<RoomSnapshot> snapshots(Collection<String> roomIds) {
+        List<String> ids = List.copyOf(roomIds);
+        List<String> untracked = ids.stream().filter(roomId -> !rooms.containsKey(roomId)).distinct().toList();
+        Set<String> existing = untracked.isEmpty() ? Set.of() : Set.copyOf(chatRoomRepository.findExistingRoomIds(untracked));
+
+        List<RoomActivity> activities = new ArrayList<>(ids.size());
+        List<String> unloaded = new ArrayList<>();
+        for (String roomId : ids) {
+            RoomActivity activity = rooms.containsKey(roomId) || existing.contains(roomId) ? activity(roomId) : null;
+            activities.add(activity);
+            if (activity != null && !activity.isLoaded()) {
+                unloaded.add(roomId);
+            }
+        }
+        if (!unloaded.isEmpty()) {
+            loadCheckpoints(unloaded);
+        }
+
+        long minute = currentMinute();
+        List<RoomSnapshot> snapshots = new ArrayList<>(activities.size());
+        for (int i = 0; i < ids.size(); i++) {
+            RoomActivity activity = activities.get(i);
+            snapshots.add(activity != null
+                    ? activity.snapshot(ids.get(i), minute, activeWindowMinutes)
+                    : new RoomSnapshot(ids.get(i), 0, 0, 0, 0, 0, 0, 0));
+        }
+        return snapshots;
+    }
+
+    /**
+     * Most active rooms by messages in the active window, then in the last hour. Only rooms with activity since
+     * startup are considered; counters for the winners are completed from their checkpoints.
+     */
+    public List<RoomSnapshot> trending(Predicate<String> include, int limit) {
+        long minute = currentMinute();
+        Comparator<Ranked> byActivity = Comparator.comparingInt(Ranked::recent).thenComparingInt(Ranked::hour);
+        PriorityQueue<Ranked> top = new PriorityQueue<>(byActivity);
+        rooms.forEach((roomId, activity) -> {
+            int recent = activity.messagesSince(minute, activeWindowMinutes);
+            if (recent == 0) {
+                return;
+            }
+            Ranked candidate = new Ranked(roomId, recent, activity.messagesSince(minute, WINDOW_MINUTES));
+            if (top.size() < limit) {
+                if (include.test(roomId)) {
+                    top.add(candidate);
+                }
+            } else if (byActivity.compare(candidate, top.peek()) > 0 && include.test(roomId)) {
+                top.poll();
+                top.add(candidate);
+            }
+        });
+
+        List<String> ranked = top.stream().sorted(byActivity.reversed()).map(Ranked::roomId).toList();
+        return ranked.isEmpty() ? List.of() : snapshots(ranked);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.room-stats.checkpoint-interval-ms:30000}")
+    public void checkpoint() {
+        synchronized (checkpointLock) {
+            List<Map.Entry<String, RoomActivity>> dirty = new ArrayList<>();
+            for (Map.Entry<String, RoomActivity> entry : rooms.entrySet()) {
+                if (entry.getValue().beginCheckpoint()) {
+                    dirty.add(entry);
+                }
+            }
+
+            if (!dirty.isEmpty()) {
+                try {
+                    transactionRunner.inTransaction("room-stats-checkpoint", () -> {
+                        for (Map.Entry<String, RoomActivity> entry : dirty) {
+                            RoomActivity activity = entry.getValue();
+                            roomStatsRepository.addDeltas(entry.getKey(), activity.inFlightMessages,
+                                    activity.inFlightMembers, activity.inFlightLastMessageAt);
+                        }
+                        return null;
+                    });
+                    dirty.forEach(entry -> entry.getValue().endCheckpoint(true));
+                    log.debug("Checkpointed stats for {} rooms", dirty.size());
+                } catch (Exception e) {
+                    dirty.forEach(entry -> entry.getValue().endCheckpoint(false));
+                    log.error("Failed to checkpoint stats for {} rooms: {}", dirty.size(), e.getMessage());
+                    return;
+                }
+            }
+            refreshCheckpoints();
+
+            // Rooms quiet for longer than the window reload from their checkpoint when next read
+            long idleBefore = currentMinute() - idleEvictionMinutes;
+            rooms.values().removeIf(activity -> activity.evictIfIdle(idleBefore));
+        }
+    }
+
+    @PreDestroy
+    public void checkpointOnShutdown() {
+        checkpoint();
+    }
+
+    private void record(Message message) {
+        if (isTracked(message)) {
+            long minute = currentMinute();
+            update(message.getRoomId(), activity -> activity.recordMessage(message.getSenderId(), minute, message.getCreatedAt()));
+        }
+    }
+
+    private void loadCheckpoints(List<String> roomIds) {
+        synchronized (checkpointLock) {
+            Map<String, RoomStats> stored = new HashMap<>();
+            for (RoomStats stats : roomStatsRepository.findAllById(roomIds)) {
+                stored.put(stats.getRoomId(), stats);
+            }
+            for (String roomId : roomIds) {
+                RoomStats stats = stored.get(roomId);
+                activity(roomId).load(stats != null ? stats.getMessageCount() : 0L, stats != null ? stats.getMemberCount() : 0);
+            }
+        }
+    }
+
+    /**
+     * Re-read the checkpoint of every loaded room. Other instances add their deltas to the same rows, so the
+     * stored base would otherwise stay at whatever it was when this instance first read the room.
+     */
+    private void refreshCheckpoints() {
+        List<String> loaded = new ArrayList<>();
+        rooms.forEach((roomId, activity) -> {
+            if (activity.isLoaded()) {
+                loaded.add(roomId);
+            }
+        });
+        try {
+            for (int from = 0; from < loaded.size(); from += REFRESH_BATCH_SIZE) {
+                List<String> batch = loaded.subList(from, Math.min(from + REFRESH_BATCH_SIZE, loaded.size()));
+                for (RoomStats stats : roomStatsRepository.findAllById(batch)) {
+                    RoomActivity activity = rooms.get(stats.getRoomId());
+                    if (activity != null) {
+                        activity.refresh(stats.getMessageCount(), stats.getMemberCount());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to refresh room stats checkpoints: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Apply a change to a room's counters; retried if the room was evicted between lookup and update
+     */
+    private void update(String roomId, Predicate<RoomActivity> change) {
+        while (!change.test(activity(roomId))) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private RoomActivity activity(String roomId) {
+        return rooms.computeIfAbsent(roomId, id -> new RoomActivity(currentMinute()));
+    }
+
+    private static boolean isTracked(Message message) {
+        return message.getRecipientId() == null && !LOBBY_ROOM_ID.equals(message.getRoomId());
+    }
+
+    private static long currentMinute() {
+        return System.currentTimeMillis() / 60_000;
+    }
+
+    public record RoomSnapshot(String roomId, long messageCount, int memberCount, int activeMembers,
+                               int messagesLastMinute, int messagesLast5, int messagesLast15, int messagesLast60) {
+    }
+
+    private record Ranked(String roomId, int recent, int hour) {
+    }
+
+    /**
+     * One room's counters. Totals are checkpoint + in-flight checkpoint delta + pending delta.
+     */
+    private static final class RoomActivity {
+        private boolean loaded;
+        private long storedMessages;
+        private int storedMembers;
+
+        private long pendingMessages;
+        private int pendingMembers;
+        private LocalDateTime pendingLastMessageAt;
+
+        private long inFlightMessages;
+        private int inFlightMembers;
+        private LocalDateTime inFlightLastMessageAt;
+
+        // Ring of per-minute message counts, slot = minute % WINDOW_MINUTES
+        private final int[] buckets = new int[WINDOW_MINUTES];
+        private final long[] bucketMinutes = new long[WINDOW_MINUTES];
+        // Sender -> minute of their latest message
+        private final Long2LongOpenHashMap lastSent = new Long2LongOpenHashMap();
+        private long lastTouchedMinute;
+        // Set when removed from the map; writers holding a stale reference retry against the replacement
+        private boolean evicted;
+
+        private RoomActivity(long minute) {
+            lastTouchedMinute = minute;
+        }
+
+        synchronized boolean recordMessage(Long senderId, long minute, LocalDateTime createdAt) {
+            if (evicted) {
+                return false;
+            }
+            pendingMessages++;
+            if (createdAt != null && (pendingLastMessageAt == null || createdAt.isAfter(pendingLastMessageAt))) {
+                pendingLastMessageAt = createdAt;
+            }
+            int slot = (int) (minute % WINDOW_MINUTES);
+            if (bucketMinutes[slot] != minute) {
+                bucketMinutes[slot] = minute;
+                buckets[slot] = 0;
+            }
+            buckets[slot]++;
+            if (senderId != null) {
+                lastSent.put(senderId.longValue(), minute);
+            }
+            lastTouchedMinute = minute;
+            return true;
+        }
+
+        synchronized boolean adjustMessages(int delta) {
+            if (evicted) {
+                return false;
+            }
+            pendingMessages += delta;
+            return true;
+        }
+
+        synchronized boolean adjustMembers(int delta) {
+            if (evicted) {
+                return false;
+            }
+            pendingMembers += delta;
+            return true;
+        }
+
+        synchronized boolean isLoaded() {
+            return loaded;
+        }
+
+        synchronized void load(long messages, int members) {
+            if (!loaded) {
+                storedMessages = messages;
+                storedMembers = members;
+                loaded = true;
+            }
+        }
+
+        // Called under the checkpoint lock with nothing in flight, so the row holds everything but pending deltas
+        synchronized void refresh(long messages, int members) {
+            storedMessages = messages;
+            storedMembers = members;
+        }
+
+        synchronized int messagesSince(long minute, int span) {
+            int total = 0;
+            for (int i = 0; i < WINDOW_MINUTES; i++) {
+                if (bucketMinutes[i] > minute - span && bucketMinutes[i] <= minute) {
+                    total += buckets[i];
+                }
+            }
+            return total;
+        }
+
+        synchronized RoomSnapshot snapshot(String roomId, long minute, int activeWindow) {
+            lastSent.long2LongEntrySet().removeIf(entry -> entry.getLongValue() <= minute - WINDOW_MINUTES);
+            int active = 0;
+            for (long sentAt : lastSent.values()) {
+                if (sentAt > minute - activeWindow) {
+                    active++;
+                }
+            }
+            return new RoomSnapshot(roomId, storedMessages + inFlightMessages + pendingMessages,
+                    storedMembers + inFlightMembers + pendingMembers, active,
+                    messagesSince(minute, 1), messagesSince(minute, 5), messagesSince(minute, 15),
+                    messagesSince(minute, WINDOW_MINUTES));
+        }
+
+        synchronized boolean beginCheckpoint() {
+            if (pendingMessages == 0 && pendingMembers == 0 && pendingLastMessageAt == null) {
+                return false;
+            }
+            inFlightMessages = pendingMessages;
+            inFlightMembers = pendingMembers;
+            inFlightLastMessageAt = pendingLastMessageAt;
+            pendingMessages = 0;
+            pendingMembers = 0;
+            pendingLastMessageAt = null;
+            return true;
+        }
+
+        synchronized void endCheckpoint(boolean written) {
+            if (written) {
+                // Unloaded rooms read the checkpoint, which now includes these deltas, when first needed
+                storedMessages += inFlightMessages;
+                storedMembers += inFlightMembers;
+            } else {
+                pendingMessages += inFlightMessages;
+                pendingMembers += inFlightMembers;
+                if (pendingLastMessageAt == null || (inFlightLastMessageAt != null && inFlightLastMessageAt.isAfter(pendingLastMessageAt))) {
+                    pendingLastMessageAt = inFlightLastMessageAt;
+                }
+            }
+            inFlightMessages = 0;
+            inFlightMembers = 0;
+            inFlightLastMessageAt = null;
+        }
+
+        synchronized boolean evictIfIdle(long idleBefore) {
+            evicted = lastTouchedMinute < idleBefore && pendingMessages == 0 && pendingMembers == 0;
+            return evicted;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.util.OrderedExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Room-scoped STOMP delivery. PUBLIC rooms keep their /topic/room/{id} topic; GROUP and PRIVATE rooms are delivered
+ * to each online member's /user/queue/room/{id} so only members ever receive their traffic.
+ * The payload is serialized once per broadcast. Rooms at or above the large-room threshold are split by recipient
+ * across the fan-out lanes, each lane getting one envelope listing its recipients.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomBroadcaster {
+
+    private final RoomMembershipCache membershipCache;
+    private final SessionRegistry sessionRegistry;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final OrderedExecutor roomFanoutExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.fanout.large-room-threshold:1000}")
+    private int largeRoomThreshold;
+
+    @Value("${chat.fanout.lanes:8}")
+    private int fanoutLanes;
+
+    // Once a room has used the lane path it stays on it, so a shrinking room never lets a direct send overtake
+    // an envelope still queued on a lane
+    private final Set<String> largeRooms = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Deliver a room event. Suffix is appended to the destination ("" for messages, "/typing", "/edit", ...).
+     * Callers that need per-room ordering invoke this from the room's ordered lane.
+     */
+    public void broadcast(String roomId, String suffix, Object payload) {
+        if (membershipCache.isPublicRoom(roomId)) {
+            messagingTemplate.convertAndSend("/topic/room/" + roomId + suffix, payload);
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        LongSet members = membershipCache.getMembers(roomId);
+        Message<?> frame = serialize(payload);
+        String destination = "/queue/room/" + roomId + suffix;
+
+        if (members.size() >= largeRoomThreshold || largeRooms.contains(roomId)) {
+            largeRooms.add(roomId);
+            fanOutByLane(members, destination, frame, sample);
+        } else {
+            int delivered = 0;
+            for (LongIterator it = members.iterator(); it.hasNext(); ) {
+                long userId = it.nextLong();
+                if (sessionRegistry.isOnline(userId)) {
+                    messagingTemplate.send("/user/" + userId + destination, frame);
+                    delivered++;
+                }
+            }
+            sample.stop(fanoutTimer("direct", members.size()));
+            log.debug("Delivered {} to {} of {} members of room {}", suffix, delivered, members.size(), roomId);
+        }
+    }
+
+    private void fanOutByLane(LongSet members, String destination, Message<?> frame, Timer.Sample sample) {
+        // Lane is derived from the recipient, so each user's frames stay in order across rooms and broadcasts
+        LongArrayList[] envelopes = new LongArrayList[fanoutLanes];
+        int recipients = 0;
+        for (LongIterator it = members.iterator(); it.hasNext(); ) {
+            long userId = it.nextLong();
+            if (sessionRegistry.isOnline(userId)) {
+                int lane = Math.floorMod(Long.hashCode(userId), fanoutLanes);
+                if (envelopes[lane] == null) {
+                    envelopes[lane] = new LongArrayList();
+                }
+                envelopes[lane].add(userId);
+                recipients++;
+            }
+        }
+
+        int nonEmpty = 0;
+        for (LongArrayList envelope : envelopes) {
+            if (envelope != null) {
+                nonEmpty++;
+            }
+        }
+        if (nonEmpty == 0) {
+            sample.stop(fanoutTimer("lanes", members.size()));
+            return;
+        }
+
+        // The last lane to finish records the latency of the whole broadcast
+        AtomicInteger outstanding = new AtomicInteger(nonEmpty);
+        int memberCount = members.size();
+        for (int lane = 0; lane < envelopes.length; lane++) {
+            LongArrayList envelope = envelopes[lane];
+            if (envelope == null) {
+                continue;
+            }
+            roomFanoutExecutor.execute(lane, () -> {
+                try {
+                    for (int i = 0; i < envelope.size(); i++) {
+                        messagingTemplate.send("/user/" + envelope.getLong(i) + destination, frame);
+                    }
+                } finally {
+                    if (outstanding.decrementAndGet() == 0) {
+                        sample.stop(fanoutTimer("lanes", memberCount));
+                    }
+                }
+            });
+        }
+        log.debug("Fanned out {} to {} online members across {} lanes", destination, recipients, nonEmpty);
+    }
+
+    private Message<?> serialize(Object payload) {
+        Message<?> message = messagingTemplate.getMessageConverter().toMessage(payload, null);
+        if (message == null) {
+            throw new MessageConversionException("Unable to serialize room payload of type " + payload.getClass().getName());
+        }
+        return message;
+    }
+
+    private Timer fanoutTimer(String path, int members) {
+        return Timer.builder("chat.fanout.duration")
+                .description("Time to hand one room event to every online member")
+                .tag("path", path)
+                .tag("members", sizeBucket(members))
+                .register(meterRegistry);
+    }
+
+    static String sizeBucket(int members) {
+        if (members <= 10) {
+            return "10";
+        }
+        if (members <= 1_000) {
+            return "1k";
+        }
+        if (members <= 10_000) {
+            return "10k";
+        }
+        return "10k+";
+    }
+}
@@ -0,0 +1,121 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.dto.MessageResponse;
+import com.yunichat.chat.dto.RoomHistoryResponse;
+import com.yunichat.chat.util.OrderedExecutor;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opt-in history on room subscribe: a SUBSCRIBE to /topic/room/{id} or /user/queue/room/{id} carrying
+ * "x-history: N" gets the last N messages from RecentMessageCache as one frame on that same subscription,
+ * so opening a room needs no separate REST history call.
+ * The frame is written straight to the client outbound channel, like a @SubscribeMapping reply, and is
+ * marked with an "x-history" header so clients can tell it apart from live messages.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomHistoryPusher {
+
+    public static final String HISTORY_HEADER = "x-history";
+
+    private static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+    private static final String ROOM_QUEUE_PREFIX = "/user/queue/room/";
+
+    private final RecentMessageCache recentMessageCache;
+    private final RoomMembershipCache membershipCache;
+    private final OrderedExecutor chatEventExecutor;
+    private final MessageChannel clientOutboundChannel;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private SimpMessagingTemplate outboundTemplate;
+
+    @PostConstruct
+    public void init() {
+        outboundTemplate = new SimpMessagingTemplate(clientOutboundChannel);
+        outboundTemplate.setMessageConverter(messagingTemplate.getMessageConverter());
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String requested = accessor.getFirstNativeHeader(HISTORY_HEADER);
+        if (requested == null) {
+            return;
+        }
+        String destination = accessor.getDestination();
+        String roomId = roomIdOf(destination);
+        if (roomId == null) {
+            return;
+        }
+
+        int limit;
+        try {
+            limit = Math.min(Integer.parseInt(requested.trim()), recentMessageCache.getCapacity());
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed {} header: {}", HISTORY_HEADER, requested);
+            return;
+        }
+        if (limit <= 0) {
+            return;
+        }
+
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        Long userId = attributes != null ? (Long) attributes.get("userId") : null;
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+
+        // Same lane as the room's broadcasts and cache updates; a cold room replies once its load is back on the lane
+        chatEventExecutor.execute(roomId, () -> {
+            if (!membershipCache.isPublicRoom(roomId) && (userId == null || !membershipCache.isMember(roomId, userId))) {
+                log.warn("Refused history for room {} to session {} (user {})", roomId, sessionId, userId);
+                return;
+            }
+            recentMessageCache.recent(roomId, userId, limit).whenComplete((messages, error) -> {
+                if (error != null) {
+                    log.warn("Could not load history for room {} for session {}: {}", roomId, sessionId, error.getMessage());
+                    return;
+                }
+                RoomHistoryResponse history = RoomHistoryResponse.builder().roomId(roomId).messages(messages).build();
+                outboundTemplate.convertAndSend(destination, history, historyHeaders(sessionId, subscriptionId, messages.size()));
+                log.debug("Pushed {} history messages for room {} to session {}", messages.size(), roomId, sessionId);
+            });
+        });
+    }
+
+    static String roomIdOf(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        String prefix = destination.startsWith(ROOM_TOPIC_PREFIX) ? ROOM_TOPIC_PREFIX
+                : destination.startsWith(ROOM_QUEUE_PREFIX) ? ROOM_QUEUE_PREFIX : null;
+        if (prefix == null) {
+            return null;
+        }
+        // Only the message destination itself, not /typing, /events and the other room sub-destinations
+        String roomId = destination.substring(prefix.length());
+        return roomId.isEmpty() || roomId.indexOf('/') >= 0 ? null : roomId;
+    }
+
+    private static Map<String, Object> historyHeaders(String sessionId, String subscriptionId, int count) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setNativeHeader(HISTORY_HEADER, String.valueOf(count));
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
+    }
+}
@@ -0,0 +1,178 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.entity.ChatRoom;
+import com.yunichat.chat.repository.ChatRoomRepository;
+import com.yunichat.chat.repository.RoomMemberRepository;
+import com.yunichat.chat.util.TransactionUtils;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory room membership index (roomId -> primitive set of user IDs), bounded by approximate LRU.
+ * Rooms are loaded on first use and kept current by ChatRoomService after each membership change commits.
+ * Member sets are immutable snapshots replaced on change, so membership checks never block on writers;
+ * a cold room is loaded under its own map entry, so it only holds up callers asking for that room.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomMembershipCache {
+
+    private static final String PUBLIC_ROOM_ID = "public";
+
+    private final RoomMemberRepository roomMemberRepository;
+    private final ChatRoomRepository chatRoomRepository;
+
+    @Value("${chat.membership-cache.max-rooms:10000}")
+    private int maxRooms;
+
+    private final Map<String, RoomMembers> rooms = new ConcurrentHashMap<>();
+
+    // Only one caller trims the map at a time; the others carry on
+    private final AtomicBoolean trimming = new AtomicBoolean();
+
+    // Room type never changes after creation, so whether a room is public is cached for good
+    private final Map<String, Boolean> publicRooms = new ConcurrentHashMap<>();
+
+    public boolean isMember(String roomId, long userId) {
+        return getOrLoad(roomId).contains(userId);
+    }
+
+    /**
+     * Current members of a room; the returned set is a read-only snapshot
+     */
+    public LongSet getMembers(String roomId) {
+        return LongSets.unmodifiable(getOrLoad(roomId));
+    }
+
+    /**
+     * Whether a room's traffic is open to anyone (the lobby and PUBLIC rooms) rather than only its members
+     */
+    public boolean isPublicRoom(String roomId) {
+        if (PUBLIC_ROOM_ID.equals(roomId)) {
+            return true;
+        }
+        Boolean cached = publicRooms.get(roomId);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Unknown rooms are treated as private and not cached, in case the room is created later
+        return chatRoomRepository.findByRoomId(roomId)
+                .map(room -> {
+                    boolean isPublic = room.getType() == ChatRoom.RoomType.PUBLIC;
+                    if (publicRooms.size() >= maxRooms) {
+                        publicRooms.clear();
+                    }
+                    publicRooms.put(roomId, isPublic);
+                    return isPublic;
+                })
+                .orElse(false);
+    }
+
+    public void onRoomCreated(String roomId, Collection<Long> memberIds) {
+        TransactionUtils.afterCommit(() -> {
+            rooms.put(roomId, new RoomMembers(new LongOpenHashSet(memberIds)));
+            trimIfFull();
+        });
+    }
+
+    public void onMemberJoined(String roomId, long userId) {
+        // Waits for an in-flight load of the same room, so the change is applied on top of it
+        TransactionUtils.afterCommit(() -> rooms.computeIfPresent(roomId, (key, room) -> {
+            if (!room.ids.contains(userId)) {
+                LongOpenHashSet updated = new LongOpenHashSet(room.ids);
+                updated.add(userId);
+                room.ids = updated;
+            }
+            return room;
+        }));
+    }
+
+    public void onMemberLeft(String roomId, long userId) {
+        TransactionUtils.afterCommit(() -> rooms.computeIfPresent(roomId, (key, room) -> {
+            if (room.ids.contains(userId)) {
+                LongOpenHashSet updated = new LongOpenHashSet(room.ids);
+                updated.remove(userId);
+                room.ids = updated;
+            }
+            return room;
+        }));
+    }
+
+    public int size() {
+        return rooms.size();
+    }
+
+    private LongOpenHashSet getOrLoad(String roomId) {
+        RoomMembers room = rooms.get(roomId);
+        if (room == null) {
+            room = rooms.computeIfAbsent(roomId, this::load);
+            trimIfFull();
+        }
+        room.touch();
+        return room.ids;
+    }
+
+    private RoomMembers load(String roomId) {
+        LongOpenHashSet loaded = new LongOpenHashSet(roomMemberRepository.findUserIdsByRoomId(roomId));
+        log.debug("Loaded {} members for room {} into membership cache", loaded.size(), roomId);
+        return new RoomMembers(loaded);
+    }
+
+    /**
+     * Drop the least recently used tenth of the rooms once the cache is over its bound
+     */
+    private void trimIfFull() {
+        if (rooms.size() <= maxRooms || !trimming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Timestamps are snapshotted first; they keep moving while the sort runs
+            List<Candidate> candidates = new ArrayList<>(rooms.size());
+            rooms.forEach((roomId, room) -> candidates.add(new Candidate(roomId, room, room.lastUsedAt)));
+            candidates.sort(Comparator.comparingLong(Candidate::lastUsedAt));
+            int excess = candidates.size() - maxRooms + Math.max(1, maxRooms / 10);
+            for (int i = 0; i < excess && i < candidates.size(); i++) {
+                Candidate candidate = candidates.get(i);
+                rooms.remove(candidate.roomId(), candidate.room());
+            }
+        } finally {
+            trimming.set(false);
+        }
+    }
+
+    private record Candidate(String roomId, RoomMembers room, long lastUsedAt) {
+    }
+
+    private static final class RoomMembers {
+        // Replaced, never mutated, inside computeIfPresent on the owning map entry
+        private volatile LongOpenHashSet ids;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+
+        private RoomMembers(LongOpenHashSet ids) {
+            this.ids = ids;
+        }
+
+        private void touch() {
+            long now = System.currentTimeMillis();
+            // Skip the write while the timestamp is current, so hot rooms don't bounce the cache line
+            if (now != lastUsedAt) {
+                lastUsedAt = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.yunichat.chat.service;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Sessions connected to this instance: session ID -> user ID, and one record per user holding username,
+ * guest flag and session IDs. Both maps are open-addressing (user-keyed ones on primitive longs) and split
+ * into lock stripes, so connects and disconnects for different users rarely contend.
+ * Iteration walks per-stripe snapshots that are only rebuilt after that stripe gains or loses a user.
+ */
+@Component
+public class SessionRegistry {
+
+    private static final int DEFAULT_STRIPES = 64;
+    private static final long NO_USER = Long.MIN_VALUE;
+    private static final UserPresence[] NO_USERS = new UserPresence[0];
+
+    private final Stripe[] stripes;
+
+    public SessionRegistry() {
+        this(DEFAULT_STRIPES);
+    }
+
+    SessionRegistry(int stripeCount) {
+        if (Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a power of two: " + stripeCount);
+        }
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Register a session for a user; returns true when it is the user's first session.
+     * A null username or guest flag leaves any previously recorded value in place.
+     */
+    public boolean register(String sessionId, long userId, String username, Boolean isGuest) {
+        Stripe sessionStripe = stripeFor(sessionId);
+        synchronized (sessionStripe) {
+            if (sessionStripe.sessionToUser.containsKey(sessionId)) {
+                return false;
+            }
+            sessionStripe.sessionToUser.put(sessionId, userId);
+        }
+
+        Stripe userStripe = stripeFor(userId);
+        synchronized (userStripe) {
+            UserPresence presence = userStripe.users.get(userId);
+            boolean first = presence == null;
+            if (first) {
+                presence = new UserPresence(userId);
+                userStripe.users.put(userId, presence);
+                userStripe.snapshot = null;
+            }
+            presence.addSession(sessionId);
+            if (username != null) {
+                presence.username = username;
+            }
+            if (isGuest != null) {
+                presence.guest = isGuest;
+            }
+            return first;
+        }
+    }
+
+    /**
+     * Remove a session; null when it was not registered
+     */
+    public Departure unregister(String sessionId) {
+        long userId;
+        Stripe sessionStripe = stripeFor(sessionId);
+        synchronized (sessionStripe) {
+            userId = sessionStripe.sessionToUser.removeLong(sessionId);
+        }
+        if (userId == NO_USER) {
+            return null;
+        }
+
+        Stripe userStripe = stripeFor(userId);
+        synchronized (userStripe) {
+            UserPresence presence = userStripe.users.get(userId);
+            if (presence == null) {
+                return new Departure(userId, null, null, false, 0);
+            }
+            int remaining = presence.removeSession(sessionId);
+            if (remaining == 0) {
+                userStripe.users.remove(userId);
+                userStripe.snapshot = null;
+            }
+            return new Departure(userId, presence.username, presence.guest, remaining == 0, remaining);
+        }
+    }
+
+    public boolean isRegistered(String sessionId) {
+        Stripe stripe = stripeFor(sessionId);
+        synchronized (stripe) {
+            return stripe.sessionToUser.containsKey(sessionId);
+        }
+    }
+
+    public boolean isOnline(long userId) {
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            return stripe.users.containsKey(userId);
+        }
+    }
+
+    public UserPresence getUser(long userId) {
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            return stripe.users.get(userId);
+        }
+    }
+
+    public int getUserCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.users.size();
+            }
+        }
+        return count;
+    }
+
+    public int getSessionCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.sessionToUser.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Connected users, read from per-stripe snapshots; users connecting or leaving during iteration
+     * may or may not be seen
+     */
+    public Iterable<UserPresence> users() {
+        return UserIterator::new;
+    }
+
+    private UserPresence[] snapshot(Stripe stripe) {
+        UserPresence[] snapshot = stripe.snapshot;
+        if (snapshot == null) {
+            synchronized (stripe) {
+                snapshot = stripe.snapshot;
+                if (snapshot == null) {
+                    snapshot = stripe.users.values().toArray(new UserPresence[0]);
+                    stripe.snapshot = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private Stripe stripeFor(long userId) {
+        return stripes[Long.hashCode(userId * 0x9E3779B97F4A7C15L) & (stripes.length - 1)];
+    }
+
+    private Stripe stripeFor(String sessionId) {
+        int hash = sessionId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * Result of unregistering a session; lastSession means the user is now offline on this instance
+     */
+    public record Departure(long userId, String username, Boolean isGuest, boolean lastSession, int remainingSessions) {
+    }
+
+    public static final class UserPresence {
+        private static final String[] NO_SESSIONS = new String[0];
+
+        private final long userId;
+        private volatile String username;
+        private volatile Boolean guest;
+        // Copy-on-write under the stripe lock; users rarely hold more than a few sessions
+        private volatile String[] sessionIds = NO_SESSIONS;
+
+        private UserPresence(long userId) {
+            this.userId = userId;
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public Boolean getIsGuest() {
+            return guest;
+        }
+
+        public int getSessionCount() {
+            return sessionIds.length;
+        }
+
+        private void addSession(String sessionId) {
+            String[] current = sessionIds;
+            for (String existing : current) {
+                if (existing.equals(sessionId)) {
+                    return;
+                }
+            }
+            String[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = sessionId;
+            sessionIds = updated;
+        }
+
+        private int removeSession(String sessionId) {
+            String[] current = sessionIds;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].equals(sessionId)) {
+                    String[] updated = new String[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    sessionIds = updated.length == 0 ? NO_SESSIONS : updated;
+                    break;
+                }
+            }
+            return sessionIds.length;
+        }
+    }
+
+    private static final class Stripe {
+        private final Object2LongOpenHashMap<String> sessionToUser = new Object2LongOpenHashMap<>();
+        private final Long2ObjectOpenHashMap<UserPresence> users = new Long2ObjectOpenHashMap<>();
+        // Users in this stripe as of the last change; null until rebuilt
+        private volatile UserPresence[] snapshot;
+
+        private Stripe() {
+            sessionToUser.defaultReturnValue(NO_USER);
+        }
+    }
+
+    private final class UserIterator implements Iterator<UserPresence> {
+        private int stripeIndex;
+        private UserPresence[] current = NO_USERS;
+        private int position;
+
+        @Override
+        public boolean hasNext() {
+            while (position >= current.length) {
+                if (stripeIndex >= stripes.length) {
+                    return false;
+                }
+                current = snapshot(stripes[stripeIndex++]);
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public UserPresence next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current[position++];
+        }
+    }
+}
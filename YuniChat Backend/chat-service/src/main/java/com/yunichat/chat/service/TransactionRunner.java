@@ -0,0 +1,33 @@
+package com.yunichat.chat.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs a block of writes in a transaction and records how long it held the connection.
+ * Callers do validation and remote calls before entering, so the timer covers database work only.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionRunner {
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    public <T> T inTransaction(String operation, Supplier<T> work) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return transactionTemplate.execute(status -> work.get());
+        } finally {
+            sample.stop(Timer.builder("chat.transaction.duration")
+                    .description("Time a chat write transaction holds its database connection")
+                    .tag("operation", operation)
+                    .register(meterRegistry));
+        }
+    }
+}
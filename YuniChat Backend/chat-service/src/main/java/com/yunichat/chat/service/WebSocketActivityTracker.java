@@ -0,0 +1,89 @@
+package com.yunichat.chat.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records when each open WebSocket session last sent anything (a frame or a STOMP heartbeat),
+ * and how often it agreed to send heartbeats, so IdleSessionReaper can find half-open connections
+ */
+@Component
+public class WebSocketActivityTracker implements WebSocketHandlerDecoratorFactory {
+
+    private final Map<String, TrackedSession> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), new TrackedSession(session));
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                TrackedSession tracked = sessions.get(session.getId());
+                if (tracked != null) {
+                    tracked.lastInboundAt = System.currentTimeMillis();
+                }
+                super.handleMessage(session, message);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * Record the client-to-server heartbeat interval negotiated at STOMP CONNECT; 0 means the client sends none
+     */
+    public void onConnect(String sessionId, long inboundHeartbeatMillis) {
+        TrackedSession tracked = sessions.get(sessionId);
+        if (tracked != null) {
+            tracked.inboundHeartbeatMillis = inboundHeartbeatMillis;
+        }
+    }
+
+    public Collection<TrackedSession> getSessions() {
+        return sessions.values();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public static final class TrackedSession {
+        private final WebSocketSession session;
+        private volatile long lastInboundAt = System.currentTimeMillis();
+        private volatile long inboundHeartbeatMillis;
+
+        private TrackedSession(WebSocketSession session) {
+            this.session = session;
+        }
+
+        public WebSocketSession getSession() {
+            return session;
+        }
+
+        public long getLastInboundAt() {
+            return lastInboundAt;
+        }
+
+        public long getInboundHeartbeatMillis() {
+            return inboundHeartbeatMillis;
+        }
+    }
+}
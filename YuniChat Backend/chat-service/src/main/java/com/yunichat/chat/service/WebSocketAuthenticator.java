@@ -0,0 +1,135 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.common.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Turns the bearer token on a STOMP CONNECT into the connecting user's identity.
+ * Verified claims are cached by SHA-256 of the token until the token expires, so a reconnect storm of clients
+ * holding the same token costs one hash and a map lookup each instead of a full parse and HMAC check.
+ * Only the digest is kept as the key; tokens themselves are never stored.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WebSocketAuthenticator {
+
+    public record Identity(Long userId, String username, boolean guest, long expiresAt) {
+    }
+
+    private final JwtUtil jwtUtil;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.websocket.auth.cache-max-entries:10000}")
+    private int maxEntries;
+
+    // Token digest -> verified identity, access-ordered as an LRU; guarded by this
+    private Map<String, Identity> verified;
+
+    @PostConstruct
+    public void init() {
+        verified = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Identity> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Identity carried by a valid, unexpired token
+     *
+     * @throws IllegalArgumentException if the token is malformed, badly signed, expired, has no user
+     *                                  or is not an access token
+     */
+    public Identity authenticate(String token) {
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("Missing bearer token");
+        }
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+
+        Identity cached = cached(digest);
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                count("cached");
+                return cached;
+            }
+            evict(digest);
+            count("rejected");
+            throw new IllegalArgumentException("JWT token has expired");
+        }
+
+        Identity identity;
+        try {
+            identity = toIdentity(jwtUtil.extractClaims(token));
+        } catch (RuntimeException e) {
+            count("rejected");
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        if (identity.expiresAt() <= now) {
+            count("rejected");
+            throw new IllegalArgumentException("JWT token has expired");
+        }
+        store(digest, identity);
+        count("verified");
+        return identity;
+    }
+
+    private static Identity toIdentity(Claims claims) {
+        if (claims.getSubject() == null || claims.getExpiration() == null) {
+            throw new IllegalArgumentException("JWT token has no subject or expiry");
+        }
+        Long userId;
+        try {
+            userId = Long.valueOf(claims.getSubject());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("JWT subject is not a user ID");
+        }
+        // Refresh tokens are signed with the same key but carry only subject and expiry
+        String username = claims.get("username", String.class);
+        if (username == null || username.isBlank()) {
+            throw new IllegalArgumentException("JWT token is not an access token");
+        }
+        Boolean guest = claims.get("isGuest", Boolean.class);
+        return new Identity(userId, username, Boolean.TRUE.equals(guest), claims.getExpiration().getTime());
+    }
+
+    private static String digest(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private synchronized Identity cached(String digest) {
+        return verified.get(digest);
+    }
+
+    private synchronized void store(String digest, Identity identity) {
+        verified.put(digest, identity);
+    }
+
+    private synchronized void evict(String digest) {
+        verified.remove(digest);
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("chat.websocket.auth", "result", result).increment();
+    }
+}
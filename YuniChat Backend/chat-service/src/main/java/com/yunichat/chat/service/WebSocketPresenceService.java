@@ -1,52 +1,79 @@
 package com.yunichat.chat.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunichat.chat.dto.PresenceInterestRequest;
+import com.yunichat.chat.event.UserOfflineEvent;
+import com.yunichat.chat.util.SessionMessageHeaders;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Service;
-import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 import org.springframework.web.socket.messaging.SessionSubscribeEvent;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class WebSocketPresenceService {
 
+    private static final int MAX_ACTIVE_USERS_PAGE_SIZE = 200;
+
     private final SimpMessagingTemplate messagingTemplate;
     private final org.springframework.web.client.RestTemplate restTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    // sessionId -> userId, and per user: username, guest flag and sessions (a user can have multiple tabs/browsers open)
+    private final SessionRegistry sessionRegistry;
     
-    // Maps sessionId -> userId
-    private final Map<String, Long> sessionToUser = new ConcurrentHashMap<>();
+    // Which sessions follow which users' presence
+    private final PresenceInterestIndex interestIndex;
+    private final RoomMembershipCache membershipCache;
     
-    // Maps userId -> Set of sessionIds (user can have multiple tabs/browsers open)
-    private final Map<Long, Set<String>> userToSessions = new ConcurrentHashMap<>();
+    // Sorted online users with profiles cached at connect
+    private final OnlineUserDirectory onlineUserDirectory;
     
-    // Maps userId -> username for quick lookup
-    private final Map<Long, String> userIdToUsername = new ConcurrentHashMap<>();
+    // Legacy full-list broadcast to /topic/active-users on every change; off once clients declare interest instead
+    @Value("${chat.presence.global-broadcast:true}")
+    private boolean globalBroadcast;
     
-    // Maps userId -> isGuest flag for guest user cleanup
-    private final Map<Long, Boolean> userIdToIsGuest = new ConcurrentHashMap<>();
+    @Value("${chat.presence.max-interest:5000}")
+    private int maxInterest;
 
     /**
-     * Called when WebSocket connection is established
+     * Called when WebSocket connection is established.
+     * CONNECTED is only sent once CONNECT has passed ConnectAuthInterceptor, so the identity here is the verified one.
      */
     @EventListener
-    public void handleWebSocketConnectListener(SessionConnectEvent event) {
+    public void handleWebSocketConnectListener(SessionConnectedEvent event) {
         StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
         String sessionId = headerAccessor.getSessionId();
         
-        // Get user info from session attributes (set during handshake interceptor)
-        Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
-        String username = (String) headerAccessor.getSessionAttributes().get("username");
-        Boolean isGuest = (Boolean) headerAccessor.getSessionAttributes().get("isGuest");
+        // Session attributes travel on the original CONNECT message
+        Message<?> connect = (Message<?>) headerAccessor.getHeader(SimpMessageHeaderAccessor.CONNECT_MESSAGE_HEADER);
+        Map<String, Object> attributes = connect != null
+                ? SimpMessageHeaderAccessor.getSessionAttributes(connect.getHeaders())
+                : headerAccessor.getSessionAttributes();
+        if (attributes == null) {
+            log.warn("⚠️ WebSocket connected without session attributes: {}", sessionId);
+            return;
+        }
+        
+        Long userId = (Long) attributes.get("userId");
+        String username = (String) attributes.get("username");
+        Boolean isGuest = (Boolean) attributes.get("isGuest");
         
         if (userId == null) {
             log.warn("⚠️ WebSocket connected but no userId in session: {}", sessionId);
@@ -56,19 +83,10 @@ public class WebSocketPresenceService {
         log.info("✅ WebSocket CONNECTED: sessionId={}, userId={}, username={}, isGuest={}", 
                 sessionId, userId, username, isGuest);
         
-        // Check if this is a new user connection (first session)
-        boolean isNewConnection = !userToSessions.containsKey(userId) || userToSessions.get(userId).isEmpty();
-        
-        // Track this session
-        sessionToUser.put(sessionId, userId);
-        userToSessions.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(sessionId);
-        
-        if (username != null) {
-            userIdToUsername.put(userId, username);
-        }
-        
-        if (isGuest != null) {
-            userIdToIsGuest.put(userId, isGuest);
+        // Track this session; true if this is a new user connection (first session)
+        boolean isNewConnection = sessionRegistry.register(sessionId, userId, username, isGuest);
+        if (isNewConnection) {
+            onlineUserDirectory.add(userId, username, isGuest);
         }
         
         // Broadcast JOIN event ONLY if this is the user's first session
@@ -83,6 +101,10 @@ public class WebSocketPresenceService {
             log.info("📢 Broadcasted JOIN event for NEW user {} to /topic/room/public/events", username);
         }
         
+        if (isNewConnection) {
+            notifyPresenceChange(userId, username, "ONLINE");
+        }
+        
         // Broadcast updated active users list immediately
         log.info("📢 Broadcasting active users after connection");
         broadcastActiveUsers();
@@ -90,7 +112,7 @@ public class WebSocketPresenceService {
     
     /**
      * Called when client subscribes to a destination
-     * This ensures active users are sent even if SessionConnectEvent didn't have user info
+     * This ensures active users are sent even if SessionConnectedEvent didn't have user info
      */
     @EventListener
     public void handleWebSocketSubscribeListener(SessionSubscribeEvent event) {
@@ -98,19 +120,16 @@ public class WebSocketPresenceService {
         String sessionId = headerAccessor.getSessionId();
         
         // Check if we have this user tracked
-        Long userId = sessionToUser.get(sessionId);
-        if (userId == null) {
+        if (!sessionRegistry.isRegistered(sessionId)) {
             // Try to get from session attributes again
-            userId = (Long) headerAccessor.getSessionAttributes().get("userId");
+            Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
             String username = (String) headerAccessor.getSessionAttributes().get("username");
             
             if (userId != null) {
                 log.info("✅ Adding user on SUBSCRIBE: sessionId={}, userId={}, username={}", 
                         sessionId, userId, username);
-                sessionToUser.put(sessionId, userId);
-                userToSessions.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(sessionId);
-                if (username != null) {
-                    userIdToUsername.put(userId, username);
+                if (sessionRegistry.register(sessionId, userId, username, null)) {
+                    onlineUserDirectory.add(userId, username, null);
                 }
                 // Broadcast after adding user
                 log.info("📢 Broadcasting active users after subscription");
@@ -127,118 +146,99 @@ public class WebSocketPresenceService {
         StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
         String sessionId = headerAccessor.getSessionId();
         
-        Long userId = sessionToUser.remove(sessionId);
-        
-        if (userId == null) {
-            log.warn("⚠️ WebSocket disconnected but no userId found: {}", sessionId);
+        List<Long> offlineGuests = new ArrayList<>();
+        if (!removeSession(sessionId, offlineGuests)) {
+            // Sessions closed by IdleSessionReaper were already deregistered
+            log.debug("WebSocket disconnected with no tracked user: {}", sessionId);
             return;
         }
         
-        String username = userIdToUsername.get(userId);
-        log.info("❌ WebSocket DISCONNECTED: sessionId={}, userId={}, username={}", sessionId, userId, username);
+        deleteGuestUsers(offlineGuests);
         
-        // Remove this session from user's session set
-        Set<String> userSessions = userToSessions.get(userId);
-        if (userSessions != null) {
-            userSessions.remove(sessionId);
-            
-            // If user has no more active sessions, remove them completely
-            if (userSessions.isEmpty()) {
-                Boolean isGuest = userIdToIsGuest.remove(userId);
-                userToSessions.remove(userId);
-                userIdToUsername.remove(userId);
-                log.info("👋 User {} ({}) is now completely offline (no active sessions), isGuest={}", userId, username, isGuest);
-                
-                // Broadcast user left event to public chat
-                if (username != null) {
-                    Map<String, Object> leaveEvent = new HashMap<>();
-                    leaveEvent.put("type", "LEAVE");
-                    leaveEvent.put("userId", userId);
-                    leaveEvent.put("username", username);
-                    leaveEvent.put("timestamp", System.currentTimeMillis());
-                    
-                    messagingTemplate.convertAndSend("/topic/room/public/events", leaveEvent);
-                    log.info("📢 Broadcasted LEAVE event for user {} to /topic/room/public/events", username);
-                }
-                
-                // Delete guest user data from database
-                if (Boolean.TRUE.equals(isGuest)) {
-                    deleteGuestUser(userId);
-                }
-            } else {
-                log.info("🔄 User {} still has {} active session(s)", userId, userSessions.size());
+        // Broadcast updated active users list
+        broadcastActiveUsers();
+    }
+
+    /**
+     * Deregister several dead sessions at once, then send one active-users update and one guest cleanup request
+     */
+    public void deregisterSessions(Collection<String> sessionIds) {
+        List<Long> offlineGuests = new ArrayList<>();
+        int removed = 0;
+        for (String sessionId : sessionIds) {
+            if (removeSession(sessionId, offlineGuests)) {
+                removed++;
             }
         }
+        if (removed == 0) {
+            return;
+        }
         
-        // Broadcast updated active users list
+        log.info("🧹 Deregistered {} dead session(s); {} guest(s) went offline", removed, offlineGuests.size());
+        deleteGuestUsers(offlineGuests);
         broadcastActiveUsers();
     }
 
     /**
-     * Broadcast list of currently connected users to all clients
+     * Drop one session; if it was the user's last, announce LEAVE and collect them for guest cleanup.
+     * Returns false when the session was not tracked.
      */
-    public void broadcastActiveUsers() {
-        List<Map<String, Object>> activeUsers = new ArrayList<>();
+    private boolean removeSession(String sessionId, List<Long> offlineGuests) {
+        interestIndex.removeSession(sessionId);
+        SessionRegistry.Departure departure = sessionRegistry.unregister(sessionId);
         
-        // Build list of unique active users
-        for (Map.Entry<Long, Set<String>> entry : userToSessions.entrySet()) {
-            Long userId = entry.getKey();
-            String username = userIdToUsername.get(userId);
-            int sessionCount = entry.getValue().size();
+        if (departure == null) {
+            return false;
+        }
+        
+        long userId = departure.userId();
+        String username = departure.username();
+        log.info("❌ WebSocket DISCONNECTED: sessionId={}, userId={}, username={}", sessionId, userId, username);
+        
+        // If user has no more active sessions, they are now offline
+        if (departure.lastSession()) {
+            Boolean isGuest = departure.isGuest();
+            log.info("👋 User {} ({}) is now completely offline (no active sessions), isGuest={}", userId, username, isGuest);
+            onlineUserDirectory.remove(userId);
+            eventPublisher.publishEvent(new UserOfflineEvent(userId));
+            notifyPresenceChange(userId, username, "OFFLINE");
             
-            // Fetch actual status and user info from user-service
-            String userStatus = "ONLINE"; // Default fallback
-            Boolean isGuest = null; // Will be fetched from user-service
-            String email = null;
-            String avatarUrl = null;
-            String gender = null;
-            try {
-                // Fetch full user profile to get isGuest field, avatarUrl, and gender
-                String profileUrl = "http://user-service:8082/api/users/profile/" + userId;
-                log.info("🔍 Fetching profile for user {} from: {}", userId, profileUrl);
-                @SuppressWarnings("unchecked")
-                Map<String, Object> profileResponse = restTemplate.getForObject(profileUrl, Map.class);
-                if (profileResponse != null && profileResponse.get("data") != null) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> userData = (Map<String, Object>) profileResponse.get("data");
-                    isGuest = (Boolean) userData.get("isGuest");
-                    email = (String) userData.get("email");
-                    avatarUrl = (String) userData.get("avatarUrl");
-                    gender = (String) userData.get("gender");
-                    log.info("✅ User {} profile: isGuest={}, email={}, avatarUrl={}, gender={}", userId, isGuest, email, avatarUrl, gender);
-                }
+            // Broadcast user left event to public chat
+            if (username != null) {
+                Map<String, Object> leaveEvent = new HashMap<>();
+                leaveEvent.put("type", "LEAVE");
+                leaveEvent.put("userId", userId);
+                leaveEvent.put("username", username);
+                leaveEvent.put("timestamp", System.currentTimeMillis());
                 
-                // Also fetch status
-                String statusUrl = "http://user-service:8082/api/users/presence/" + userId;
-                @SuppressWarnings("unchecked")
-                Map<String, Object> statusResponse = restTemplate.getForObject(statusUrl, Map.class);
-                if (statusResponse != null && statusResponse.get("data") != null) {
-                    String status = (String) statusResponse.get("data");
-                    if (status != null && !status.isEmpty()) {
-                        userStatus = status.toUpperCase();
-                    }
-                }
-            } catch (Exception e) {
-                log.error("❌ Could not fetch user info for {}: {}", userId, e.getMessage());
+                messagingTemplate.convertAndSend("/topic/room/public/events", leaveEvent);
+                log.info("📢 Broadcasted LEAVE event for user {} to /topic/room/public/events", username);
             }
             
-            Map<String, Object> user = new HashMap<>();
-            user.put("id", userId);
-            user.put("username", username != null ? username : "User" + userId);
-            user.put("status", userStatus);
-            user.put("sessionCount", sessionCount);
-            user.put("isGuest", isGuest != null ? isGuest : false); // Include isGuest field
-            if (email != null) {
-                user.put("email", email); // Include email if available
-            }
-            if (avatarUrl != null) {
-                user.put("avatarUrl", avatarUrl); // Include avatarUrl if available
+            // Delete guest user data from database
+            if (Boolean.TRUE.equals(isGuest)) {
+                offlineGuests.add(userId);
             }
-            if (gender != null) {
-                user.put("gender", gender); // Include gender for avatar color
-            }
-            
-            activeUsers.add(user);
+        } else if (departure.remainingSessions() > 0) {
+            log.info("🔄 User {} still has {} active session(s)", userId, departure.remainingSessions());
+        }
+        return true;
+    }
+
+    /**
+     * Broadcast list of currently connected users to all clients.
+     * No-op unless chat.presence.global-broadcast is on; scoped clients use interest sets and sendActiveUsersPage.
+     */
+    public void broadcastActiveUsers() {
+        if (!globalBroadcast) {
+            return;
+        }
+        
+        List<Map<String, Object>> activeUsers = new ArrayList<>();
+        
+        // Build list of unique active users
+        for (SessionRegistry.UserPresence presence : sessionRegistry.users()) {
+            activeUsers.add(describeUser(presence));
         }
         
         log.info("📢 Broadcasting {} active users to /topic/active-users", activeUsers.size());
@@ -255,37 +255,233 @@ public class WebSocketPresenceService {
         messagingTemplate.convertAndSend("/topic/active-users", message);
     }
 
+    public boolean isGlobalBroadcastEnabled() {
+        return globalBroadcast;
+    }
+
+    /**
+     * Send one page of the online list, ordered by user ID, to a single session's /queue/active-users
+     */
+    public void sendActiveUsersPage(Long requesterId, String sessionId, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_ACTIVE_USERS_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        // One extra entry tells whether another page follows
+        List<OnlineUserDirectory.OnlineUser> entries =
+                onlineUserDirectory.listByUserId((long) pageNumber * pageSize, pageSize + 1);
+        boolean hasMore = entries.size() > pageSize;
+        
+        List<Map<String, Object>> users = new ArrayList<>(pageSize);
+        for (int i = 0; i < entries.size() && i < pageSize; i++) {
+            SessionRegistry.UserPresence presence = sessionRegistry.getUser(entries.get(i).getUserId());
+            if (presence != null) {
+                users.add(describeUser(presence));
+            }
+        }
+        
+        Map<String, Object> message = new HashMap<>();
+        message.put("type", "ACTIVE_USERS_PAGE");
+        message.put("users", users);
+        message.put("page", pageNumber);
+        message.put("size", pageSize);
+        message.put("total", onlineUserDirectory.size());
+        message.put("hasMore", hasMore);
+        message.put("timestamp", System.currentTimeMillis());
+        
+        messagingTemplate.convertAndSendToUser(requesterId.toString(), "/queue/active-users", message, SessionMessageHeaders.forSession(sessionId));
+    }
+
+    /**
+     * Send one page of the sorted online directory to a single session's /queue/online-users
+     */
+    public void sendDirectoryPage(Long requesterId, String sessionId, OnlineUserDirectory.Sort sort, String cursor,
+                                  int size, Boolean guest, String gender) {
+        messagingTemplate.convertAndSendToUser(requesterId.toString(), "/queue/online-users",
+                onlineUserDirectory.list(sort, cursor, size, guest, gender), SessionMessageHeaders.forSession(sessionId));
+    }
+
+    /**
+     * Replace a session's presence interest with the union of its explicit users, the members of the given rooms
+     * it belongs to, and optionally its friends; then send it the current online subset
+     */
+    public void declareInterest(Long userId, String sessionId, PresenceInterestRequest request) {
+        LongOpenHashSet watched = new LongOpenHashSet();
+        if (request.getUserIds() != null) {
+            for (Long id : request.getUserIds()) {
+                if (id != null) {
+                    watched.add(id.longValue());
+                }
+            }
+        }
+        if (request.getRoomIds() != null) {
+            for (String roomId : request.getRoomIds()) {
+                // The public room is everyone online; clients page through it with /app/presence.list instead
+                if (roomId != null && !"public".equals(roomId) && membershipCache.isMember(roomId, userId)) {
+                    watched.addAll(membershipCache.getMembers(roomId));
+                }
+            }
+        }
+        if (Boolean.TRUE.equals(request.getFriends())) {
+            watched.addAll(fetchFriendIds(userId));
+        }
+        if (watched.size() > maxInterest) {
+            log.warn("Presence interest for user {} truncated from {} to {} users", userId, watched.size(), maxInterest);
+            LongOpenHashSet truncated = new LongOpenHashSet(maxInterest);
+            var iterator = watched.iterator();
+            while (truncated.size() < maxInterest) {
+                truncated.add(iterator.nextLong());
+            }
+            watched = truncated;
+        }
+        
+        interestIndex.replace(sessionId, userId, watched);
+        
+        List<Map<String, Object>> online = new ArrayList<>();
+        watched.forEach((long watchedId) -> {
+            SessionRegistry.UserPresence presence = sessionRegistry.getUser(watchedId);
+            if (presence != null) {
+                online.add(presenceEntry(watchedId, presence.getUsername(), "ONLINE"));
+            }
+        });
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("type", "PRESENCE_SNAPSHOT");
+        snapshot.put("online", online);
+        snapshot.put("watching", watched.size());
+        snapshot.put("timestamp", System.currentTimeMillis());
+        messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/presence", snapshot, SessionMessageHeaders.forSession(sessionId));
+        log.debug("Session {} of user {} now watches {} users ({} online)", sessionId, userId, watched.size(), online.size());
+    }
+
+    /**
+     * A user's status changed: tell the sessions watching them, and everyone if the global broadcast is on
+     */
+    public void publishStatusChange(Long userId, String status) {
+        onlineUserDirectory.updateStatus(userId, status);
+        SessionRegistry.UserPresence presence = sessionRegistry.getUser(userId);
+        notifyPresenceChange(userId, presence != null ? presence.getUsername() : null, status);
+        
+        if (globalBroadcast) {
+            Map<String, Object> statusMessage = new HashMap<>();
+            statusMessage.put("userId", userId);
+            statusMessage.put("status", status);
+            statusMessage.put("timestamp", System.currentTimeMillis());
+            
+            messagingTemplate.convertAndSend("/topic/user-status", statusMessage);
+            broadcastActiveUsers();
+        }
+    }
+
+    /**
+     * Deliver a presence change only to the sessions that declared interest in this user
+     */
+    private void notifyPresenceChange(long userId, String username, String status) {
+        List<PresenceInterestIndex.Watcher> watchers = interestIndex.watchersOf(userId);
+        if (watchers.isEmpty()) {
+            return;
+        }
+        
+        Map<String, Object> change = presenceEntry(userId, username, status);
+        change.put("type", "PRESENCE");
+        change.put("timestamp", System.currentTimeMillis());
+        for (PresenceInterestIndex.Watcher watcher : watchers) {
+            messagingTemplate.convertAndSendToUser(String.valueOf(watcher.ownerId()), "/queue/presence", change,
+                    SessionMessageHeaders.forSession(watcher.sessionId()));
+        }
+        log.debug("Presence of user {} ({}) sent to {} interested session(s)", userId, status, watchers.size());
+    }
+
+    private Map<String, Object> presenceEntry(long userId, String username, String status) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("userId", userId);
+        entry.put("username", username != null ? username : "User" + userId);
+        entry.put("status", status);
+        return entry;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> fetchFriendIds(Long userId) {
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("X-User-Id", userId.toString());
+            Map<String, Object> response = restTemplate.exchange("http://user-service:8082/api/users/friends",
+                    HttpMethod.GET, new HttpEntity<>(headers), Map.class).getBody();
+            if (response == null || !(response.get("data") instanceof List<?> friends)) {
+                return List.of();
+            }
+            List<Long> friendIds = new ArrayList<>(friends.size());
+            for (Object friend : friends) {
+                Object id = ((Map<String, Object>) friend).get("id");
+                if (id instanceof Number number) {
+                    friendIds.add(number.longValue());
+                }
+            }
+            return friendIds;
+        } catch (Exception e) {
+            log.error("❌ Could not fetch friends of user {} for presence interest: {}", userId, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Profile and status of an online user, as listed in /topic/active-users; read from the directory's
+     * connect-time profile rather than user-service
+     */
+    private Map<String, Object> describeUser(SessionRegistry.UserPresence presence) {
+        Long userId = presence.getUserId();
+        String username = presence.getUsername();
+        OnlineUserDirectory.OnlineUser profile = onlineUserDirectory.get(userId);
+        
+        Map<String, Object> user = new HashMap<>();
+        user.put("id", userId);
+        user.put("username", username != null ? username : "User" + userId);
+        user.put("status", profile != null ? profile.getStatus() : "ONLINE");
+        user.put("sessionCount", presence.getSessionCount());
+        user.put("isGuest", profile != null ? profile.isGuest() : Boolean.TRUE.equals(presence.getIsGuest()));
+        if (profile != null && profile.getEmail() != null) {
+            user.put("email", profile.getEmail()); // Include email if available
+        }
+        if (profile != null && profile.getAvatarUrl() != null) {
+            user.put("avatarUrl", profile.getAvatarUrl()); // Include avatarUrl if available
+        }
+        if (profile != null && profile.getGender() != null) {
+            user.put("gender", profile.getGender()); // Include gender for avatar color
+        }
+        return user;
+    }
+
     /**
      * Get currently active user count
      */
     public int getActiveUserCount() {
-        return userToSessions.size();
+        return sessionRegistry.getUserCount();
     }
 
     /**
      * Check if a specific user is online
      */
     public boolean isUserOnline(Long userId) {
-        return userToSessions.containsKey(userId);
+        return sessionRegistry.isOnline(userId);
     }
 
     /**
-     * Get all active user IDs
+     * Iterate active users without copying the registry
      */
-    public Set<Long> getActiveUserIds() {
-        return new HashSet<>(userToSessions.keySet());
+    public Iterable<SessionRegistry.UserPresence> getActiveUsers() {
+        return sessionRegistry.users();
     }
     
     /**
-     * Delete guest user from database via user-service
+     * Delete guest users from database via user-service, in one request
      */
-    private void deleteGuestUser(Long userId) {
+    private void deleteGuestUsers(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
         try {
-            String userServiceUrl = "http://user-service:8082/api/users/guest/" + userId;
-            restTemplate.delete(userServiceUrl);
-            log.info("✅ Deleted guest user {} from database", userId);
+            String userServiceUrl = "http://user-service:8082/api/users/guest/bulk-delete";
+            restTemplate.postForObject(userServiceUrl, new HashSet<>(userIds), Map.class);
+            log.info("✅ Deleted {} guest user(s) from database: {}", userIds.size(), userIds);
         } catch (Exception e) {
-            log.error("❌ Failed to delete guest user {}: {}", userId, e.getMessage());
+            log.error("❌ Failed to delete guest users {}: {}", userIds, e.getMessage());
         }
     }
 }
@@ -0,0 +1,241 @@
+package com.yunichat.chat.util;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton over a fixed term list. One pass over the text finds every occurrence of every term,
+ * in time linear in the text length plus the number of matches, however many terms there are.
+ * Text and terms are folded the same way before matching: compatibility decomposition (NFKD), combining marks and
+ * invisible format characters dropped, then lower-cased, so full-width, accented and zero-width-split spellings of
+ * a term all match it.
+ * Instances are immutable and safe to share between threads.
+ */
+public final class AhoCorasickMatcher {
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    // (state << 16 | char) -> next state
+    private final Long2IntOpenHashMap transitions;
+    private final int[] failure;
+    // Term ending at each state, or NONE
+    private final int[] output;
+    // Nearest state on the failure chain with an output, or NONE
+    private final int[] outputLink;
+    // Normalized length of each term
+    private final int[] termLengths;
+
+    private AhoCorasickMatcher(Long2IntOpenHashMap transitions, int[] failure, int[] output, int[] outputLink, int[] termLengths) {
+        this.transitions = transitions;
+        this.failure = failure;
+        this.output = output;
+        this.outputLink = outputLink;
+        this.termLengths = termLengths;
+    }
+
+    @FunctionalInterface
+    public interface MatchListener {
+        /**
+         * A term matched original text [start, end); term is its index in the list given to build
+         */
+        void onMatch(int term, int start, int end);
+    }
+
+    /**
+     * Build the automaton. Terms that normalize to nothing never match; when two terms normalize to the same
+     * string only the first one is reported.
+     */
+    public static AhoCorasickMatcher build(List<String> terms) {
+        Long2IntOpenHashMap transitions = new Long2IntOpenHashMap();
+        transitions.defaultReturnValue(NONE);
+        IntArrayList parent = new IntArrayList();
+        IntArrayList label = new IntArrayList();
+        IntArrayList depth = new IntArrayList();
+        IntArrayList output = new IntArrayList();
+        parent.add(NONE);
+        label.add(0);
+        depth.add(0);
+        output.add(NONE);
+
+        int[] termLengths = new int[terms.size()];
+        int maxDepth = 0;
+        for (int term = 0; term < terms.size(); term++) {
+            Normalized normalized = normalize(terms.get(term));
+            termLengths[term] = normalized.length;
+            int state = ROOT;
+            for (int i = 0; i < normalized.length; i++) {
+                char c = normalized.chars[i];
+                int next = transitions.get(key(state, c));
+                if (next == NONE) {
+                    next = parent.size();
+                    transitions.put(key(state, c), next);
+                    parent.add(state);
+                    label.add(c);
+                    depth.add(i + 1);
+                    output.add(NONE);
+                }
+                state = next;
+            }
+            if (state != ROOT && output.getInt(state) == NONE) {
+                output.set(state, term);
+            }
+            maxDepth = Math.max(maxDepth, normalized.length);
+        }
+
+        // Failure links in order of depth, so a state's parent and every shorter suffix are resolved first
+        int states = parent.size();
+        int[] byDepth = orderByDepth(depth, maxDepth);
+        int[] failure = new int[states];
+        int[] outputLink = new int[states];
+        int[] outputs = output.toIntArray();
+        outputLink[ROOT] = NONE;
+        for (int state : byDepth) {
+            if (state == ROOT) {
+                continue;
+            }
+            int fallback = ROOT;
+            if (depth.getInt(state) > 1) {
+                char c = (char) label.getInt(state);
+                int candidate = failure[parent.getInt(state)];
+                while (true) {
+                    int next = transitions.get(key(candidate, c));
+                    if (next != NONE) {
+                        fallback = next;
+                        break;
+                    }
+                    if (candidate == ROOT) {
+                        break;
+                    }
+                    candidate = failure[candidate];
+                }
+            }
+            failure[state] = fallback;
+            outputLink[state] = outputs[fallback] != NONE ? fallback : outputLink[fallback];
+        }
+
+        transitions.trim();
+        return new AhoCorasickMatcher(transitions, failure, outputs, outputLink, termLengths);
+    }
+
+    public int stateCount() {
+        return failure.length;
+    }
+
+    /**
+     * Report every term occurrence in text. With wholeWords, occurrences touching a letter or digit on either side
+     * are skipped, so "class" does not match inside "classic".
+     */
+    public void match(String text, boolean wholeWords, MatchListener listener) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        Normalized normalized = normalize(text);
+        char[] chars = normalized.chars;
+        int state = ROOT;
+        for (int i = 0; i < normalized.length; i++) {
+            char c = chars[i];
+            int next;
+            while ((next = transitions.get(key(state, c))) == NONE && state != ROOT) {
+                state = failure[state];
+            }
+            state = next == NONE ? ROOT : next;
+
+            for (int hit = output[state] != NONE ? state : outputLink[state]; hit != NONE; hit = outputLink[hit]) {
+                int term = output[hit];
+                int first = i - termLengths[term] + 1;
+                if (wholeWords && (isWordChar(chars, first - 1, normalized.length) || isWordChar(chars, i + 1, normalized.length))) {
+                    continue;
+                }
+                listener.onMatch(term, normalized.sourceStart[first], normalized.sourceEnd[i]);
+            }
+        }
+    }
+
+    private static boolean isWordChar(char[] chars, int index, int length) {
+        return index >= 0 && index < length && Character.isLetterOrDigit(chars[index]);
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    private static int[] orderByDepth(IntArrayList depth, int maxDepth) {
+        int[] counts = new int[maxDepth + 2];
+        for (int i = 0; i < depth.size(); i++) {
+            counts[depth.getInt(i) + 1]++;
+        }
+        for (int d = 1; d < counts.length; d++) {
+            counts[d] += counts[d - 1];
+        }
+        int[] ordered = new int[depth.size()];
+        for (int i = 0; i < depth.size(); i++) {
+            ordered[counts[depth.getInt(i)]++] = i;
+        }
+        return ordered;
+    }
+
+    /**
+     * Fold text for matching, remembering which original chars each folded char came from.
+     * Callers that deduplicate terms should key them by normalize(term).text(), the form the automaton sees.
+     */
+    public static Normalized normalize(String text) {
+        Normalized out = new Normalized(text.length());
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                // ASCII needs no decomposition; this is the common case
+                out.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c, i, i + 1);
+                i++;
+                continue;
+            }
+            int codePoint = text.codePointAt(i);
+            int end = i + Character.charCount(codePoint);
+            String decomposed = Normalizer.normalize(text.substring(i, end), Normalizer.Form.NFKD);
+            for (int k = 0; k < decomposed.length(); k++) {
+                char d = decomposed.charAt(k);
+                int type = Character.getType(d);
+                if (type != Character.NON_SPACING_MARK && type != Character.ENCLOSING_MARK && type != Character.FORMAT) {
+                    out.append(Character.toLowerCase(d), i, end);
+                }
+            }
+            i = end;
+        }
+        return out;
+    }
+
+    public static final class Normalized {
+        private char[] chars;
+        private int[] sourceStart;
+        private int[] sourceEnd;
+        private int length;
+
+        private Normalized(int capacity) {
+            chars = new char[Math.max(capacity, 1)];
+            sourceStart = new int[chars.length];
+            sourceEnd = new int[chars.length];
+        }
+
+        private void append(char c, int start, int end) {
+            if (length == chars.length) {
+                int grown = length * 2;
+                chars = Arrays.copyOf(chars, grown);
+                sourceStart = Arrays.copyOf(sourceStart, grown);
+                sourceEnd = Arrays.copyOf(sourceEnd, grown);
+            }
+            chars[length] = c;
+            sourceStart[length] = start;
+            sourceEnd[length] = end;
+            length++;
+        }
+
+        public String text() {
+            return new String(chars, 0, length);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.yunichat.chat.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed set of single-threaded lanes chosen by key: tasks for the same key (a room, a user)
+ * run in submission order while different keys proceed in parallel.
+ * Lane queues are bounded; a full lane blocks the submitter instead of dropping or reordering tasks.
+ */
+@Slf4j
+public class OrderedExecutor {
+
+    private final ThreadPoolExecutor[] lanes;
+
+    public OrderedExecutor(String name, int laneCount, int queueCapacity) {
+        lanes = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            String threadName = name + "-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    (task, executor) -> blockingPut(threadName, task, executor));
+        }
+    }
+
+    public void execute(Object key, Runnable task) {
+        lanes[Math.floorMod(key.hashCode(), lanes.length)].execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("Ordered task failed for key {}: {}", key, e.getMessage(), e);
+            }
+        });
+    }
+
+    public int queuedTasks() {
+        int queued = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            queued += lane.getQueue().size();
+        }
+        return queued;
+    }
+
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    private static void blockingPut(String laneName, Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Lane " + laneName + " is shut down");
+        }
+        log.warn("Lane {} is full; submitter waits for capacity", laneName);
+        BlockingQueue<Runnable> queue = executor.getQueue();
+        try {
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for lane " + laneName, e);
+        }
+    }
+}
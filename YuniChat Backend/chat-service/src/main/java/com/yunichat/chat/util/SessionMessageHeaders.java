@@ -0,0 +1,22 @@
+package com.yunichat.chat.util;
+
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+
+public final class SessionMessageHeaders {
+
+    private SessionMessageHeaders() {
+    }
+
+    /**
+     * Headers that make a user destination resolve to one WebSocket session rather than all of the user's sessions.
+     * Used for request/response exchanges so other tabs of the same user do not receive the reply.
+     */
+    public static MessageHeaders forSession(String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
+    }
+}
@@ -0,0 +1,27 @@
+package com.yunichat.chat.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class TransactionUtils {
+
+    private TransactionUtils() {
+    }
+
+    /**
+     * Run an action once the current transaction commits, or immediately when there is none.
+     * Used to keep in-memory state from ever reflecting a rolled-back write.
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
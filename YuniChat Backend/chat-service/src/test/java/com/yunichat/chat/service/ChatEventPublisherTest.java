@@ -0,0 +1,146 @@
+package com.yunichat.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunichat.chat.dto.MessageResponse;
+import com.yunichat.chat.entity.Message;
+import com.yunichat.chat.event.MessageBatchSentEvent;
+import com.yunichat.chat.event.MessageSentEvent;
+import com.yunichat.chat.util.OrderedExecutor;
+import com.yunichat.common.dto.ChatEventDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EmbeddedKafka(partitions = 3, topics = ChatEventDTO.TOPIC)
+class ChatEventPublisherTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private DefaultKafkaProducerFactory<String, String> producerFactory;
+    private OrderedExecutor executor;
+    private Consumer<String, String> consumer;
+    private ChatEventPublisher publisher;
+
+    @BeforeEach
+    void setUp(EmbeddedKafkaBroker broker) {
+        producerFactory = new DefaultKafkaProducerFactory<>(KafkaTestUtils.producerProps(broker),
+                new StringSerializer(), new StringSerializer());
+        executor = new OrderedExecutor("test-events", 2, 100);
+        publisher = new ChatEventPublisher(new KafkaTemplate<>(producerFactory), objectMapper, executor, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(publisher, "topic", ChatEventDTO.TOPIC);
+        ReflectionTestUtils.setField(publisher, "maxPendingEvents", 100);
+
+        // Fresh group per test so every test reads the topic from the beginning
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps("chat-events-" + UUID.randomUUID(), "false", broker);
+        consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        consumer = new DefaultKafkaConsumerFactory<>(consumerProps, new StringDeserializer(), new StringDeserializer())
+                .createConsumer();
+        broker.consumeFromAnEmbeddedTopic(consumer, ChatEventDTO.TOPIC);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.close();
+        executor.shutdown();
+        producerFactory.destroy();
+    }
+
+    @Test
+    @DisplayName("Should publish MESSAGE_CREATED keyed by room ID")
+    void onMessageSent_PublishesKeyedByRoom() throws Exception {
+        Message message = message(101L, "room-created", 7L);
+
+        publisher.onMessageSent(new MessageSentEvent(message, response(message)));
+
+        List<ConsumerRecord<String, String>> records = recordsForKey("room-created", 1);
+        ChatEventDTO event = objectMapper.readValue(records.get(0).value(), ChatEventDTO.class);
+        assertEquals(ChatEventDTO.Type.MESSAGE_CREATED, event.getType());
+        assertEquals(101L, event.getMessageId());
+        assertEquals(7L, event.getSenderId());
+        assertEquals("hello 101", event.getContent());
+        assertNotNull(event.getEventId());
+    }
+
+    @Test
+    @DisplayName("Should keep a room's batch in send order on one partition")
+    void onMessageBatchSent_PreservesRoomOrder() throws Exception {
+        List<Message> messages = new ArrayList<>();
+        List<MessageResponse> responses = new ArrayList<>();
+        for (long id = 201; id <= 205; id++) {
+            Message message = message(id, "room-batch", 8L);
+            messages.add(message);
+            responses.add(response(message));
+        }
+
+        publisher.onMessageBatchSent(new MessageBatchSentEvent(messages, responses));
+
+        List<ConsumerRecord<String, String>> records = recordsForKey("room-batch", 5);
+        assertEquals(1, records.stream().map(ConsumerRecord::partition).distinct().count());
+        List<Long> ids = new ArrayList<>();
+        for (ConsumerRecord<String, String> record : records) {
+            ids.add(objectMapper.readValue(record.value(), ChatEventDTO.class).getMessageId());
+        }
+        assertEquals(List.of(201L, 202L, 203L, 204L, 205L), ids);
+    }
+
+    private List<ConsumerRecord<String, String>> recordsForKey(String key, int expected) {
+        List<ConsumerRecord<String, String>> matching = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (matching.size() < expected && System.currentTimeMillis() < deadline) {
+            KafkaTestUtils.getRecords(consumer, Duration.ofMillis(500))
+                    .forEach(record -> {
+                        if (key.equals(record.key())) {
+                            matching.add(record);
+                        }
+                    });
+        }
+        assertEquals(expected, matching.size(), "records published for " + key);
+        return matching;
+    }
+
+    private Message message(Long id, String roomId, Long senderId) {
+        return Message.builder()
+                .id(id)
+                .roomId(roomId)
+                .senderId(senderId)
+                .content("hello " + id)
+                .type(Message.MessageType.TEXT)
+                .isEdited(false)
+                .isDeleted(false)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private MessageResponse response(Message message) {
+        return MessageResponse.builder()
+                .id(message.getId())
+                .roomId(message.getRoomId())
+                .senderId(message.getSenderId())
+                .senderUsername("User" + message.getSenderId())
+                .content(message.getContent())
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.config.ContentFilterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should mask every occurrence in place, keeping the message length")
+    void apply_MaskTerm_MasksOccurrences() {
+        ContentFilter filter = filter("darn", "heck");
+
+        ContentFilter.Result result = filter.apply("Darn it, what the heck, darn");
+
+        assertEquals("**** it, what the ****, ****", result.content());
+        assertFalse(result.rejected());
+        assertFalse(result.flagged());
+    }
+
+    @Test
+    @DisplayName("Should see through full-width, accented and zero-width spellings")
+    void apply_UnicodeVariants_AreNormalized() {
+        ContentFilter filter = filter("darn");
+
+        // Full-width letters, an accented a, and a zero-width space inside the word
+        assertEquals("oh ****", filter.apply("oh \uFF24\uFF41\uFF52\uFF4E").content());
+        assertEquals("oh ****!", filter.apply("oh d\u00E1rn!").content());
+        assertEquals("oh *****", filter.apply("oh da\u200Brn").content());
+    }
+
+    @Test
+    @DisplayName("Should only match whole words")
+    void apply_WholeWords_SkipsEmbeddedTerms() {
+        ContentFilter filter = filter("ass");
+
+        assertEquals("classic assessment", filter.apply("classic assessment").content());
+        assertEquals("you ***", filter.apply("you ass").content());
+    }
+
+    @Test
+    @DisplayName("Should reject over mask and flag, and keep the most severe action for repeated terms")
+    void apply_Actions_MostSevereWins() {
+        ContentFilter filter = filter("flag:spoiler", "reject:scam", "darn", "flag:darn");
+
+        ContentFilter.Result flagged = filter.apply("big spoiler ahead, darn");
+        assertEquals("big spoiler ahead, ****", flagged.content());
+        assertTrue(flagged.flagged());
+        assertFalse(flagged.rejected());
+
+        assertTrue(filter.apply("spoiler: this is a SCAM").rejected());
+        assertEquals(1.0, meterRegistry.get("chat.content_filter.matches").tag("action", "reject").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should keep the most severe action for spellings that fold to the same term")
+    void apply_FoldedDuplicates_MostSevereWins() {
+        ContentFilter filter = filter("mask:darn", "reject:d\u00E1rn", "flag:\uFF24ARN");
+
+        assertTrue(filter.apply("oh darn").rejected());
+        assertTrue(filter.apply("oh DARN").rejected());
+    }
+
+    @Test
+    @DisplayName("Should pick up a changed terms file without restarting")
+    void reloadIfChanged_TermsFile_SwapsAutomaton(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("terms.txt");
+        Files.writeString(file, "# moderation terms\ndarn\n");
+        ContentFilterProperties properties = new ContentFilterProperties();
+        properties.setTermsFile(file.toString());
+        ContentFilter filter = new ContentFilter(properties, meterRegistry);
+        filter.init();
+        assertEquals("**** heck", filter.apply("darn heck").content());
+
+        Files.writeString(file, "heck\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        filter.reloadIfChanged();
+
+        assertEquals("darn ****", filter.apply("darn heck").content());
+    }
+
+    private ContentFilter filter(String... terms) {
+        ContentFilterProperties properties = new ContentFilterProperties();
+        properties.setTerms(List.of(terms));
+        ContentFilter filter = new ContentFilter(properties, meterRegistry);
+        filter.init();
+        return filter;
+    }
+}
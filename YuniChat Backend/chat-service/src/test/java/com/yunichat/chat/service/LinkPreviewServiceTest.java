@@ -0,0 +1,171 @@
+package com.yunichat.chat.service;
+
+import com.sun.net.httpserver.HttpServer;
+import com.yunichat.chat.dto.LinkPreview;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkPreviewServiceTest {
+
+    private static final String ARTICLE = "<html><head><title>Fallback title</title>"
+            + "<meta property=\"og:title\" content=\"Tom &amp; Jerry\">"
+            + "<meta content='A cat &#x26; a mouse' property='og:description'>"
+            + "<meta property=og:image content=\"/img/cover.png\">"
+            + "</head><body>" + "x".repeat(100_000) + "</body></html>";
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+    private final ExecutorService fetchExecutor = Executors.newFixedThreadPool(2);
+    private HttpServer server;
+    private String baseUrl;
+    private LinkPreviewService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/article", exchange -> {
+            hits.incrementAndGet();
+            byte[] body = ARTICLE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/moved", exchange -> {
+            hits.incrementAndGet();
+            exchange.getResponseHeaders().add("Location", "/article");
+            exchange.sendResponseHeaders(301, -1);
+            exchange.close();
+        });
+        server.createContext("/missing", exchange -> {
+            hits.incrementAndGet();
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            hits.incrementAndGet();
+            try {
+                Thread.sleep(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        service = new LinkPreviewService(null, null, null, fetchExecutor, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "maxUrlsPerMessage", 3);
+        ReflectionTestUtils.setField(service, "connectTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(service, "requestTimeoutMs", 300L);
+        ReflectionTestUtils.setField(service, "maxBytes", 16_384);
+        ReflectionTestUtils.setField(service, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(service, "negativeTtlSeconds", 60L);
+        ReflectionTestUtils.setField(service, "maxEntries", 100);
+        ReflectionTestUtils.setField(service, "allowPrivateHosts", true);
+        ReflectionTestUtils.setField(service, "userAgent", "test");
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        fetchExecutor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should read OpenGraph metadata and fetch each URL only once")
+    void preview_OpenGraphPage_ParsedAndCached() throws Exception {
+        LinkPreview preview = service.preview(baseUrl + "/article").get(5, TimeUnit.SECONDS);
+
+        assertNotNull(preview);
+        assertEquals("Tom & Jerry", preview.getTitle());
+        assertEquals("A cat & a mouse", preview.getDescription());
+        assertEquals(baseUrl + "/img/cover.png", preview.getImageUrl());
+        assertEquals("127.0.0.1", preview.getSiteName());
+
+        assertSame(preview, service.preview(baseUrl + "/article").get(5, TimeUnit.SECONDS));
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    @DisplayName("Should follow redirects")
+    void preview_Redirect_Followed() throws Exception {
+        LinkPreview preview = service.preview(baseUrl + "/moved").get(5, TimeUnit.SECONDS);
+
+        assertNotNull(preview);
+        assertEquals(baseUrl + "/moved", preview.getUrl());
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    @DisplayName("Should cache failures instead of re-fetching them")
+    void preview_NotFound_NegativelyCached() throws Exception {
+        assertNull(service.preview(baseUrl + "/missing").get(5, TimeUnit.SECONDS));
+        assertNull(service.preview(baseUrl + "/missing").get(5, TimeUnit.SECONDS));
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    @DisplayName("Should give up on slow servers after the request timeout")
+    void preview_SlowServer_TimesOut() throws Exception {
+        long started = System.nanoTime();
+
+        assertNull(service.preview(baseUrl + "/slow").get(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 2000);
+    }
+
+    @Test
+    @DisplayName("Should refuse loopback and private addresses unless allowed")
+    void preview_PrivateHost_Refused() throws Exception {
+        ReflectionTestUtils.setField(service, "allowPrivateHosts", false);
+
+        assertNull(service.preview(baseUrl + "/article").get(5, TimeUnit.SECONDS));
+        assertEquals(0, hits.get());
+    }
+
+    @Test
+    @DisplayName("Should treat reserved, shared and IPv4-in-IPv6 addresses as private")
+    void isPrivate_ReservedRanges_Refused() throws Exception {
+        for (String address : List.of("0.1.2.3", "100.64.0.1", "100.127.255.254", "198.18.0.1", "198.19.255.255",
+                "255.255.255.255", "10.0.0.1", "169.254.169.254", "fd00::1", "64:ff9b::a9fe:a9fe")) {
+            assertTrue(LinkPreviewService.isPrivate(InetAddress.getByName(address)), address);
+        }
+        byte[] mappedLoopback = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xff, (byte) 0xff, 127, 0, 0, 1};
+        assertTrue(LinkPreviewService.isPrivate(Inet6Address.getByAddress(null, mappedLoopback, -1)));
+
+        for (String address : List.of("100.128.0.1", "198.20.0.1", "93.184.216.34", "2606:2800:220:1::1")) {
+            assertFalse(LinkPreviewService.isPrivate(InetAddress.getByName(address)), address);
+        }
+    }
+
+    @Test
+    @DisplayName("Should extract distinct URLs without trailing punctuation, up to the limit")
+    void extractUrls_MessageText_DistinctAndTrimmed() {
+        assertEquals(List.of("https://a.com/x", "https://b.org/y", "http://c.io/z"),
+                LinkPreviewService.extractUrls("see https://a.com/x, and (https://b.org/y). also https://a.com/x https:// http://c.io/z!", 3));
+        assertEquals(List.of("https://a.com", "https://b.com"),
+                LinkPreviewService.extractUrls("https://a.com https://b.com https://c.com", 2));
+        assertEquals(List.of(), LinkPreviewService.extractUrls("no links here", 3));
+    }
+}
@@ -0,0 +1,84 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.dto.MessageSearchResponse;
+import com.yunichat.chat.dto.MessageSearchResult;
+import com.yunichat.chat.entity.Message;
+import com.yunichat.common.exception.BadRequestException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageSearchServiceTest {
+
+    private static final String ROOM_ID = "private_1_2";
+
+    private MessageSearchService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // A private room is authorized from its ID alone, so no repositories are needed
+        service = new MessageSearchService(null, null, null, null);
+        ReflectionTestUtils.setField(service, "cursorTtlSeconds", 600);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        service.close();
+    }
+
+    @Test
+    @DisplayName("Should page tied scores by message ID without repeats, even when the index changes between pages")
+    void search_PagesFromTheFirstPageSnapshot() {
+        for (long id = 1; id <= 7; id++) {
+            service.indexMessage(message(id));
+        }
+        service.refresh();
+
+        MessageSearchResponse first = service.search(1L, "hello", ROOM_ID, null, 3);
+        assertEquals(List.of(7L, 6L, 5L), ids(first));
+        assertNotNull(first.getNextCursor());
+
+        // A new hit changes every score; later pages still continue where the first left off
+        service.indexMessage(message(8));
+        service.refresh();
+
+        MessageSearchResponse second = service.search(1L, "hello", ROOM_ID, first.getNextCursor(), 3);
+        assertEquals(List.of(4L, 3L, 2L), ids(second));
+        MessageSearchResponse third = service.search(1L, "hello", ROOM_ID, second.getNextCursor(), 3);
+        assertEquals(List.of(1L), ids(third));
+        assertNull(third.getNextCursor());
+
+        assertEquals(List.of(8L, 7L, 6L), ids(service.search(1L, "hello", ROOM_ID, null, 3)));
+    }
+
+    @Test
+    @DisplayName("Should reject malformed cursors")
+    void search_MalformedCursor_Rejected() {
+        assertThrows(BadRequestException.class, () -> service.search(1L, "hello", ROOM_ID, "not a cursor", 3));
+        assertThrows(BadRequestException.class, () -> service.search(1L, "hello", ROOM_ID, "MTIz", 3));
+    }
+
+    private static List<Long> ids(MessageSearchResponse response) {
+        return response.getResults().stream().map(MessageSearchResult::getMessageId).toList();
+    }
+
+    private static Message message(long id) {
+        return Message.builder()
+                .id(id)
+                .roomId(ROOM_ID)
+                .senderId(1L)
+                .recipientId(2L)
+                .content("hello there")
+                .type(Message.MessageType.TEXT)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,115 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.chat.dto.MessageResponse;
+import com.yunichat.chat.entity.Message;
+import com.yunichat.chat.util.OrderedExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time from broadcast to the last member's frame being handed to the channel, for GROUP rooms of 10, 1k and 10k
+ * online members. Rooms at or above 1k members take the lane path.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.yunichat.chat.service.RoomBroadcasterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomBroadcasterBenchmark {
+
+    private static final int LANES = 8;
+
+    @Param({"10", "1000", "10000"})
+    private int members;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private OrderedExecutor executor;
+    private RoomBroadcaster broadcaster;
+    private MessageResponse payload;
+    private String roomId;
+
+    @Setup
+    public void setUp() {
+        SessionRegistry sessions = new SessionRegistry();
+        LongSet memberIds = new LongOpenHashSet(members);
+        for (int i = 0; i < members; i++) {
+            memberIds.add(i + 1);
+            sessions.register("session-" + i, i + 1, "user" + i, false);
+        }
+        RoomMembershipCache membershipCache = new RoomMembershipCache(null, null) {
+            @Override
+            public boolean isPublicRoom(String roomId) {
+                return false;
+            }
+
+            @Override
+            public LongSet getMembers(String roomId) {
+                return memberIds;
+            }
+        };
+
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> {
+            delivered.incrementAndGet();
+            return true;
+        });
+        template.setMessageConverter(new MappingJackson2MessageConverter());
+        executor = new OrderedExecutor("bench-fanout", LANES, 10_000);
+        broadcaster = new RoomBroadcaster(membershipCache, sessions, template, executor, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(broadcaster, "largeRoomThreshold", 1000);
+        ReflectionTestUtils.setField(broadcaster, "fanoutLanes", LANES);
+
+        roomId = "group-" + members;
+        payload = MessageResponse.builder()
+                .id(1L)
+                .roomId(roomId)
+                .senderId(1L)
+                .senderUsername("user0")
+                .content("hello room")
+                .type(Message.MessageType.TEXT)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public long broadcast() {
+        long target = delivered.get() + members;
+        broadcaster.broadcast(roomId, "", payload);
+        // Lane deliveries finish asynchronously; wait for the last one
+        while (delivered.get() < target) {
+            Thread.onSpinWait();
+        }
+        return target;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RoomBroadcasterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
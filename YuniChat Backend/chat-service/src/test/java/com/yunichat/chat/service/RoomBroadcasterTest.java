@@ -0,0 +1,181 @@
+package com.yunichat.chat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunichat.chat.dto.MessageResponse;
+import com.yunichat.chat.entity.Message;
+import com.yunichat.chat.util.OrderedExecutor;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomBroadcasterTest {
+
+    private static final int LANES = 8;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderedExecutor executor = new OrderedExecutor("test-fanout", LANES, 10_000);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should deliver GROUP room messages only to online members, serialized once")
+    void broadcast_PrivateRoom_TargetsOnlineMembers() {
+        List<org.springframework.messaging.Message<?>> sent = new CopyOnWriteArrayList<>();
+        SessionRegistry sessions = new SessionRegistry(4);
+        sessions.register("s1", 1L, "alice", false);
+        sessions.register("s2", 2L, "bob", false);
+        RoomBroadcaster broadcaster = broadcaster(room(false, 1L, 2L, 3L), sessions, capture(sent), 1000);
+
+        broadcaster.broadcast("group-1", "", response(1L));
+
+        assertEquals(2, sent.size());
+        List<String> destinations = sent.stream()
+                .map(message -> SimpMessageHeaderAccessor.getDestination(message.getHeaders()))
+                .sorted()
+                .toList();
+        assertEquals(List.of("/user/1/queue/room/group-1", "/user/2/queue/room/group-1"), destinations);
+        assertSame(sent.get(0).getPayload(), sent.get(1).getPayload());
+        assertInstanceOf(byte[].class, sent.get(0).getPayload());
+    }
+
+    @Test
+    @DisplayName("Should keep public rooms on their topic")
+    void broadcast_PublicRoom_UsesTopic() {
+        List<org.springframework.messaging.Message<?>> sent = new CopyOnWriteArrayList<>();
+        RoomBroadcaster broadcaster = broadcaster(room(true, 1L), new SessionRegistry(4), capture(sent), 1000);
+
+        broadcaster.broadcast("public", "/typing", response(1L));
+
+        assertEquals(1, sent.size());
+        assertEquals("/topic/room/public/typing", SimpMessageHeaderAccessor.getDestination(sent.get(0).getHeaders()));
+    }
+
+    @Test
+    @DisplayName("Should deliver each large-room broadcast once to every online member, in order")
+    void broadcast_LargeRoom_DeliversOncePerOnlineMemberInOrder() throws Exception {
+        int members = 3_000;
+        int broadcasts = 5;
+        SessionRegistry sessions = new SessionRegistry();
+        long[] memberIds = new long[members];
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < members; i++) {
+            long userId = i + 1;
+            memberIds[i] = userId;
+            // Every third member is offline
+            if (i % 3 != 0) {
+                sessions.register("session-" + userId, userId, "user" + userId, false);
+                expected.add("/user/" + userId + "/queue/room/group-large");
+            }
+        }
+        sessions.register("outsider", 99_999L, "outsider", false);
+
+        Map<String, List<Long>> received = new ConcurrentHashMap<>();
+        MessageChannel channel = (message, timeout) -> {
+            String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+            received.computeIfAbsent(destination, key -> new CopyOnWriteArrayList<>()).add(payloadId(message));
+            return true;
+        };
+        RoomBroadcaster broadcaster = broadcaster(room(false, memberIds), sessions, channel, 1000);
+
+        for (long id = 1; id <= broadcasts; id++) {
+            broadcaster.broadcast("group-large", "", response(id));
+        }
+        drainLanes();
+
+        assertEquals(expected, received.keySet());
+        List<Long> sequence = LongStream.rangeClosed(1, broadcasts).boxed().toList();
+        received.forEach((destination, ids) -> assertEquals(sequence, ids, destination));
+
+        Timer timer = meterRegistry.find("chat.fanout.duration")
+                .tags("path", "lanes", "members", RoomBroadcaster.sizeBucket(members))
+                .timer();
+        assertNotNull(timer);
+        assertEquals(broadcasts, timer.count());
+    }
+
+    /**
+     * Wait for everything already queued on the fan-out lanes; lanes run their tasks in submission order
+     */
+    private void drainLanes() throws InterruptedException {
+        CountDownLatch drained = new CountDownLatch(LANES);
+        for (int lane = 0; lane < LANES; lane++) {
+            executor.execute(lane, drained::countDown);
+        }
+        assertTrue(drained.await(30, TimeUnit.SECONDS));
+    }
+
+    private RoomBroadcaster broadcaster(RoomMembershipCache membershipCache, SessionRegistry sessions,
+                                        MessageChannel channel, int largeRoomThreshold) {
+        SimpMessagingTemplate template = new SimpMessagingTemplate(channel);
+        template.setMessageConverter(new MappingJackson2MessageConverter());
+        RoomBroadcaster broadcaster = new RoomBroadcaster(membershipCache, sessions, template, executor, meterRegistry);
+        ReflectionTestUtils.setField(broadcaster, "largeRoomThreshold", largeRoomThreshold);
+        ReflectionTestUtils.setField(broadcaster, "fanoutLanes", LANES);
+        return broadcaster;
+    }
+
+    private static MessageChannel capture(List<org.springframework.messaging.Message<?>> sent) {
+        return (message, timeout) -> sent.add(message);
+    }
+
+    private static RoomMembershipCache room(boolean isPublic, long... memberIds) {
+        LongSet members = new LongOpenHashSet(memberIds);
+        return new RoomMembershipCache(null, null) {
+            @Override
+            public boolean isPublicRoom(String roomId) {
+                return isPublic;
+            }
+
+            @Override
+            public LongSet getMembers(String roomId) {
+                return members;
+            }
+        };
+    }
+
+    private static long payloadId(org.springframework.messaging.Message<?> message) {
+        try {
+            return MAPPER.readTree((byte[]) message.getPayload()).get("id").asLong();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MessageResponse response(long id) {
+        return MessageResponse.builder()
+                .id(id)
+                .roomId("group")
+                .senderId(1L)
+                .senderUsername("alice")
+                .content("hello room")
+                .type(Message.MessageType.TEXT)
+                .build();
+    }
+}
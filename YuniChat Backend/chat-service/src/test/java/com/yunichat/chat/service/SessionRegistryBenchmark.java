@@ -0,0 +1,116 @@
+package com.yunichat.chat.service;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap held while tracking 100k sessions (80k users, every fifth with a second tab) in SessionRegistry
+ * against the per-field ConcurrentHashMaps WebSocketPresenceService used before it.
+ * Compare the retainedBytes secondary result: the JOL-walked size of each populated structure, excluding the
+ * session ID and username strings both share. The layout is deterministic and event counters sum across iterations,
+ * so one cold shot is taken; its primary score includes the heap walk and is not a timing comparison.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.yunichat.chat.service.SessionRegistryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(1)
+public class SessionRegistryBenchmark {
+
+    private static final int SESSIONS = 100_000;
+    private static final int USERS = 80_000;
+
+    private String[] sessionIds;
+    private String[] usernames;
+    private GraphLayout sharedStrings;
+
+    @Setup
+    public void setUp() {
+        // Session IDs are owned by Spring's session state either way; allocate them up front so they are not counted
+        sessionIds = new String[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            sessionIds[i] = "session-" + i;
+        }
+        usernames = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            usernames[i] = "user" + i;
+        }
+        sharedStrings = GraphLayout.parseInstance(sessionIds, usernames);
+    }
+
+    @Benchmark
+    public SessionRegistry sessionRegistry(Footprint footprint) {
+        SessionRegistry registry = new SessionRegistry();
+        for (int i = 0; i < SESSIONS; i++) {
+            int user = i % USERS;
+            registry.register(sessionIds[i], user, usernames[user], user % 10 == 0);
+        }
+        footprint.retainedBytes = retainedBytes(registry);
+        return registry;
+    }
+
+    @Benchmark
+    public LegacyPresence concurrentHashMaps(Footprint footprint) {
+        LegacyPresence legacy = new LegacyPresence();
+        for (int i = 0; i < SESSIONS; i++) {
+            int user = i % USERS;
+            legacy.register(sessionIds[i], (long) user, usernames[user], user % 10 == 0);
+        }
+        footprint.retainedBytes = retainedBytes(legacy);
+        return legacy;
+    }
+
+    private long retainedBytes(Object structure) {
+        return GraphLayout.parseInstance(structure).subtract(sharedStrings).totalSize();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SessionRegistryBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * Retained size of the structure built by the last invocation, reported next to the timing
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long retainedBytes;
+    }
+
+    /**
+     * The layout WebSocketPresenceService used before SessionRegistry
+     */
+    public static final class LegacyPresence {
+        private final Map<String, Long> sessionToUser = new ConcurrentHashMap<>();
+        private final Map<Long, Set<String>> userToSessions = new ConcurrentHashMap<>();
+        private final Map<Long, String> userIdToUsername = new ConcurrentHashMap<>();
+        private final Map<Long, Boolean> userIdToIsGuest = new ConcurrentHashMap<>();
+
+        private void register(String sessionId, Long userId, String username, Boolean isGuest) {
+            sessionToUser.put(sessionId, userId);
+            userToSessions.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(sessionId);
+            userIdToUsername.put(userId, username);
+            userIdToIsGuest.put(userId, isGuest);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.yunichat.chat.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRegistryTest {
+
+    @Test
+    @DisplayName("Should report first and last session per user")
+    void registerAndUnregister_TracksSessionsPerUser() {
+        SessionRegistry registry = new SessionRegistry(4);
+
+        assertTrue(registry.register("s1", 7L, "alice", false));
+        assertFalse(registry.register("s2", 7L, null, null));
+        assertFalse(registry.register("s2", 7L, null, null));
+
+        SessionRegistry.UserPresence presence = registry.getUser(7L);
+        assertEquals("alice", presence.getUsername());
+        assertEquals(2, presence.getSessionCount());
+        assertEquals(1, registry.getUserCount());
+        assertEquals(2, registry.getSessionCount());
+
+        SessionRegistry.Departure first = registry.unregister("s1");
+        assertFalse(first.lastSession());
+        assertEquals(1, first.remainingSessions());
+        assertTrue(registry.isOnline(7L));
+
+        SessionRegistry.Departure last = registry.unregister("s2");
+        assertTrue(last.lastSession());
+        assertEquals("alice", last.username());
+        assertEquals(Boolean.FALSE, last.isGuest());
+        assertFalse(registry.isOnline(7L));
+        assertNull(registry.unregister("s2"));
+    }
+
+    @Test
+    @DisplayName("Should iterate users from stripe snapshots that follow changes")
+    void users_ReflectsRegistrations() {
+        SessionRegistry registry = new SessionRegistry(4);
+        for (long userId = 1; userId <= 10; userId++) {
+            registry.register("s" + userId, userId, "user" + userId, false);
+        }
+
+        Set<Long> seen = new HashSet<>();
+        registry.users().forEach(user -> seen.add(user.getUserId()));
+        assertEquals(10, seen.size());
+
+        registry.unregister("s3");
+        seen.clear();
+        registry.users().forEach(user -> seen.add(user.getUserId()));
+        assertEquals(9, seen.size());
+        assertFalse(seen.contains(3L));
+    }
+
+    @Test
+    @DisplayName("Should stay consistent under concurrent connects and disconnects")
+    void concurrentUpdates_KeepCountsConsistent() throws Exception {
+        SessionRegistry registry = new SessionRegistry();
+        int threads = 8;
+        int perThread = 5_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    String sessionId = "t" + thread + "-" + i;
+                    // Threads share users so the same user stripe is updated from several threads
+                    registry.register(sessionId, i % 1_000, "user", false);
+                    if (i % 2 == 0) {
+                        registry.unregister(sessionId);
+                    }
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertEquals(threads * perThread / 2, registry.getSessionCount());
+        int sessionsAcrossUsers = 0;
+        for (SessionRegistry.UserPresence user : registry.users()) {
+            sessionsAcrossUsers += user.getSessionCount();
+        }
+        assertEquals(registry.getSessionCount(), sessionsAcrossUsers);
+    }
+}
@@ -0,0 +1,96 @@
+package com.yunichat.chat.service;
+
+import com.yunichat.common.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketAuthenticatorTest {
+
+    private static final String SECRET = "test-secret-key-that-is-at-least-256-bits-long-for-hmac";
+
+    private final AtomicInteger verifications = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JwtUtil jwtUtil;
+    private WebSocketAuthenticator authenticator;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil() {
+            @Override
+            public Claims extractClaims(String token) {
+                verifications.incrementAndGet();
+                return super.extractClaims(token);
+            }
+        };
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "accessTokenExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtUtil, "refreshTokenExpiration", 86_400_000L);
+
+        authenticator = new WebSocketAuthenticator(jwtUtil, meterRegistry);
+        ReflectionTestUtils.setField(authenticator, "maxEntries", 100);
+        authenticator.init();
+    }
+
+    @Test
+    @DisplayName("Should take identity from the token and verify it only once")
+    void authenticate_SameToken_VerifiedOnce() {
+        String token = jwtUtil.generateAccessToken(42L, "alice", true);
+
+        WebSocketAuthenticator.Identity first = authenticator.authenticate(token);
+        WebSocketAuthenticator.Identity second = authenticator.authenticate(token);
+
+        assertEquals(42L, first.userId());
+        assertEquals("alice", first.username());
+        assertTrue(first.guest());
+        assertSame(first, second);
+        assertEquals(1, verifications.get());
+        assertEquals(1.0, meterRegistry.get("chat.websocket.auth").tag("result", "cached").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should reject tampered and missing tokens without caching them")
+    void authenticate_InvalidToken_Rejected() {
+        String token = jwtUtil.generateAccessToken(42L, "alice", false);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(IllegalArgumentException.class, () -> authenticator.authenticate(tampered));
+        assertThrows(IllegalArgumentException.class, () -> authenticator.authenticate(tampered));
+        assertThrows(IllegalArgumentException.class, () -> authenticator.authenticate(null));
+        assertEquals(2, verifications.get());
+    }
+
+    @Test
+    @DisplayName("Should reject refresh tokens, which carry no username")
+    void authenticate_RefreshToken_Rejected() {
+        String refreshToken = jwtUtil.generateRefreshToken(42L);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> authenticator.authenticate(refreshToken));
+        assertTrue(e.getMessage().contains("access token"));
+        assertThrows(IllegalArgumentException.class, () -> authenticator.authenticate(refreshToken));
+        // Rejected tokens are not cached, so each attempt is verified again
+        assertEquals(2, verifications.get());
+    }
+
+    @Test
+    @DisplayName("Should stop accepting a cached token once it expires")
+    void authenticate_CachedTokenExpires_Rejected() throws Exception {
+        ReflectionTestUtils.setField(jwtUtil, "accessTokenExpiration", 2_500L);
+        String token = jwtUtil.generateAccessToken(7L, "bob", false);
+        assertEquals(7L, authenticator.authenticate(token).userId());
+
+        // exp is stored in whole seconds, so the token lives between 1.5 and 2.5 seconds
+        Thread.sleep(2_600);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> authenticator.authenticate(token));
+        assertTrue(e.getMessage().contains("expired"));
+        assertEquals(1, verifications.get());
+    }
+}
@@ -0,0 +1,71 @@
+package com.yunichat.chat.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to scan one chat message as the term list grows from 100 to 100k entries.
+ * Scan time should stay flat; only the automaton size grows.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.yunichat.chat.util.AhoCorasickMatcherBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AhoCorasickMatcherBenchmark {
+
+    private static final String MESSAGE = "Hey everyone, the standup moved to 10:30 tomorrow. "
+            + "Bring the quarterly numbers and please review the deploy checklist before lunch, thanks!";
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int terms;
+
+    private AhoCorasickMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> list = new ArrayList<>(terms);
+        for (int i = 0; i < terms; i++) {
+            int length = 4 + random.nextInt(8);
+            StringBuilder term = new StringBuilder(length);
+            for (int k = 0; k < length; k++) {
+                term.append((char) ('a' + random.nextInt(26)));
+            }
+            list.add(term.toString());
+        }
+        // A handful of real hits so the output path is measured too
+        list.add("standup");
+        list.add("deploy");
+        matcher = AhoCorasickMatcher.build(list);
+    }
+
+    @Benchmark
+    public void scanMessage(Blackhole blackhole) {
+        matcher.match(MESSAGE, true, (term, start, end) -> blackhole.consume(term));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AhoCorasickMatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,47 @@
+package com.yunichat.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Entry of the chat event log (Kafka topic "chat.events", keyed by roomId).
+ * Published by chat-service after commit; consumed by notification-service and other async consumers.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatEventDTO {
+
+    public static final String TOPIC = "chat.events";
+
+    public enum Type {
+        MESSAGE_CREATED,
+        MESSAGE_EDITED,
+        MESSAGE_DELETED,
+        MESSAGES_READ,
+        REACTION_ADDED,
+        REACTION_REMOVED
+    }
+
+    private String eventId; // Unique per event, lets consumers drop redeliveries
+    private Type type;
+    private String roomId;
+    private Long messageId;
+    private List<Long> messageIds; // MESSAGES_READ only
+    private Long senderId;
+    private Long recipientId; // Private chats only
+    private Long actorId; // Reader or reacting user
+    private String senderUsername;
+    private String content;
+    private String messageType;
+    private Long seq;
+    private List<Long> mentionedUserIds;
+    private String emoji;
+    private String messageCreatedAt;
+    private String occurredAt;
+}
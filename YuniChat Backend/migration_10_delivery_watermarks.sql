@@ -0,0 +1,15 @@
+-- Per-recipient delivered watermark for private conversations
+CREATE TABLE IF NOT EXISTS delivery_watermarks (
+    id BIGSERIAL PRIMARY KEY,
+    conversation_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    delivered_seq BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_delivery_watermarks_conversation_user UNIQUE (conversation_id, user_id)
+);
+
+-- Success message
+DO $$ 
+BEGIN
+    RAISE NOTICE 'Delivery watermarks table created successfully!';
+END $$;
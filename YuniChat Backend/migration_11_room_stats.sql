@@ -0,0 +1,24 @@
+-- Per-room counters checkpointed from memory by chat-service
+CREATE TABLE IF NOT EXISTS room_stats (
+    room_id VARCHAR(255) PRIMARY KEY,
+    message_count BIGINT NOT NULL DEFAULT 0,
+    member_count INTEGER NOT NULL DEFAULT 0,
+    last_message_at TIMESTAMP,
+    updated_at TIMESTAMP
+);
+
+-- Backfill existing rooms; checkpoints only add deltas from here on
+INSERT INTO room_stats (room_id, message_count, member_count, last_message_at, updated_at)
+SELECT r.room_id,
+       (SELECT COUNT(*) FROM messages m WHERE m.room_id = r.room_id AND m.is_deleted = false),
+       (SELECT COUNT(*) FROM room_members rm WHERE rm.room_id = r.room_id),
+       (SELECT MAX(m.created_at) FROM messages m WHERE m.room_id = r.room_id),
+       CURRENT_TIMESTAMP
+FROM chat_rooms r
+ON CONFLICT (room_id) DO NOTHING;
+
+-- Success message
+DO $$ 
+BEGIN
+    RAISE NOTICE 'Room stats table created successfully!';
+END $$;
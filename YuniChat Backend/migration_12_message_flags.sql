@@ -0,0 +1,10 @@
+-- Messages that matched a "flag" content filter term, kept for moderator review
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS is_flagged BOOLEAN NOT NULL DEFAULT false;
+
+CREATE INDEX IF NOT EXISTS idx_messages_flagged ON messages (created_at) WHERE is_flagged = true;
+
+-- Success message
+DO $$ 
+BEGIN
+    RAISE NOTICE 'Message flag column added successfully!';
+END $$;
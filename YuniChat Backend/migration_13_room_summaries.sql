@@ -0,0 +1,45 @@
+-- Room conversations keep one summary row per room instead of one per member
+CREATE TABLE IF NOT EXISTS room_summaries (
+    room_id VARCHAR(255) PRIMARY KEY,
+    last_message_id BIGINT,
+    last_message_preview VARCHAR(200),
+    last_sender_id BIGINT,
+    last_activity_at TIMESTAMP NOT NULL,
+    message_count BIGINT NOT NULL DEFAULT 0
+);
+
+-- Messages of the room a member has read; unread = room_summaries.message_count - read_message_count
+ALTER TABLE room_members ADD COLUMN IF NOT EXISTS read_message_count BIGINT NOT NULL DEFAULT 0;
+
+-- Backfill from the newest message and the message count of every room
+INSERT INTO room_summaries (room_id, last_message_id, last_message_preview, last_sender_id, last_activity_at, message_count)
+SELECT lm.room_id, lm.id, LEFT(lm.content, 200), lm.sender_id, lm.created_at, counts.message_count
+FROM (
+    SELECT DISTINCT ON (room_id) id, room_id, content, sender_id, created_at
+    FROM messages
+    WHERE room_id <> 'public' AND room_id NOT LIKE 'private\_%' AND is_deleted = false
+    ORDER BY room_id, id DESC
+) lm
+JOIN (
+    SELECT room_id, COUNT(*) AS message_count
+    FROM messages
+    WHERE room_id <> 'public' AND room_id NOT LIKE 'private\_%'
+    GROUP BY room_id
+) counts ON counts.room_id = lm.room_id
+ON CONFLICT (room_id) DO NOTHING;
+
+-- Carry each member's current unread count over into their read position
+UPDATE room_members rm
+SET read_message_count = GREATEST(rs.message_count - COALESCE(
+        (SELECT cs.unread_count FROM conversation_summaries cs WHERE cs.user_id = rm.user_id AND cs.room_id = rm.room_id), 0), 0)
+FROM room_summaries rs
+WHERE rs.room_id = rm.room_id;
+
+-- Per-member room rows are replaced by room_summaries; only private chats stay in conversation_summaries
+DELETE FROM conversation_summaries WHERE peer_user_id IS NULL;
+
+-- Success message
+DO $$ 
+BEGIN
+    RAISE NOTICE 'Room summaries created successfully!';
+END $$;
@@ -0,0 +1,22 @@
+-- Materialized per-message, per-emoji reaction counters
+CREATE TABLE IF NOT EXISTS message_reaction_counts (
+    id BIGSERIAL PRIMARY KEY,
+    message_id BIGINT NOT NULL,
+    emoji VARCHAR(10) NOT NULL,
+    reaction_count BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT fk_message_reaction_counts_message FOREIGN KEY (message_id) REFERENCES messages(id) ON DELETE CASCADE,
+    CONSTRAINT unique_message_emoji_count UNIQUE (message_id, emoji)
+);
+
+-- Backfill counters from existing reactions
+INSERT INTO message_reaction_counts (message_id, emoji, reaction_count)
+SELECT message_id, emoji, COUNT(*)
+FROM message_reactions
+GROUP BY message_id, emoji
+ON CONFLICT (message_id, emoji) DO UPDATE SET reaction_count = EXCLUDED.reaction_count;
+
+-- Success message
+DO $$ 
+BEGIN
+    RAISE NOTICE 'Reaction counters created and backfilled successfully!';
+END $$;
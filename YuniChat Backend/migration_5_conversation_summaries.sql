@@ -0,0 +1,52 @@
+-- Denormalized conversation summaries backing the inbox endpoint
+CREATE TABLE IF NOT EXISTS conversation_summaries (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    room_id VARCHAR(255) NOT NULL,
+    peer_user_id BIGINT,
+    last_message_id BIGINT,
+    last_message_preview VARCHAR(200),
+    last_sender_id BIGINT,
+    last_activity_at TIMESTAMP NOT NULL,
+    unread_count INTEGER NOT NULL DEFAULT 0,
+    CONSTRAINT unique_conversation_summary_user_room UNIQUE (user_id, room_id)
+);
+
+-- Inbox is always read as "my conversations, newest activity first"
+CREATE INDEX IF NOT EXISTS idx_conversation_summaries_inbox
+    ON conversation_summaries(user_id, last_activity_at DESC, room_id DESC);
+
+-- Backfill private chats for both participants
+INSERT INTO conversation_summaries (user_id, room_id, peer_user_id, last_message_id, last_message_preview, last_sender_id, last_activity_at, unread_count)
+SELECT p.user_id, lm.room_id, p.peer_user_id, lm.id, LEFT(lm.content, 200), lm.sender_id, lm.created_at,
+       (SELECT COUNT(*) FROM messages u
+        WHERE u.room_id = lm.room_id AND u.sender_id <> p.user_id AND u.is_read = false AND u.is_deleted = false)
+FROM (
+    SELECT DISTINCT ON (room_id) id, room_id, content, sender_id, created_at
+    FROM messages
+    WHERE room_id LIKE 'private\_%' AND is_deleted = false
+    ORDER BY room_id, id DESC
+) lm
+CROSS JOIN LATERAL (VALUES
+    (split_part(lm.room_id, '_', 2)::BIGINT, split_part(lm.room_id, '_', 3)::BIGINT),
+    (split_part(lm.room_id, '_', 3)::BIGINT, split_part(lm.room_id, '_', 2)::BIGINT)
+) AS p(user_id, peer_user_id)
+ON CONFLICT (user_id, room_id) DO NOTHING;
+
+-- Backfill rooms for every member
+INSERT INTO conversation_summaries (user_id, room_id, peer_user_id, last_message_id, last_message_preview, last_sender_id, last_activity_at, unread_count)
+SELECT rm.user_id, lm.room_id, NULL, lm.id, LEFT(lm.content, 200), lm.sender_id, lm.created_at, 0
+FROM (
+    SELECT DISTINCT ON (room_id) id, room_id, content, sender_id, created_at
+    FROM messages
+    WHERE room_id <> 'public' AND room_id NOT LIKE 'private\_%' AND is_deleted = false
+    ORDER BY room_id, id DESC
+) lm
+JOIN room_members rm ON rm.room_id = lm.room_id
+ON CONFLICT (user_id, room_id) DO NOTHING;
+
+-- Success message
+DO $$ 
+BEGIN
+    RAISE NOTICE 'Conversation summaries created and backfilled successfully!';
+END $$;
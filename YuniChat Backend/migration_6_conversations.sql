@@ -0,0 +1,92 @@
+-- First-class private conversations; messages reference them instead of encoding participants in room_id
+CREATE TABLE IF NOT EXISTS conversations (
+    id BIGSERIAL PRIMARY KEY,
+    user_low_id BIGINT NOT NULL,
+    user_high_id BIGINT NOT NULL,
+    last_seq BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT unique_conversation_participants UNIQUE (user_low_id, user_high_id),
+    CONSTRAINT check_conversation_participants_ordered CHECK (user_low_id <= user_high_id)
+);
+
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS conversation_id BIGINT REFERENCES conversations(id);
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS recipient_id BIGINT;
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS seq BIGINT;
+
+-- Backfill one conversation per participant pair (both legacy spellings of the room ID)
+INSERT INTO conversations (user_low_id, user_high_id, created_at)
+SELECT LEAST(a, b), GREATEST(a, b), MIN(created_at)
+FROM (
+    SELECT split_part(room_id, '_', 2)::BIGINT AS a, split_part(room_id, '_', 3)::BIGINT AS b, created_at
+    FROM messages
+    WHERE room_id ~ '^private_[0-9]+_[0-9]+$'
+) pairs
+GROUP BY LEAST(a, b), GREATEST(a, b)
+ON CONFLICT (user_low_id, user_high_id) DO NOTHING;
+
+-- Link messages, normalize room_id to private_{low}_{high} and record the recipient
+UPDATE messages m
+SET conversation_id = c.id,
+    room_id = 'private_' || c.user_low_id || '_' || c.user_high_id,
+    recipient_id = CASE WHEN m.sender_id = c.user_low_id THEN c.user_high_id ELSE c.user_low_id END
+FROM conversations c
+WHERE m.room_id ~ '^private_[0-9]+_[0-9]+$'
+  AND c.user_low_id = LEAST(split_part(m.room_id, '_', 2)::BIGINT, split_part(m.room_id, '_', 3)::BIGINT)
+  AND c.user_high_id = GREATEST(split_part(m.room_id, '_', 2)::BIGINT, split_part(m.room_id, '_', 3)::BIGINT);
+
+-- Assign per-conversation sequence numbers in send order
+UPDATE messages m
+SET seq = numbered.seq
+FROM (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY conversation_id ORDER BY created_at, id) AS seq
+    FROM messages
+    WHERE conversation_id IS NOT NULL
+) numbered
+WHERE m.id = numbered.id AND m.seq IS NULL;
+
+UPDATE conversations c
+SET last_seq = COALESCE((SELECT MAX(seq) FROM messages m WHERE m.conversation_id = c.id), 0);
+
+CREATE INDEX IF NOT EXISTS idx_messages_conversation_seq ON messages(conversation_id, seq);
+
+-- Inbox rows written under the reversed legacy spelling move to the normalized room ID.
+-- CASE keeps the casts from running on room IDs the pattern rejects.
+CREATE TEMP TABLE reversed_summaries AS
+SELECT id, user_id,
+       'private_' || split_part(room_id, '_', 3)::BIGINT || '_' || split_part(room_id, '_', 2)::BIGINT AS normalized_room_id
+FROM conversation_summaries
+WHERE CASE WHEN room_id ~ '^private_[0-9]+_[0-9]+$'
+           THEN split_part(room_id, '_', 2)::BIGINT > split_part(room_id, '_', 3)::BIGINT
+           ELSE FALSE END;
+
+-- Where the user also has the normalized row, fold the reversed one into it: unread counts add up and
+-- the later last message wins
+UPDATE conversation_summaries n
+SET unread_count = n.unread_count + r.unread_count,
+    last_message_id = CASE WHEN r.last_activity_at > n.last_activity_at THEN r.last_message_id ELSE n.last_message_id END,
+    last_message_preview = CASE WHEN r.last_activity_at > n.last_activity_at THEN r.last_message_preview ELSE n.last_message_preview END,
+    last_sender_id = CASE WHEN r.last_activity_at > n.last_activity_at THEN r.last_sender_id ELSE n.last_sender_id END,
+    last_activity_at = GREATEST(n.last_activity_at, r.last_activity_at),
+    peer_user_id = COALESCE(n.peer_user_id, r.peer_user_id)
+FROM reversed_summaries rs
+JOIN conversation_summaries r ON r.id = rs.id
+WHERE n.user_id = rs.user_id AND n.room_id = rs.normalized_room_id;
+
+DELETE FROM conversation_summaries cs
+USING reversed_summaries rs
+WHERE cs.id = rs.id
+  AND EXISTS (SELECT 1 FROM conversation_summaries n WHERE n.user_id = rs.user_id AND n.room_id = rs.normalized_room_id);
+
+-- The rest had no normalized counterpart and are simply renamed
+UPDATE conversation_summaries cs
+SET room_id = rs.normalized_room_id
+FROM reversed_summaries rs
+WHERE cs.id = rs.id;
+
+DROP TABLE reversed_summaries;
+
+-- Success message
+DO $$ 
+BEGIN
+    RAISE NOTICE 'Conversations created and private messages migrated successfully!';
+END $$;
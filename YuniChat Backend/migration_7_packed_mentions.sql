@@ -0,0 +1,28 @@
+-- Store mentions on the message row instead of the message_mentions collection table
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS mentioned_user_ids BIGINT[];
+
+-- Backfill from the old collection table
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = 'message_mentions') THEN
+        UPDATE messages m
+        SET mentioned_user_ids = mm.user_ids
+        FROM (
+            SELECT message_id, array_agg(mentioned_user_id) AS user_ids
+            FROM message_mentions
+            GROUP BY message_id
+        ) mm
+        WHERE m.id = mm.message_id AND m.mentioned_user_ids IS NULL;
+
+        DROP TABLE message_mentions;
+    END IF;
+END $$;
+
+-- Supports "messages mentioning me" lookups (mentioned_user_ids @> ARRAY[:userId])
+CREATE INDEX IF NOT EXISTS idx_messages_mentioned_user_ids ON messages USING GIN (mentioned_user_ids);
+
+-- Success message
+DO $$ 
+BEGIN
+    RAISE NOTICE 'Mentions migrated to messages.mentioned_user_ids successfully!';
+END $$;
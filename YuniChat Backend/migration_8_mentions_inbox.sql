@@ -0,0 +1,34 @@
+-- Mentions inbox: one row per mentioned user and message, plus incrementally maintained unread counters
+CREATE TABLE IF NOT EXISTS mentions (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    message_id BIGINT NOT NULL,
+    room_id VARCHAR(255) NOT NULL,
+    sender_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    is_read BOOLEAN NOT NULL DEFAULT false,
+    CONSTRAINT unique_mention_user_message UNIQUE (user_id, message_id)
+);
+
+CREATE TABLE IF NOT EXISTS mention_counters (
+    user_id BIGINT PRIMARY KEY,
+    unread_count INTEGER NOT NULL DEFAULT 0
+);
+
+-- Inbox is always read as "my mentions, newest first"
+CREATE INDEX IF NOT EXISTS idx_mentions_inbox ON mentions(user_id, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_mentions_message_id ON mentions(message_id);
+
+-- Backfill existing mentions as already read so nobody starts with a flood of unread counts
+INSERT INTO mentions (user_id, message_id, room_id, sender_id, created_at, is_read)
+SELECT DISTINCT mu.user_id, m.id, m.room_id, m.sender_id, m.created_at, true
+FROM messages m
+CROSS JOIN LATERAL unnest(m.mentioned_user_ids) AS mu(user_id)
+WHERE m.mentioned_user_ids IS NOT NULL AND m.is_deleted = false AND mu.user_id <> m.sender_id
+ON CONFLICT (user_id, message_id) DO NOTHING;
+
+-- Success message
+DO $$ 
+BEGIN
+    RAISE NOTICE 'Mentions inbox created and backfilled successfully!';
+END $$;
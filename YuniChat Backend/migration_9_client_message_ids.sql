@@ -0,0 +1,8 @@
+-- Client-generated message IDs used to deduplicate retried sends
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS client_message_id VARCHAR(64);
+
+-- Success message
+DO $$ 
+BEGIN
+    RAISE NOTICE 'Client message ID column added successfully!';
+END $$;
@@ -32,6 +32,9 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     // Count all notifications
     Long countByUserId(Long userId);
 
+    // Detect redelivered chat events
+    boolean existsByUserIdAndTypeAndReferenceId(Long userId, NotificationType type, String referenceId);
+
     // Find expired notifications
     List<Notification> findByExpiresAtBefore(LocalDateTime dateTime);
 
@@ -0,0 +1,90 @@
+package com.yunichat.notification.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yunichat.common.dto.ChatEventDTO;
+import com.yunichat.common.exception.BadRequestException;
+import com.yunichat.notification.dto.NotificationRequest;
+import com.yunichat.notification.entity.NotificationType;
+import com.yunichat.notification.repository.NotificationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Creates notifications from the chat-service event log instead of being called inline:
+ * NEW_MESSAGE for the recipient of a private message and MENTIONED for each mentioned user.
+ */
+@Component
+@ConditionalOnProperty(name = "notification.chat-events.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ChatEventNotificationListener {
+
+    private static final int PREVIEW_LENGTH = 200;
+
+    private final NotificationService notificationService;
+    private final NotificationRepository notificationRepository;
+    private final ObjectMapper objectMapper;
+
+    @KafkaListener(topics = "${notification.chat-events.topic:" + ChatEventDTO.TOPIC + "}")
+    public void onChatEvent(String payload) {
+        ChatEventDTO event;
+        try {
+            event = objectMapper.readValue(payload, ChatEventDTO.class);
+        } catch (Exception e) {
+            log.error("Skipping unreadable chat event: {}", e.getMessage());
+            return;
+        }
+        
+        if (event.getType() != ChatEventDTO.Type.MESSAGE_CREATED) {
+            return;
+        }
+        
+        if (event.getRecipientId() != null) {
+            notify(event.getRecipientId(), NotificationType.NEW_MESSAGE, event,
+                    "New message from " + event.getSenderUsername());
+        }
+        
+        if (event.getMentionedUserIds() != null) {
+            Set<Long> mentioned = new LinkedHashSet<>(event.getMentionedUserIds());
+            mentioned.remove(event.getSenderId());
+            for (Long userId : mentioned) {
+                notify(userId, NotificationType.MENTIONED, event,
+                        event.getSenderUsername() + " mentioned you");
+            }
+        }
+    }
+
+    private void notify(Long userId, NotificationType type, ChatEventDTO event, String title) {
+        String referenceId = event.getMessageId().toString();
+        // The log is delivered at least once; a redelivered event must not notify twice
+        if (notificationRepository.existsByUserIdAndTypeAndReferenceId(userId, type, referenceId)) {
+            return;
+        }
+        
+        try {
+            notificationService.createNotification(NotificationRequest.builder()
+                    .userId(userId)
+                    .type(type)
+                    .title(title)
+                    .message(preview(event.getContent()))
+                    .referenceId(referenceId)
+                    .referenceType("MESSAGE")
+                    .build());
+        } catch (BadRequestException e) {
+            log.warn("Notification for user {} dropped: {}", userId, e.getMessage());
+        }
+    }
+
+    private String preview(String content) {
+        if (content == null) {
+            return null;
+        }
+        return content.length() > PREVIEW_LENGTH ? content.substring(0, PREVIEW_LENGTH) : content;
+    }
+}
@@ -179,6 +179,14 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success("Guest user deleted successfully", null));
     }
 
+    @PostMapping("/guest/bulk-delete")
+    @Operation(summary = "Delete guest users", description = "Delete several disconnected guest users at once (internal use)")
+    public ResponseEntity<ApiResponse<Void>> deleteGuestUsers(@RequestBody Set<Long> userIds) {
+        log.info("Bulk delete request for {} guest users", userIds.size());
+        userService.deleteGuestUsers(userIds);
+        return ResponseEntity.ok(ApiResponse.success("Guest users deleted successfully", null));
+    }
+
     // Friend Management Endpoints
     @PostMapping("/friends/request")
     @Operation(summary = "Send friend request", description = "Send a friend request to another user")
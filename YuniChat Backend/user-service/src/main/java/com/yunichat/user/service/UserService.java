@@ -11,6 +11,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -260,6 +261,16 @@ public class UserService {
         });
     }
 
+    /**
+     * Delete several guest users in one transaction; non-guest and unknown IDs are skipped
+     */
+    @Transactional
+    public void deleteGuestUsers(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            deleteGuestUser(userId);
+        }
+    }
+
     // Friend Management Methods
     @Transactional
     public FriendRequestResponse sendFriendRequest(Long senderId, Long recipientId) {
@@ -437,6 +437,13 @@ const MainLayout = ({ children }) => {
                   dispatch(callActions.receiveICECandidate({ candidate: signal.candidate }));
                   break;
 
+                case 'ICE_CANDIDATES':
+                  // Server coalesces candidates gathered within a few milliseconds into one frame
+                  (signal.candidates || []).forEach((candidate) => {
+                    dispatch(callActions.receiveICECandidate({ candidate }));
+                  });
+                  break;
+
                 case 'CALL_END':
                   dispatch(callActions.receiveCallEnd());
                   break;